@@ -31,6 +31,14 @@ import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import oap.alert.MessageTransport;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
 /**
  * @todo replace with https://github.com/HubSpot/slack-client
  */
@@ -76,4 +84,58 @@ public class SlackMessageTransport implements MessageTransport<Payload> {
         ensureStarted();
         webhookClient.post( p );
     }
+
+    /**
+     * payloads for the same channel, user, icon and text are posted as one message with all their attachments,
+     * attachments with the same text and color are posted once
+     */
+    @Override
+    @SneakyThrows
+    public List<Payload> sendBatch( List<Payload> payloads ) {
+        ensureStarted();
+
+        var failed = new ArrayList<Payload>();
+        RuntimeException last = null;
+        for( var merged : merge( payloads ) )
+            try {
+                webhookClient.post( merged.payload );
+            } catch( RuntimeException e ) {
+                log.warn( "{}: {}", merged.payload.getChannel(), e.getMessage() );
+                failed.addAll( merged.sources );
+                last = e;
+            }
+
+        if( last != null && failed.size() == payloads.size() ) throw last;
+        return failed;
+    }
+
+    static Collection<Merged> merge( List<Payload> payloads ) {
+        var merged = new LinkedHashMap<List<String>, Merged>();
+        for( var p : payloads ) {
+            var m = merged.computeIfAbsent( Arrays.asList( p.getChannel(), p.getUsername(), p.getIcon_emoji(), p.getText() ), k -> {
+                var payload = new Payload();
+                payload.setChannel( p.getChannel() );
+                payload.setUsername( p.getUsername() );
+                payload.setIcon_emoji( p.getIcon_emoji() );
+                payload.setText( p.getText() );
+                return new Merged( payload );
+            } );
+            if( p.getAttachments() != null )
+                for( var attachment : p.getAttachments() )
+                    if( m.attachments.add( Arrays.asList( attachment.getText(), String.valueOf( attachment.getColor() ) ) ) )
+                        m.payload.addAttachment( attachment );
+            m.sources.add( p );
+        }
+        return merged.values();
+    }
+
+    static final class Merged {
+        final Payload payload;
+        final List<Payload> sources = new ArrayList<>();
+        final Set<List<String>> attachments = new HashSet<>();
+
+        Merged( Payload payload ) {
+            this.payload = payload;
+        }
+    }
 }
@@ -0,0 +1,60 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.alert.slack;
+
+import flowctrl.integration.slack.type.Payload;
+import oap.alert.Alert;
+import oap.alert.MessageStream;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SlackMessageTransportTest {
+    @Test
+    public void mergeDeduplicatesAttachments() {
+        var payloads = new ArrayList<Payload>();
+        MessageStream<Payload> stream = payloads::add;
+        var messenger = new SlackMessenger( "alerts", "oap", stream );
+
+        messenger.send( "host1", "disk", new Alert( Alert.State.RED, "full" ), true );
+        messenger.send( "host1", "disk", new Alert( Alert.State.RED, "full" ), true );
+        messenger.send( "host2", "disk", new Alert( Alert.State.RED, "full" ), true );
+        messenger.send( "host1", "disk", new Alert( Alert.State.GREEN, "ok" ), true );
+
+        var merged = List.copyOf( SlackMessageTransport.merge( payloads ) );
+
+        assertThat( merged ).hasSize( 2 );
+        assertThat( merged.get( 0 ).payload.getAttachments() )
+            .extracting( a -> a.getText() )
+            .containsExactly( "CRITICAL: disk/host1: full", "CRITICAL: disk/host2: full" );
+        assertThat( merged.get( 0 ).sources ).containsExactly( payloads.get( 0 ), payloads.get( 1 ), payloads.get( 2 ) );
+        assertThat( merged.get( 1 ).payload.getAttachments() )
+            .extracting( a -> a.getText() )
+            .containsExactly( "OK: disk/host1: ok" );
+    }
+}
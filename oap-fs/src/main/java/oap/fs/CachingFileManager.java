@@ -0,0 +1,398 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.fs;
+
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import oap.io.Files;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.joda.time.DateTimeUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Read-through cache of a remote {@link StreamingFileManager} on the local disk.
+ * <p>
+ * Reads are served from {@code cacheDirectory}, concurrent misses of the same object are fetched once.
+ * Cached objects are revalidated by ETag and last modified time at most once per {@code revalidateAfter} ms.
+ * When the cache grows over {@code maxSize} bytes, least recently ({@link Policy#LRU}) or least frequently ({@link Policy#LFU})
+ * used objects are removed until it is 10% below {@code maxSize}. Writes go to the delegate and invalidate the cached copy.
+ * <p>
+ * On start, files left in {@code cacheDirectory} by a previous run of the cache (hashed object names and unfinished
+ * {@code *.unsafe} downloads) are removed, any other file in the directory is left untouched.
+ */
+@Slf4j
+public class CachingFileManager implements StreamingFileManager {
+    private static final Pattern CACHE_FILE = Pattern.compile( "[0-9a-f]{32}(\\.unsafe)?" );
+
+    private final StreamingFileManager delegate;
+    private final Path cacheDirectory;
+    private final long maxSize;
+    private final long lowWaterMark;
+    private final long revalidateAfter;
+    private final Policy policy;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Load> loading = new ConcurrentHashMap<>();
+    private final AtomicLong size = new AtomicLong();
+    private final ReentrantLock evicting = new ReentrantLock();
+
+    private final Counter hit;
+    private final Counter miss;
+    private final Counter eviction;
+
+    public CachingFileManager( StreamingFileManager delegate, Path cacheDirectory, long maxSize, long revalidateAfter, Policy policy ) {
+        this.delegate = delegate;
+        this.cacheDirectory = cacheDirectory;
+        this.maxSize = maxSize;
+        this.lowWaterMark = maxSize - maxSize / 10;
+        this.revalidateAfter = revalidateAfter;
+        this.policy = policy;
+
+        Files.ensureDirectory( cacheDirectory );
+        cleanup();
+
+        var tags = Tags.of( "cache", cacheDirectory.getFileName().toString() );
+        this.hit = Metrics.counter( "oap_fs_cache", tags.and( "type", "hit" ) );
+        this.miss = Metrics.counter( "oap_fs_cache", tags.and( "type", "miss" ) );
+        this.eviction = Metrics.counter( "oap_fs_cache", tags.and( "type", "eviction" ) );
+        Metrics.gauge( "oap_fs_cache_size", tags, size );
+    }
+
+    @Override
+    public Optional<FileInfo> info( String bucket, String relativePath ) {
+        return delegate.info( bucket, relativePath );
+    }
+
+    @Override
+    public Optional<InputStream> openStream( String bucket, String relativePath ) {
+        return openStream( bucket, relativePath, 0, Long.MAX_VALUE );
+    }
+
+    @Override
+    public Optional<InputStream> openStream( String bucket, String relativePath, long offset, long length ) {
+        for( var attempt = 0; ; attempt++ ) {
+            var entry = get( bucket, relativePath ).orElse( null );
+            if( entry == null ) return Optional.empty();
+
+            try {
+                var channel = FileChannel.open( entry.path, READ );
+                channel.position( offset );
+                return Optional.of( new BoundedInputStream( Channels.newInputStream( channel ), length ) );
+            } catch( NoSuchFileException e ) {
+                if( attempt > 0 ) throw new UncheckedIOException( e );
+                log.trace( "{} evicted concurrently", entry.path );
+            } catch( IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+        }
+    }
+
+    @Override
+    public boolean download( String bucket, String relativePath, Path destination ) {
+        for( var attempt = 0; ; attempt++ ) {
+            var entry = get( bucket, relativePath ).orElse( null );
+            if( entry == null ) return false;
+
+            try {
+                Files.ensureFile( destination );
+                java.nio.file.Files.copy( entry.path, destination, REPLACE_EXISTING );
+                return true;
+            } catch( NoSuchFileException e ) {
+                if( attempt > 0 ) throw new UncheckedIOException( e );
+                log.trace( "{} evicted concurrently", entry.path );
+            } catch( IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+        }
+    }
+
+    @Override
+    public void upload( String bucket, String relativePath, InputStream in, long contentLength ) {
+        delegate.upload( bucket, relativePath, in, contentLength );
+        invalidate( bucket, relativePath );
+    }
+
+    @Override
+    public void upload( String bucket, String relativePath, Path file ) {
+        delegate.upload( bucket, relativePath, file );
+        invalidate( bucket, relativePath );
+    }
+
+    @Override
+    public void copy( String srcBucket, String srcRelativePath, String destBucket, String destRelativePath ) {
+        delegate.copy( srcBucket, srcRelativePath, destBucket, destRelativePath );
+        invalidate( destBucket, destRelativePath );
+    }
+
+    @Override
+    public boolean delete( String bucket, String relativePath ) {
+        var deleted = delegate.delete( bucket, relativePath );
+        invalidate( bucket, relativePath );
+        return deleted;
+    }
+
+    public void invalidate( String bucket, String relativePath ) {
+        var key = key( bucket, relativePath );
+        var load = loading.get( key );
+        if( load != null ) load.invalidate();
+        var entry = entries.remove( key );
+        if( entry != null ) remove( entry );
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    private Optional<Entry> get( String bucket, String relativePath ) {
+        var key = key( bucket, relativePath );
+        var entry = entries.get( key );
+        if( entry != null && isValid( bucket, relativePath, entry ) ) {
+            hit.increment();
+            entry.touch();
+            return Optional.of( entry );
+        }
+
+        var future = new Load();
+        var existing = loading.putIfAbsent( key, future );
+        if( existing != null ) {
+            try {
+                return existing.join();
+            } catch( CompletionException e ) {
+                throw e.getCause() instanceof RuntimeException ? ( RuntimeException ) e.getCause() : e;
+            }
+        }
+
+        try {
+            var loadedConcurrently = entries.get( key );
+            if( loadedConcurrently != null && loadedConcurrently != entry ) {
+                hit.increment();
+                loadedConcurrently.touch();
+                future.complete( Optional.of( loadedConcurrently ) );
+                return Optional.of( loadedConcurrently );
+            }
+
+            miss.increment();
+            var loaded = load( bucket, relativePath, key, future );
+            future.complete( loaded );
+            return loaded;
+        } catch( RuntimeException e ) {
+            future.completeExceptionally( e );
+            throw e;
+        } finally {
+            loading.remove( key );
+        }
+    }
+
+    private boolean isValid( String bucket, String relativePath, Entry entry ) {
+        var now = DateTimeUtils.currentTimeMillis();
+        if( now - entry.validated < revalidateAfter ) return true;
+
+        var info = delegate.info( bucket, relativePath ).orElse( null );
+        if( info != null && Objects.equals( info.etag, entry.info.etag ) && info.lastModified == entry.info.lastModified ) {
+            entry.validated = now;
+            return true;
+        }
+
+        log.trace( "{}/{} changed", bucket, relativePath );
+        if( entries.remove( entry.key, entry ) ) remove( entry );
+        return false;
+    }
+
+    private Optional<Entry> load( String bucket, String relativePath, String key, Load load ) {
+        while( true ) {
+            var generation = load.generation();
+
+            var info = delegate.info( bucket, relativePath ).orElse( null );
+            if( info == null ) return Optional.empty();
+
+            var path = cacheDirectory.resolve( key );
+            var unsafe = cacheDirectory.resolve( key + ".unsafe" );
+            if( !delegate.download( bucket, relativePath, unsafe ) ) return Optional.empty();
+            Files.rename( unsafe, path );
+
+            var entry = new Entry( key, path, info );
+            var stored = load.ifNotInvalidated( generation, () -> {
+                var previous = entries.put( key, entry );
+                if( previous != null ) size.addAndGet( -previous.info.size );
+                size.addAndGet( info.size );
+            } );
+
+            if( stored ) {
+                evict( entry );
+                return Optional.of( entry );
+            }
+
+            log.trace( "{}/{} invalidated while loading", bucket, relativePath );
+            deleteQuietly( path );
+        }
+    }
+
+    private void cleanup() {
+        try( var files = java.nio.file.Files.list( cacheDirectory ) ) {
+            files
+                .filter( file -> CACHE_FILE.matcher( file.getFileName().toString() ).matches() )
+                .forEach( CachingFileManager::deleteQuietly );
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    /**
+     * Evicts in batches down to {@link #lowWaterMark}, so entries are sorted once per {@code maxSize / 10} bytes loaded
+     * rather than on every miss. A miss, which finds another eviction in progress, leaves the work to it.
+     */
+    private void evict( Entry loaded ) {
+        if( size.get() <= maxSize || !evicting.tryLock() ) return;
+
+        try {
+            var candidates = new ArrayList<Candidate>( entries.size() );
+            for( var entry : entries.values() )
+                if( entry != loaded ) candidates.add( new Candidate( entry, entry.accessed, entry.hits.sum() ) );
+            candidates.sort( policy.comparator );
+
+            for( var candidate : candidates ) {
+                if( size.get() <= lowWaterMark ) break;
+                var entry = candidate.entry;
+                if( entries.remove( entry.key, entry ) ) {
+                    log.trace( "evict {}", entry.key );
+                    eviction.increment();
+                    remove( entry );
+                }
+            }
+        } finally {
+            evicting.unlock();
+        }
+    }
+
+    private void remove( Entry entry ) {
+        size.addAndGet( -entry.info.size );
+        deleteQuietly( entry.path );
+    }
+
+    private static void deleteQuietly( Path path ) {
+        try {
+            java.nio.file.Files.deleteIfExists( path );
+        } catch( IOException e ) {
+            log.warn( "cannot delete {}: {}", path, e.getMessage() );
+        }
+    }
+
+    private static String key( String bucket, String relativePath ) {
+        return Hashing.murmur3_128().hashString( bucket + "/" + relativePath, UTF_8 ).toString();
+    }
+
+    public enum Policy {
+        LRU( Comparator.comparingLong( c -> c.accessed ) ),
+        LFU( Comparator.<Candidate>comparingLong( c -> c.hits ).thenComparingLong( c -> c.accessed ) );
+
+        private final Comparator<Candidate> comparator;
+
+        Policy( Comparator<Candidate> comparator ) {
+            this.comparator = comparator;
+        }
+    }
+
+    /**
+     * usage of an entry at the start of an eviction, so that the sort order does not change while sorting
+     */
+    private static final class Candidate {
+        final Entry entry;
+        final long accessed;
+        final long hits;
+
+        Candidate( Entry entry, long accessed, long hits ) {
+            this.entry = entry;
+            this.accessed = accessed;
+            this.hits = hits;
+        }
+    }
+
+    /**
+     * a load in progress, {@link #invalidate()} makes it discard what it has fetched so far and fetch again
+     */
+    private static final class Load extends CompletableFuture<Optional<Entry>> {
+        private int generation;
+
+        synchronized int generation() {
+            return generation;
+        }
+
+        synchronized void invalidate() {
+            generation++;
+        }
+
+        synchronized boolean ifNotInvalidated( int generation, Runnable action ) {
+            if( this.generation != generation ) return false;
+            action.run();
+            return true;
+        }
+    }
+
+    private static final class Entry {
+        final String key;
+        final Path path;
+        final FileInfo info;
+        final LongAdder hits = new LongAdder();
+        volatile long accessed;
+        volatile long validated;
+
+        Entry( String key, Path path, FileInfo info ) {
+            this.key = key;
+            this.path = path;
+            this.info = info;
+            this.accessed = this.validated = DateTimeUtils.currentTimeMillis();
+        }
+
+        void touch() {
+            hits.increment();
+            accessed = DateTimeUtils.currentTimeMillis();
+        }
+    }
+}
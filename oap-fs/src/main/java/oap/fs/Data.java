@@ -25,8 +25,11 @@
 package oap.fs;
 
 import oap.io.MimeTypes;
+import oap.io.StringStreamInputStream;
 import oap.util.Pair;
+import oap.util.Stream;
 
+import java.io.InputStream;
 import java.util.Base64;
 
 import static oap.util.Strings.split;
@@ -58,6 +61,13 @@ public class Data {
         return Base64.getDecoder().decode( content );
     }
 
+    /**
+     * @return content decoded on the fly, read directly from the base64 string without an encoded or decoded copy in heap
+     */
+    public InputStream decodedStream() {
+        return Base64.getDecoder().wrap( new StringStreamInputStream( Stream.of( content ) ) );
+    }
+
     public String extension() {
         return MimeTypes.extensionOf( mimeType ).orElse( "bin" );
     }
@@ -27,13 +27,22 @@ package oap.fs;
 import lombok.extern.slf4j.Slf4j;
 import oap.io.Files;
 import oap.io.content.ContentReader;
+import org.apache.commons.io.input.BoundedInputStream;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.util.Map;
 import java.util.Optional;
 
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
 @Slf4j
-public class LocalFileManager extends AbstractFileManager implements FileManager<Data> {
+public class LocalFileManager extends AbstractFileManager implements FileManager<Data>, StreamingFileManager {
 
     public LocalFileManager( Map<String, Path> buckets ) {
         super( buckets );
@@ -42,8 +51,11 @@ public class LocalFileManager extends AbstractFileManager implements FileManager
     @Override
     public String write( String bucket, Data data ) {
         var name = data.nameOrConstruct( cuid.next() );
-        var path = getBucket( bucket ).resolve( name );
-        Files.write( path, data.decoded() );
+        try( var in = data.decodedStream() ) {
+            upload( bucket, name, in, -1 );
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
         return name;
     }
 
@@ -58,4 +70,88 @@ public class LocalFileManager extends AbstractFileManager implements FileManager
         log.debug( "Copy files from {} to {}", src, dist );
         Files.copyContent( Path.of( src ), Path.of( dist ) );
     }
+
+    @Override
+    public Optional<FileInfo> info( String bucket, String relativePath ) {
+        var path = getBucket( bucket ).resolve( relativePath );
+        if( !Files.exists( path ) ) return Optional.empty();
+        try {
+            var size = java.nio.file.Files.size( path );
+            var lastModified = java.nio.file.Files.getLastModifiedTime( path ).toMillis();
+            return Optional.of( new FileInfo( size, Long.toHexString( size ) + "-" + Long.toHexString( lastModified ), lastModified ) );
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    @Override
+    public Optional<InputStream> openStream( String bucket, String relativePath ) {
+        return openStream( bucket, relativePath, 0, Long.MAX_VALUE );
+    }
+
+    @Override
+    public Optional<InputStream> openStream( String bucket, String relativePath, long offset, long length ) {
+        var path = getBucket( bucket ).resolve( relativePath );
+        if( !Files.exists( path ) ) return Optional.empty();
+        try {
+            var channel = FileChannel.open( path, READ );
+            channel.position( offset );
+            return Optional.of( new BoundedInputStream( Channels.newInputStream( channel ), length ) );
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    @Override
+    public void upload( String bucket, String relativePath, InputStream in, long contentLength ) {
+        var path = getBucket( bucket ).resolve( relativePath );
+        var unsafe = path.resolveSibling( path.getFileName() + ".unsafe" );
+        try {
+            Files.ensureFile( unsafe );
+            java.nio.file.Files.copy( in, unsafe, REPLACE_EXISTING );
+            Files.rename( unsafe, path );
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    @Override
+    public void upload( String bucket, String relativePath, Path file ) {
+        var path = getBucket( bucket ).resolve( relativePath );
+        copy( file, path );
+    }
+
+    @Override
+    public boolean download( String bucket, String relativePath, Path destination ) {
+        var path = getBucket( bucket ).resolve( relativePath );
+        if( !Files.exists( path ) ) return false;
+        copy( path, destination );
+        return true;
+    }
+
+    @Override
+    public void copy( String srcBucket, String srcRelativePath, String destBucket, String destRelativePath ) {
+        log.debug( "Copy {}/{} to {}/{}", srcBucket, srcRelativePath, destBucket, destRelativePath );
+        copy( getBucket( srcBucket ).resolve( srcRelativePath ), getBucket( destBucket ).resolve( destRelativePath ) );
+    }
+
+    @Override
+    public boolean delete( String bucket, String relativePath ) {
+        try {
+            return java.nio.file.Files.deleteIfExists( getBucket( bucket ).resolve( relativePath ) );
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private static void copy( Path src, Path dest ) {
+        var unsafe = dest.resolveSibling( dest.getFileName() + ".unsafe" );
+        try {
+            Files.ensureFile( unsafe );
+            java.nio.file.Files.copy( src, unsafe, REPLACE_EXISTING );
+            Files.rename( unsafe, dest );
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
 }
@@ -27,37 +27,67 @@ package oap.fs;
 import com.amazonaws.auth.profile.ProfileCredentialsProvider;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.transfer.Download;
+import com.amazonaws.services.s3.transfer.Transfer;
 import com.amazonaws.services.s3.transfer.TransferManager;
 import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
 import com.amazonaws.services.s3.transfer.Upload;
 import lombok.extern.slf4j.Slf4j;
+import oap.io.Files;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.nio.file.Path;
 import java.util.Map;
+import java.util.Optional;
 
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Uploads, downloads and copies go through {@link TransferManager}: uploads and copies larger than {@link #partSize}
+ * are split into parts and transferred in parallel, copies are done on the server side.
+ * Downloads are parallel only for objects that were stored as multipart uploads, other objects are read in one stream.
+ * <p>
+ * Streams of unknown length are spooled to a temporary file before the upload,
+ * because {@link TransferManager} buffers such streams in heap.
+ */
 @Slf4j
-public class S3FileManager extends AbstractFileManager  {
+public class S3FileManager extends AbstractFileManager implements StreamingFileManager {
+    public static final long DEFAULT_PART_SIZE = 16 * 1024 * 1024;
 
-    private AmazonS3 s3client;
-    private TransferManager transferManager;
-    private String region;
+    private final AmazonS3 s3client;
+    private final TransferManager transferManager;
+    public final long partSize;
 
     public S3FileManager( Map<String, Path> buckets, String region ) {
-        super( buckets );
-        this.region = region;
-        log.info( "Init s3-file-manager" );
-        var s3Client = AmazonS3ClientBuilder.standard().withRegion( this.region ).withCredentials( new ProfileCredentialsProvider() ).build();
-        if( this.s3client == null ) this.s3client = s3Client;
-        transferManager = TransferManagerBuilder.standard().withS3Client( this.s3client ).build();
+        this( buckets, AmazonS3ClientBuilder.standard().withRegion( region ).withCredentials( new ProfileCredentialsProvider() ).build() );
     }
 
     public S3FileManager( Map<String, Path> buckets, AmazonS3 s3client ) {
+        this( buckets, s3client, DEFAULT_PART_SIZE );
+    }
+
+    public S3FileManager( Map<String, Path> buckets, AmazonS3 s3client, long partSize ) {
         super( buckets );
+        log.info( "Init s3-file-manager partSize {}", partSize );
         this.s3client = s3client;
-        this.transferManager = TransferManagerBuilder.standard().withS3Client( s3client ).build();
+        this.partSize = partSize;
+        this.transferManager = TransferManagerBuilder.standard()
+            .withS3Client( s3client )
+            .withMinimumUploadPartSize( partSize )
+            .withMultipartUploadThreshold( partSize )
+            .withMultipartCopyPartSize( partSize )
+            .withMultipartCopyThreshold( partSize )
+            .withDisableParallelDownloads( false )
+            .build();
     }
 
     public Upload uploadStream( String bucket, S3Data data ) {
@@ -78,8 +108,129 @@ public class S3FileManager extends AbstractFileManager  {
         return transferManager.download( bucket, relativePath, destination );
     }
 
-
+    /**
+     * @param src  s3://bucket/key
+     * @param dist s3://bucket/key
+     */
     public void copyFromTo( String src, String dist ) {
+        log.debug( "Copy files from {} to {}", src, dist );
+        var srcUri = URI.create( src );
+        var distUri = URI.create( dist );
+        if( !"s3".equals( srcUri.getScheme() ) || !"s3".equals( distUri.getScheme() ) )
+            throw new IllegalArgumentException( "s3://bucket/key expected: " + src + " -> " + dist );
+
+        await( transferManager.copy( new CopyObjectRequest(
+            srcUri.getHost(), srcUri.getPath().substring( 1 ), distUri.getHost(), distUri.getPath().substring( 1 ) ) ) );
+    }
+
+    @Override
+    public Optional<FileInfo> info( String bucket, String relativePath ) {
+        try {
+            var metadata = s3client.getObjectMetadata( bucket, key( bucket, relativePath ) );
+            return Optional.of( new FileInfo( metadata.getContentLength(), metadata.getETag(),
+                metadata.getLastModified() != null ? metadata.getLastModified().getTime() : 0 ) );
+        } catch( AmazonS3Exception e ) {
+            if( e.getStatusCode() == 404 ) return Optional.empty();
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<InputStream> openStream( String bucket, String relativePath ) {
+        return open( new GetObjectRequest( bucket, key( bucket, relativePath ) ) );
+    }
+
+    @Override
+    public Optional<InputStream> openStream( String bucket, String relativePath, long offset, long length ) {
+        if( length == 0 ) return info( bucket, relativePath ).map( i -> InputStream.nullInputStream() );
+
+        var request = new GetObjectRequest( bucket, key( bucket, relativePath ) );
+        if( length >= Long.MAX_VALUE - offset ) request.setRange( offset );
+        else request.setRange( offset, offset + length - 1 );
+        return open( request );
+    }
+
+    private Optional<InputStream> open( GetObjectRequest request ) {
+        try {
+            return Optional.of( s3client.getObject( request ).getObjectContent() );
+        } catch( AmazonS3Exception e ) {
+            if( e.getStatusCode() == 404 ) return Optional.empty();
+            throw e;
+        }
+    }
+
+    @Override
+    public void upload( String bucket, String relativePath, InputStream in, long contentLength ) {
+        if( contentLength < 0 ) {
+            uploadSpooled( bucket, relativePath, in );
+            return;
+        }
+
+        var metadata = new ObjectMetadata();
+        metadata.setContentLength( contentLength );
+        await( transferManager.upload( bucket, key( bucket, relativePath ), in, metadata ) );
+    }
+
+    private void uploadSpooled( String bucket, String relativePath, InputStream in ) {
+        Path spool = null;
+        try {
+            spool = java.nio.file.Files.createTempFile( "s3-upload", ".spool" );
+            java.nio.file.Files.copy( in, spool, REPLACE_EXISTING );
+            upload( bucket, relativePath, spool );
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        } finally {
+            if( spool != null ) try {
+                java.nio.file.Files.deleteIfExists( spool );
+            } catch( IOException e ) {
+                log.warn( "cannot delete {}: {}", spool, e.getMessage() );
+            }
+        }
+    }
+
+    @Override
+    public void upload( String bucket, String relativePath, Path file ) {
+        await( transferManager.upload( bucket, key( bucket, relativePath ), file.toFile() ) );
+    }
+
+    @Override
+    public boolean download( String bucket, String relativePath, Path destination ) {
+        if( info( bucket, relativePath ).isEmpty() ) return false;
+
+        Files.ensureFile( destination );
+        await( transferManager.download( new GetObjectRequest( bucket, key( bucket, relativePath ) ), destination.toFile() ) );
+        return true;
+    }
+
+    @Override
+    public void copy( String srcBucket, String srcRelativePath, String destBucket, String destRelativePath ) {
+        log.debug( "Copy {}/{} to {}/{}", srcBucket, srcRelativePath, destBucket, destRelativePath );
+        await( transferManager.copy( new CopyObjectRequest(
+            srcBucket, key( srcBucket, srcRelativePath ), destBucket, key( destBucket, destRelativePath ) ) ) );
+    }
+
+    @Override
+    public boolean delete( String bucket, String relativePath ) {
+        if( info( bucket, relativePath ).isEmpty() ) return false;
+        s3client.deleteObject( bucket, key( bucket, relativePath ) );
+        return true;
+    }
+
+    public void shutdown() {
+        transferManager.shutdownNow( false );
+    }
+
+    protected String key( String bucket, String relativePath ) {
+        var prefix = buckets.get( bucket );
+        return prefix != null ? prefix.resolve( relativePath ).toString() : relativePath;
+    }
 
+    private static void await( Transfer transfer ) {
+        try {
+            transfer.waitForCompletion();
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException( new InterruptedIOException( transfer.getDescription() ) );
+        }
     }
 }
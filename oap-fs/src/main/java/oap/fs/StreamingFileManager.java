@@ -0,0 +1,67 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.fs;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Streaming access to bucket content. Objects are never materialized in heap,
+ * large transfers are split into parts and moved in parallel where the storage supports it.
+ * <p>
+ * {@link LocalFileManager} implements the same contract on top of the file system and is used as a stand-in for S3 in tests.
+ */
+public interface StreamingFileManager {
+    Optional<FileInfo> info( String bucket, String relativePath );
+
+    Optional<InputStream> openStream( String bucket, String relativePath );
+
+    /**
+     * @param offset first byte to read
+     * @param length number of bytes to read, the stream ends earlier if the object is shorter
+     */
+    Optional<InputStream> openStream( String bucket, String relativePath, long offset, long length );
+
+    /**
+     * @param contentLength exact stream length or -1 if unknown. Storages that need the length up front
+     *                      (S3) spool streams of unknown length to a temporary file first.
+     */
+    void upload( String bucket, String relativePath, InputStream in, long contentLength );
+
+    void upload( String bucket, String relativePath, Path file );
+
+    /**
+     * @return {@code false} if the object does not exist
+     */
+    boolean download( String bucket, String relativePath, Path destination );
+
+    /**
+     * Copies without moving the content through this process if the storage allows it.
+     */
+    void copy( String srcBucket, String srcRelativePath, String destBucket, String destRelativePath );
+
+    boolean delete( String bucket, String relativePath );
+}
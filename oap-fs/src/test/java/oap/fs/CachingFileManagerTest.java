@@ -0,0 +1,164 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.fs;
+
+import oap.io.Files;
+import oap.testng.Fixtures;
+import oap.testng.TestDirectoryFixture;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static oap.testng.TestDirectoryFixture.testPath;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CachingFileManagerTest extends Fixtures {
+    {
+        fixture( TestDirectoryFixture.FIXTURE );
+    }
+
+    @Test
+    public void readThrough() throws IOException {
+        var remote = new CountingFileManager( Map.of( "b", testPath( "remote" ) ) );
+        var cache = new CachingFileManager( remote, testPath( "cache" ), 1024, 0, CachingFileManager.Policy.LRU );
+
+        upload( remote, "a.txt", "aaa" );
+
+        assertThat( read( cache, "a.txt" ) ).isEqualTo( "aaa" );
+        assertThat( read( cache, "a.txt" ) ).isEqualTo( "aaa" );
+        assertThat( remote.downloads.get() ).isEqualTo( 1 );
+        assertThat( cache.size() ).isEqualTo( 3 );
+
+        cache.upload( "b", "a.txt", new ByteArrayInputStream( "bbbb".getBytes() ), 4 );
+        assertThat( read( cache, "a.txt" ) ).isEqualTo( "bbbb" );
+        assertThat( remote.downloads.get() ).isEqualTo( 2 );
+
+        assertThat( cache.openStream( "b", "unknown.txt" ) ).isEmpty();
+    }
+
+    @Test
+    public void evict() throws IOException {
+        var remote = new CountingFileManager( Map.of( "b", testPath( "remote" ) ) );
+        var cache = new CachingFileManager( remote, testPath( "cache" ), 5, Long.MAX_VALUE, CachingFileManager.Policy.LRU );
+
+        upload( remote, "a.txt", "aaa" );
+        upload( remote, "b.txt", "bbb" );
+
+        read( cache, "a.txt" );
+        read( cache, "b.txt" );
+        assertThat( cache.size() ).isEqualTo( 3 );
+
+        read( cache, "b.txt" );
+        read( cache, "a.txt" );
+        assertThat( remote.downloads.get() ).isEqualTo( 3 );
+    }
+
+    @Test
+    public void concurrentMisses() throws Exception {
+        var remote = new CountingFileManager( Map.of( "b", testPath( "remote" ) ) );
+        var cache = new CachingFileManager( remote, testPath( "cache" ), 1024, Long.MAX_VALUE, CachingFileManager.Policy.LFU );
+        upload( remote, "a.txt", "aaa" );
+
+        var pool = Executors.newFixedThreadPool( 8 );
+        try {
+            var tasks = new ArrayList<Callable<String>>();
+            for( var i = 0; i < 32; i++ ) tasks.add( () -> read( cache, "a.txt" ) );
+            for( var f : pool.invokeAll( tasks ) ) assertThat( f.get() ).isEqualTo( "aaa" );
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat( remote.downloads.get() ).isEqualTo( 1 );
+    }
+
+    @Test
+    public void foreignFilesSurviveStart() throws IOException {
+        var remote = new CountingFileManager( Map.of( "b", testPath( "remote" ) ) );
+        var foreign = testPath( "cache/foreign.txt" );
+        var leftover = testPath( "cache/0123456789abcdef0123456789abcdef.unsafe" );
+        Files.writeString( foreign, "foreign" );
+        Files.writeString( leftover, "leftover" );
+
+        var cache = new CachingFileManager( remote, testPath( "cache" ), 1024, 0, CachingFileManager.Policy.LRU );
+        upload( remote, "a.txt", "aaa" );
+        assertThat( read( cache, "a.txt" ) ).isEqualTo( "aaa" );
+
+        assertThat( foreign ).exists().hasContent( "foreign" );
+        assertThat( leftover ).doesNotExist();
+    }
+
+    @Test
+    public void invalidateDuringLoad() throws IOException {
+        var remote = new CountingFileManager( Map.of( "b", testPath( "remote" ) ) );
+        var cache = new CachingFileManager( remote, testPath( "cache" ), 1024, Long.MAX_VALUE, CachingFileManager.Policy.LRU );
+        upload( remote, "a.txt", "aaa" );
+
+        remote.onDownload = () -> {
+            remote.onDownload = () -> {};
+            upload( remote, "a.txt", "bbbb" );
+            cache.invalidate( "b", "a.txt" );
+        };
+
+        assertThat( read( cache, "a.txt" ) ).isEqualTo( "bbbb" );
+        assertThat( read( cache, "a.txt" ) ).isEqualTo( "bbbb" );
+        assertThat( remote.downloads.get() ).isEqualTo( 2 );
+        assertThat( cache.size() ).isEqualTo( 4 );
+    }
+
+    private static void upload( StreamingFileManager fileManager, String name, String content ) {
+        fileManager.upload( "b", name, new ByteArrayInputStream( content.getBytes() ), content.length() );
+    }
+
+    private static String read( StreamingFileManager fileManager, String name ) throws IOException {
+        try( InputStream in = fileManager.openStream( "b", name ).orElseThrow() ) {
+            return new String( in.readAllBytes() );
+        }
+    }
+
+    private static class CountingFileManager extends LocalFileManager {
+        final AtomicInteger downloads = new AtomicInteger();
+        volatile Runnable onDownload = () -> {};
+
+        CountingFileManager( Map<String, Path> buckets ) {
+            super( buckets );
+        }
+
+        @Override
+        public boolean download( String bucket, String relativePath, Path destination ) {
+            downloads.incrementAndGet();
+            var downloaded = super.download( bucket, relativePath, destination );
+            onDownload.run();
+            return downloaded;
+        }
+    }
+}
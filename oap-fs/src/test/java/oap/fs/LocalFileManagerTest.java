@@ -30,6 +30,7 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Map;
@@ -58,6 +59,31 @@ public class LocalFileManagerTest extends Fixtures {
         assertThat( new String( read.get() ) ).isEqualTo( "test" );
     }
 
+    @Test
+    public void streaming() throws Exception {
+        var fileManager = new LocalFileManager( Map.of( "a", tmp.resolve( "a" ), "b", tmp.resolve( "b" ) ) );
+        var content = "0123456789".getBytes();
+
+        fileManager.upload( "a", "dir/file.bin", new ByteArrayInputStream( content ), content.length );
+
+        assertThat( fileManager.info( "a", "dir/file.bin" ) ).get().extracting( i -> i.size ).isEqualTo( 10L );
+        assertThat( fileManager.info( "a", "unknown.bin" ) ).isEmpty();
+        try( var in = fileManager.openStream( "a", "dir/file.bin", 2, 3 ).orElseThrow() ) {
+            assertThat( in.readAllBytes() ).isEqualTo( "234".getBytes() );
+        }
+        try( var in = fileManager.openStream( "a", "dir/file.bin", 8, 10 ).orElseThrow() ) {
+            assertThat( in.readAllBytes() ).isEqualTo( "89".getBytes() );
+        }
+
+        fileManager.copy( "a", "dir/file.bin", "b", "copy.bin" );
+        assertThat( fileManager.download( "b", "copy.bin", tmp.resolve( "downloaded.bin" ) ) ).isTrue();
+        assertThat( Files.readAllBytes( tmp.resolve( "downloaded.bin" ) ) ).isEqualTo( content );
+        assertThat( fileManager.download( "b", "unknown.bin", tmp.resolve( "unknown.bin" ) ) ).isFalse();
+
+        assertThat( fileManager.delete( "b", "copy.bin" ) ).isTrue();
+        assertThat( fileManager.openStream( "b", "copy.bin" ) ).isEmpty();
+    }
+
     @AfterClass
     public void cleanUp() throws Exception {
         Files.deleteIfExists( tmp );
@@ -27,6 +27,7 @@ package oap.fs;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.AnonymousAWSCredentials;
 import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import io.findify.s3mock.S3Mock;
 import oap.io.Files;
@@ -38,11 +39,13 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.Base64;
 import java.util.Map;
 
 import static oap.testng.TestDirectoryFixture.testPath;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class S3FileManagerTest extends Fixtures {
     //    private static final Path TEST_FOLDER = Path.of( "test/testDir" );
@@ -50,6 +53,7 @@ public class S3FileManagerTest extends Fixtures {
 
     private S3Mock api;
     private S3FileManager fileManager;
+    private AmazonS3 client;
     //    private Path tmp = TestDirectoryFixture.testPath( "s3" );
 
     private final EnvFixture envFixture;
@@ -66,7 +70,7 @@ public class S3FileManagerTest extends Fixtures {
         api = new S3Mock.Builder().withPort( port ).withInMemoryBackend().build();
         api.start();
         var endpoint = new AwsClientBuilder.EndpointConfiguration( "http://localhost:" + port, "us-west-2" );
-        var client = AmazonS3ClientBuilder
+        client = AmazonS3ClientBuilder
             .standard()
             .withPathStyleAccessEnabled( true )
             .withEndpointConfiguration( endpoint )
@@ -94,4 +98,42 @@ public class S3FileManagerTest extends Fixtures {
         assertThat( resultFile.exists() ).isTrue();
         assertThat( Files.readString( resultFile.toPath() ) ).isEqualTo( "test" );
     }
+
+    @Test
+    public void streamingCopy() throws IOException {
+        var content = "0123456789".getBytes();
+        fileManager.upload( TEST_BUCKET, "src.bin", new ByteArrayInputStream( content ), content.length );
+        fileManager.copy( TEST_BUCKET, "src.bin", TEST_BUCKET, "dest.bin" );
+
+        assertThat( fileManager.info( TEST_BUCKET, "dest.bin" ) ).get().extracting( i -> i.size ).isEqualTo( 10L );
+        try( var in = fileManager.openStream( TEST_BUCKET, "dest.bin", 2, 3 ).orElseThrow() ) {
+            assertThat( in.readAllBytes() ).isEqualTo( "234".getBytes() );
+        }
+        try( var in = fileManager.openStream( TEST_BUCKET, "dest.bin", 4, 0 ).orElseThrow() ) {
+            assertThat( in.readAllBytes() ).isEmpty();
+        }
+        assertThat( fileManager.openStream( TEST_BUCKET, "unknown.bin" ) ).isEmpty();
+        assertThat( fileManager.openStream( TEST_BUCKET, "unknown.bin", 0, 0 ) ).isEmpty();
+    }
+
+    @Test
+    public void unknownLengthUpload() throws IOException {
+        fileManager.upload( TEST_BUCKET, "unknown-length.bin", new ByteArrayInputStream( "0123456789".getBytes() ), -1 );
+
+        assertThat( fileManager.info( TEST_BUCKET, "unknown-length.bin" ) ).get().extracting( i -> i.size ).isEqualTo( 10L );
+        try( var in = fileManager.openStream( TEST_BUCKET, "unknown-length.bin" ).orElseThrow() ) {
+            assertThat( in.readAllBytes() ).isEqualTo( "0123456789".getBytes() );
+        }
+    }
+
+    @Test
+    public void copyFromTo() {
+        client.putObject( TEST_BUCKET, "copy/src.txt", "content" );
+
+        fileManager.copyFromTo( "s3://" + TEST_BUCKET + "/copy/src.txt", "s3://" + TEST_BUCKET + "/copy/dest.txt" );
+
+        assertThat( client.getObjectAsString( TEST_BUCKET, "copy/dest.txt" ) ).isEqualTo( "content" );
+        assertThatThrownBy( () -> fileManager.copyFromTo( "/copy/src.txt", "s3://" + TEST_BUCKET + "/copy/dest.txt" ) )
+            .isInstanceOf( IllegalArgumentException.class );
+    }
 }
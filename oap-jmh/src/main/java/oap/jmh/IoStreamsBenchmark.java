@@ -0,0 +1,101 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.jmh;
+
+import oap.io.IoStreams;
+import oap.io.IoStreams.Encoding;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes and reads 16MB of tab separated text through every codec.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 2, time = 5 )
+@Measurement( iterations = 5, time = 5 )
+@Fork( 1 )
+public class IoStreamsBenchmark {
+    @Param( { "PLAIN", "GZIP", "ZSTD", "LZ4", "LZ4_BLOCK" } )
+    public Encoding encoding;
+
+    private Path tmp;
+    private Path file;
+    private byte[] data;
+
+    @Setup
+    public void setup() throws IOException {
+        tmp = Files.createTempDirectory( "oap-jmh-io" );
+        file = tmp.resolve( "data" + encoding.extension );
+
+        var random = new Random( 1 );
+        var sb = new StringBuilder();
+        while( sb.length() < 16 * 1024 * 1024 )
+            sb.append( random.nextInt( 1000 ) ).append( '\t' ).append( "value" ).append( random.nextInt( 100 ) ).append( '\n' );
+        data = sb.toString().getBytes();
+
+        write();
+    }
+
+    @TearDown
+    public void tearDown() {
+        oap.io.Files.delete( tmp );
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        try( var out = IoStreams.out( file, encoding ) ) {
+            out.write( data );
+        }
+    }
+
+    @Benchmark
+    public long read() throws IOException {
+        var buffer = new byte[64 * 1024];
+        var total = 0L;
+        try( var in = IoStreams.in( file, encoding ) ) {
+            int n;
+            while( ( n = in.read( buffer ) ) > 0 ) total += n;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.jmh;
+
+import oap.message.MessageSender;
+import oap.time.JodaTimeService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enqueue cost of {@link MessageSender#send(byte, byte[], int, int)}: the sender is not started,
+ * so messages stay in memory. Payloads repeat, so the queue size is bounded.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class MessageSenderBenchmark {
+    private static final int PAYLOADS = 1024;
+
+    private Path tmp;
+    private MessageSender sender;
+    private byte[][] payloads;
+    private int index;
+
+    @Setup
+    public void setup() throws IOException {
+        tmp = Files.createTempDirectory( "oap-jmh-message" );
+        sender = new MessageSender( JodaTimeService.INSTANCE, "localhost", 0, tmp );
+
+        var random = new Random( 1 );
+        payloads = new byte[PAYLOADS][];
+        for( var i = 0; i < PAYLOADS; i++ ) {
+            payloads[i] = new byte[512];
+            random.nextBytes( payloads[i] );
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        oap.io.Files.delete( tmp );
+    }
+
+    @Benchmark
+    public MessageSender send() {
+        if( ++index == PAYLOADS ) index = 0;
+        var payload = payloads[index];
+        return sender.send( ( byte ) 1, payload, 0, payload.length );
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.jmh;
+
+import com.google.common.collect.ListMultimap;
+import oap.http.Url;
+import oap.util.Strings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class StringsBenchmark {
+    private final String url = "https://www.sub.example.com/path/to/page?utm_source=test&utm_medium=cpc&id=12345&q=hello%20world";
+    private final String query = "utm_source=test&utm_medium=cpc&id=12345&q=hello%20world&empty=";
+    private final String text = "line1\tvalue\r\nline2\tvalue";
+
+    @Benchmark
+    public ListMultimap<String, String> parseQuery() {
+        return Url.parseQuery( query );
+    }
+
+    @Benchmark
+    public String domainOf() {
+        return Url.domainOf( url );
+    }
+
+    @Benchmark
+    public List<String> subdomains() {
+        return Url.subdomains( "www.sub.example.com" );
+    }
+
+    @Benchmark
+    public String remove() {
+        return Strings.remove( text, '\t', '\r', '\n' );
+    }
+
+    @Benchmark
+    public String removeControl() {
+        return Strings.removeControl( text );
+    }
+
+    @Benchmark
+    public String replace() {
+        return Strings.replace( text, "value", "v" );
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.jmh;
+
+import oap.reflect.TypeRef;
+import oap.template.Template;
+import oap.template.TemplateAccumulatorString;
+import oap.template.TemplateEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static oap.template.TemplateAccumulators.STRING;
+
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class TemplateBenchmark {
+    private Path tmp;
+    private Template<Bean, String, TemplateAccumulatorString> template;
+    private Bean bean;
+
+    @Setup
+    public void setup() throws IOException {
+        tmp = Files.createTempDirectory( "oap-jmh-template" );
+        template = new TemplateEngine( tmp ).getTemplate( "jmh", new TypeRef<Bean>() {},
+            "id=${id}\tcount=${count}\tchild=${child.name}", STRING, null );
+        bean = new Bean();
+        bean.id = "id1";
+        bean.count = 10;
+        bean.child = new Child();
+        bean.child.name = "child";
+    }
+
+    @TearDown
+    public void tearDown() {
+        oap.io.Files.delete( tmp );
+    }
+
+    @Benchmark
+    public String render() {
+        return template.render( bean );
+    }
+
+    public static class Bean {
+        public String id;
+        public int count;
+        public Child child;
+    }
+
+    public static class Child {
+        public String name;
+    }
+}
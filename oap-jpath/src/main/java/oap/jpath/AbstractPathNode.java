@@ -37,5 +37,14 @@ public abstract class AbstractPathNode {
         this.name = name;
     }
 
-    public abstract Object evaluate( Object v, Reflection reflect );
+    public abstract Object evaluate( Object v ) throws PathNotFound;
+
+    /**
+     * @deprecated the member is resolved through a cache keyed by the receiver class, {@code reflect} is ignored.
+     * Use {@link #evaluate(Object)}.
+     */
+    @Deprecated
+    public Object evaluate( Object v, Reflection reflect ) {
+        return evaluate( v );
+    }
 }
@@ -0,0 +1,64 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.jpath;
+
+import javax.annotation.Nullable;
+import java.util.function.Function;
+
+/**
+ * Polymorphic inline cache: the member resolved for the last seen receiver class is checked first,
+ * members of other classes are kept in a {@link ClassValue} and resolved once per class.
+ */
+final class InlineCache<M> {
+    private final ClassValue<Entry<M>> members;
+    private volatile Entry<M> last;
+
+    InlineCache( Function<Class<?>, M> resolve ) {
+        this.members = new ClassValue<>() {
+            @Override
+            protected Entry<M> computeValue( Class<?> type ) {
+                return new Entry<>( type, resolve.apply( type ) );
+            }
+        };
+    }
+
+    @Nullable
+    M get( Class<?> owner ) {
+        var e = last;
+        if( e == null || e.owner != owner ) last = e = members.get( owner );
+        return e.member;
+    }
+
+    private static final class Entry<M> {
+        final Class<?> owner;
+        @Nullable
+        final M member;
+
+        Entry( Class<?> owner, @Nullable M member ) {
+            this.owner = owner;
+            this.member = member;
+        }
+    }
+}
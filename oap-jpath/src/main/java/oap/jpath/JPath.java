@@ -24,13 +24,22 @@
 
 package oap.jpath;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.SneakyThrows;
 import org.antlr.v4.runtime.ANTLRInputStream;
 import org.antlr.v4.runtime.BufferedTokenStream;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 public class JPath {
+    private static final Cache<String, Expression> expressions = CacheBuilder.newBuilder()
+        .maximumSize( 10_000 )
+        .build();
+
     public final HashMap<String, Object> variables = new HashMap<>();
 
 
@@ -42,9 +51,27 @@ public class JPath {
         new JPath( variables ).evaluate( expression, output );
     }
 
-    public void evaluate( String expression, JPathOutput output ) {
+    /**
+     * @return parsed expression, shared between threads. Up to 10000 recently used expressions are cached.
+     */
+    @SneakyThrows
+    public static Expression compile( String expression ) {
+        try {
+            return expressions.get( expression, () -> parse( expression ) );
+        } catch( UncheckedExecutionException | ExecutionException e ) {
+            throw e.getCause();
+        }
+    }
+
+    private static Expression parse( String expression ) {
         var jPathParser = new JPathParser( new BufferedTokenStream( new JPathLexer( new ANTLRInputStream( expression ) ) ) );
 
-        jPathParser.expr().expression.evaluate( variables, output );
+        var parsed = jPathParser.expr().expression;
+        parsed.path.freeze();
+        return parsed;
+    }
+
+    public void evaluate( String expression, JPathOutput output ) {
+        compile( expression ).evaluate( variables, output );
     }
 }
@@ -26,7 +26,6 @@ package oap.jpath;
 
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
-import oap.reflect.Reflect;
 
 @ToString
 @Slf4j
@@ -39,8 +38,7 @@ public class ObjectPointer<T extends Object> implements Pointer {
 
     @Override
     public Pointer resolve( AbstractPathNode n ) {
-        var reflect = Reflect.reflect( v.getClass() );
-        return Pointer.get( n.evaluate( v, reflect ) );
+        return Pointer.get( n.evaluate( v ) );
     }
 
     @Override
@@ -27,21 +27,42 @@ package oap.jpath;
 import lombok.ToString;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Immutable once parsed: the nodes are frozen before the expression is shared through {@link JPath#compile(String)}.
+ */
 @ToString
 public class PathExpression {
-    public final ArrayList<AbstractPathNode> list = new ArrayList<>();
+    private final ArrayList<AbstractPathNode> nodes = new ArrayList<>();
+    /**
+     * @deprecated read-only since expressions are shared, use {@link #nodes()}
+     */
+    @Deprecated
+    @ToString.Exclude
+    public final List<AbstractPathNode> list = Collections.unmodifiableList( nodes );
+    private boolean frozen;
+
+    void add( AbstractPathNode path ) {
+        if( frozen ) throw new IllegalStateException( "compiled expression is immutable" );
+        nodes.add( path );
+    }
+
+    void freeze() {
+        frozen = true;
+    }
 
-    public void add( AbstractPathNode path ) {
-        list.add( path );
+    public List<AbstractPathNode> nodes() {
+        return list;
     }
 
     @SuppressWarnings( "unchecked" )
     public void evaluate( Map<String, Object> variables, JPathOutput output ) {
         Pointer pointer = new MapPointer( ( Map<Object, Object> ) ( Object ) variables );
 
-        for( var n : list ) pointer = pointer.resolve( n );
+        for( var n : nodes ) pointer = pointer.resolve( n );
 
         output.write( pointer );
     }
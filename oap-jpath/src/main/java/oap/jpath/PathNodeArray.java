@@ -26,15 +26,17 @@ package oap.jpath;
 
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import oap.reflect.Reflect;
 import oap.reflect.Reflection;
 
 import java.lang.reflect.Array;
 import java.util.List;
 
-@ToString( callSuper = true )
+@ToString( callSuper = true, exclude = "cache" )
 @Slf4j
 public class PathNodeArray extends AbstractPathNode {
     private final int index;
+    private final InlineCache<Reflection.Field> cache = new InlineCache<>( type -> Reflect.reflect( type ).field( name ).orElse( null ) );
 
     protected PathNodeArray( String name, int index ) {
         super( PathType.ARRAY, name );
@@ -42,9 +44,9 @@ public class PathNodeArray extends AbstractPathNode {
     }
 
     @Override
-    public Object evaluate( Object v, Reflection reflect ) throws PathNotFound {
+    public Object evaluate( Object v ) throws PathNotFound {
         log.trace( "array -> {}[{}]", name, index );
-        var field = reflect.field( name ).orElse( null );
+        var field = cache.get( v.getClass() );
         if( field == null ) throw new PathNotFound();
 
         if( field.isArray() ) {
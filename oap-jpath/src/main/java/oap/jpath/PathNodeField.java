@@ -26,19 +26,22 @@ package oap.jpath;
 
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import oap.reflect.Reflect;
 import oap.reflect.Reflection;
 
-@ToString( callSuper = true )
+@ToString( callSuper = true, exclude = "cache" )
 @Slf4j
 public class PathNodeField extends AbstractPathNode {
+    private final InlineCache<Reflection.Field> cache = new InlineCache<>( type -> Reflect.reflect( type ).field( name ).orElse( null ) );
+
     protected PathNodeField( String name ) {
         super( PathType.FIELD, name );
     }
 
     @Override
-    public Object evaluate( Object v, Reflection reflect ) throws PathNotFound {
+    public Object evaluate( Object v ) throws PathNotFound {
         log.trace( "field -> {}", name );
-        var field = reflect.field( name ).orElse( null );
+        var field = cache.get( v.getClass() );
         if( field == null ) throw new PathNotFound();
         return field.get( v );
     }
@@ -26,35 +26,54 @@ package oap.jpath;
 
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import oap.reflect.Reflect;
 import oap.reflect.Reflection;
 
+import javax.annotation.Nullable;
 import java.util.List;
 
-@ToString( callSuper = true )
+@ToString( callSuper = true, exclude = "cache" )
 @Slf4j
 public class PathNodeMethod extends AbstractPathNode {
     private final List<Object> arguments;
+    private final InlineCache<Call> cache = new InlineCache<>( type -> resolve( Reflect.reflect( type ) ) );
 
     protected PathNodeMethod( String name, List<Object> arguments ) {
         super( PathType.METHOD, name );
-        this.arguments = arguments;
+        this.arguments = List.copyOf( arguments );
     }
 
     @Override
-    public Object evaluate( Object v, Reflection reflect ) {
+    public Object evaluate( Object v ) {
         log.trace( "method -> {}", name );
-        var method = reflect.method( m -> m.name().equals( name ) && equals( m.parameters, arguments ) ).orElse( null );
-        if( method == null ) throw new PathNotFound();
-        return method.invoke( v, arguments.toArray( new Object[0] ) );
+        var call = cache.get( v.getClass() );
+        if( call == null ) throw new PathNotFound();
+        return call.method.invoke( v, call.arguments );
     }
 
-    private boolean equals( List<Reflection.Parameter> parameters, List<Object> arguments ) {
-        if( parameters.size() != arguments.size() ) return false;
+    @Nullable
+    private Call resolve( Reflection reflect ) {
+        for( var method : reflect.methods ) {
+            if( !method.name().equals( name ) ) continue;
+            var args = coerce( method.parameters );
+            if( args != null ) return new Call( method, args );
+        }
+        return null;
+    }
 
+    /**
+     * @return arguments converted to the parameter types or {@code null} if the parameters do not match
+     */
+    @Nullable
+    private Object[] coerce( List<Reflection.Parameter> parameters ) {
+        if( parameters.size() != arguments.size() ) return null;
+
+        var result = new Object[arguments.size()];
         for( var i = 0; i < parameters.size(); i++ ) {
             var arg = arguments.get( i );
             var parameter = parameters.get( i );
 
+            result[i] = arg;
             if( arg == null ) continue;
 
             var parameterType = parameter.underlying.getType();
@@ -62,27 +81,37 @@ public class PathNodeMethod extends AbstractPathNode {
 
             if( Number.class.isAssignableFrom( argType ) ) {
                 if( int.class.equals( parameterType ) || Integer.class.equals( parameterType ) ) {
-                    arguments.set( i, ( ( Number ) arg ).intValue() );
+                    result[i] = ( ( Number ) arg ).intValue();
                 } else if( long.class.equals( parameterType ) || Long.class.equals( parameterType ) ) {
-                    arguments.set( i, ( ( Number ) arg ).longValue() );
+                    result[i] = ( ( Number ) arg ).longValue();
                 } else if( float.class.equals( parameterType ) || Float.class.equals( parameterType ) ) {
-                    arguments.set( i, ( ( Number ) arg ).floatValue() );
+                    result[i] = ( ( Number ) arg ).floatValue();
                 } else if( short.class.equals( parameterType ) || Short.class.equals( parameterType ) ) {
-                    arguments.set( i, ( ( Number ) arg ).shortValue() );
+                    result[i] = ( ( Number ) arg ).shortValue();
                 } else if( byte.class.equals( parameterType ) || Byte.class.equals( parameterType ) ) {
-                    arguments.set( i, ( ( Number ) arg ).byteValue() );
+                    result[i] = ( ( Number ) arg ).byteValue();
                 } else if( double.class.equals( parameterType ) || Double.class.equals( parameterType ) ) {
-                    arguments.set( i, ( ( Number ) arg ).doubleValue() );
+                    result[i] = ( ( Number ) arg ).doubleValue();
                 } else {
-                    return false;
+                    return null;
                 }
 
                 continue;
             }
 
-            if( !parameterType.equals( argType ) ) return false;
+            if( !parameterType.equals( argType ) ) return null;
         }
 
-        return true;
+        return result;
+    }
+
+    private static final class Call {
+        final Reflection.Method method;
+        final Object[] arguments;
+
+        Call( Reflection.Method method, Object[] arguments ) {
+            this.method = method;
+            this.arguments = arguments;
+        }
     }
 }
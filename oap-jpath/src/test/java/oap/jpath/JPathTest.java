@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class JPathTest {
     @Test
@@ -116,6 +117,33 @@ public class JPathTest {
         assertThat( output.toString() ).isEqualTo( "str4" );
     }
 
+    @Test
+    public void testCompile() {
+        var expression = JPath.compile( "${test.getStringInt(\"str\", 2)}" );
+        assertThat( JPath.compile( "${test.getStringInt(\"str\", 2)}" ) ).isSameAs( expression );
+        assertThat( expression.path.nodes() ).hasSize( 2 );
+        assertThatThrownBy( () -> expression.path.nodes().clear() ).isInstanceOf( UnsupportedOperationException.class );
+
+        var output = new StringBuilderJPathOutput();
+        expression.evaluate( Map.of( "test", new TestBean( "val1", null, null ) ), output );
+        expression.evaluate( Map.of( "test", new TestBean( "val2", null, null ) ), output );
+        assertThat( output.toString() ).isEqualTo( "str2str2" );
+
+        var field = JPath.compile( "${test.val}" );
+        output.reset();
+        field.evaluate( Map.of( "test", new TestBean( "val1", null, null ) ), output );
+        field.evaluate( Map.of( "test", new TestBeanExt( "val2" ) ), output );
+        field.evaluate( Map.of( "test", Map.of( "val", "val3" ) ), output );
+        assertThat( output.toString() ).isEqualTo( "val1val2val3" );
+
+        output.reset();
+        for( var i = 0; i < 3; i++ ) {
+            field.evaluate( Map.of( "test", new TestBean( "a", null, null ) ), output );
+            field.evaluate( Map.of( "test", new TestBeanExt( "b" ) ), output );
+        }
+        assertThat( output.toString() ).isEqualTo( "ababab" );
+    }
+
     @ToString
     public static class TestBean {
         public String val;
@@ -158,4 +186,10 @@ public class JPathTest {
             return str + l;
         }
     }
+
+    public static class TestBeanExt extends TestBean {
+        public TestBeanExt( String val ) {
+            super( val, null, null );
+        }
+    }
 }
@@ -25,32 +25,64 @@
 package oap;
 
 import lombok.extern.slf4j.Slf4j;
+import org.joda.time.DateTimeUtils;
 import org.slf4j.Logger;
 import org.slf4j.event.Level;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
+/**
+ * Logs a message at most once per {@code timeBetweenLogs} per call site, the next message carries the number of suppressed ones.
+ * Hot paths should pass an explicit key, otherwise the caller frame is looked up with a {@link StackWalker},
+ * and a message supplier, so a suppressed message is never built.
+ */
 @Slf4j
 public class LogConsolidated {
     private static final ConcurrentHashMap<String, TimeAndCount> lastLoggedTime = new ConcurrentHashMap<>();
+    private static final StackWalker walker = StackWalker.getInstance();
 
     public static void log( Logger logger, Level level, long timeBetweenLogs, String message, Throwable t ) {
-        if( isEnabledFor( logger, level ) ) {
-            String uniqueIdentifier = getFileAndLine();
-            var lastTimeAndCount = lastLoggedTime.get( uniqueIdentifier );
-            if( lastTimeAndCount != null ) {
-                synchronized( lastTimeAndCount ) {
-                    long now = System.currentTimeMillis();
-                    if( now - lastTimeAndCount.time < timeBetweenLogs ) {
-                        lastTimeAndCount.count++;
-                        return;
-                    } else log( logger, level, "|x" + lastTimeAndCount.count + "| " + message, t );
-                }
-            } else {
-                log( logger, level, message, t );
-            }
-            lastLoggedTime.put( uniqueIdentifier, new TimeAndCount() );
+        if( isEnabledFor( logger, level ) ) log( logger, level, getFileAndLine(), timeBetweenLogs, message, t );
+    }
+
+    /**
+     * @param key call site, e.g. a constant
+     */
+    public static void log( Logger logger, Level level, String key, long timeBetweenLogs, String message, Throwable t ) {
+        if( !isEnabledFor( logger, level ) ) return;
+
+        var suppressed = acquire( key, timeBetweenLogs );
+        if( suppressed >= 0 ) log( logger, level, suppressed > 0 ? "|x" + suppressed + "| " + message : message, t );
+    }
+
+    /**
+     * @param message built only if the message is logged
+     */
+    public static void log( Logger logger, Level level, String key, long timeBetweenLogs, Supplier<String> message, Throwable t ) {
+        if( !isEnabledFor( logger, level ) ) return;
+
+        var suppressed = acquire( key, timeBetweenLogs );
+        if( suppressed >= 0 ) log( logger, level, suppressed > 0 ? "|x" + suppressed + "| " + message.get() : message.get(), t );
+    }
+
+    /**
+     * @return number of messages suppressed since the last logged one or {@code -1} if this one is suppressed
+     */
+    private static int acquire( String key, long timeBetweenLogs ) {
+        var timeAndCount = lastLoggedTime.get( key );
+        if( timeAndCount == null ) timeAndCount = lastLoggedTime.computeIfAbsent( key, k -> new TimeAndCount() );
+
+        long now = DateTimeUtils.currentTimeMillis();
+        long last = timeAndCount.time.get();
+        if( now - last < timeBetweenLogs || !timeAndCount.time.compareAndSet( last, now ) ) {
+            timeAndCount.count.incrementAndGet();
+            return -1;
         }
+
+        return timeAndCount.count.getAndSet( 0 );
     }
 
     private static void log( Logger logger, Level level, String message, Throwable t ) {
@@ -74,17 +106,11 @@ public class LogConsolidated {
     }
 
     private static String getFileAndLine() {
-        var stackTrace = Thread.currentThread().getStackTrace();
-        var enteredLogConsolidated = false;
-        for( var ste : stackTrace ) {
-            if( ste.getClassName().equals( LogConsolidated.class.getName() ) ) {
-                enteredLogConsolidated = true;
-            } else if( enteredLogConsolidated ) {
-                // We have now file/line before entering LogConsolidated.
-                return ste.getFileName() + ":" + ste.getLineNumber();
-            }
-        }
-        return "?";
+        return walker.walk( frames -> frames
+            .dropWhile( f -> f.getClassName().equals( LogConsolidated.class.getName() ) )
+            .findFirst()
+            .map( f -> f.getFileName() + ":" + f.getLineNumber() )
+            .orElse( "?" ) );
     }
 
     private static boolean isEnabledFor( Logger logger, Level level ) {
@@ -98,12 +124,7 @@ public class LogConsolidated {
     }
 
     private static class TimeAndCount {
-        long time;
-        int count;
-
-        TimeAndCount() {
-            this.time = System.currentTimeMillis();
-            this.count = 0;
-        }
+        final AtomicLong time = new AtomicLong( Long.MIN_VALUE / 2 );
+        final AtomicInteger count = new AtomicInteger();
     }
 }
@@ -24,42 +24,94 @@
 
 package oap.alert;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import lombok.extern.slf4j.Slf4j;
+import oap.LogConsolidated;
+import oap.util.Dates;
+import org.slf4j.event.Level;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 
+/**
+ * Queues messages for one destination and delivers them from {@link #run()} in deduplicated batches,
+ * so every destination retries in its own thread and a failing one does not hold up the others.
+ * The queue is bounded, on overflow the {@link OverflowPolicy} decides which message is dropped.
+ * Messages, which are still not delivered when the batch retries run out, are dropped and counted in {@code oap_alert_undelivered}.
+ */
 @Slf4j
 public class BackgroundMessageStream<Message> implements MessageStream<Message>, Runnable {
+    private static final Counter droppedCounter = Metrics.counter( "oap_alert_dropped" );
+    private static final Counter undeliveredCounter = Metrics.counter( "oap_alert_undelivered" );
 
     private final MessageTransport<Message> transport;
     private final GuaranteedDeliveryTransport guaranteedDeliveryTransport;
-    private final BlockingQueue<Message> messages = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Message> messages;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
 
     public BackgroundMessageStream( MessageTransport<Message> transport,
                                     GuaranteedDeliveryTransport guaranteedDeliveryTransport ) {
+        this( transport, guaranteedDeliveryTransport, 10000, 100, OverflowPolicy.DROP_OLDEST );
+    }
+
+    public BackgroundMessageStream( MessageTransport<Message> transport,
+                                    GuaranteedDeliveryTransport guaranteedDeliveryTransport,
+                                    int capacity, int batchSize, OverflowPolicy overflowPolicy ) {
         this.transport = transport;
         this.guaranteedDeliveryTransport = guaranteedDeliveryTransport;
+        this.messages = new ArrayBlockingQueue<>( capacity );
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
     }
 
     @Override
     public void send( Message p ) {
-        messages.add( p );
+        if( messages.offer( p ) ) return;
+
+        if( overflowPolicy == OverflowPolicy.DROP_OLDEST ) {
+            while( !messages.offer( p ) )
+                if( messages.poll() != null ) dropped();
+        } else dropped();
+    }
+
+    private void dropped() {
+        droppedCounter.increment();
+        LogConsolidated.log( log, Level.WARN, "BackgroundMessageStream.overflow", Dates.s( 10 ), "message queue is full, dropping", null );
+    }
+
+    public int getQueueSize() {
+        return messages.size();
     }
 
     @Override
     public void run() {
+        var batch = new ArrayList<Message>( batchSize );
         while( true ) {
             try {
-                Message p = messages.take();
-                guaranteedDeliveryTransport.send( p, transport );
+                batch.add( messages.take() );
+                messages.drainTo( batch, batchSize - 1 );
+
+                var undelivered = guaranteedDeliveryTransport.sendBatch( new ArrayList<>( new LinkedHashSet<>( batch ) ), transport );
+                if( !undelivered.isEmpty() ) {
+                    undeliveredCounter.increment( undelivered.size() );
+                    log.error( "{} messages were not delivered, dropping", undelivered.size() );
+                }
             } catch( InterruptedException e ) {
                 log.info( "Interrupted background message stream - exiting" );
                 return;
             } catch( Exception e ) {
                 log.error( "Unexpected exception", e );
+            } finally {
+                batch.clear();
             }
         }
     }
 
+    public enum OverflowPolicy {
+        DROP_OLDEST, DROP_NEWEST
+    }
 }
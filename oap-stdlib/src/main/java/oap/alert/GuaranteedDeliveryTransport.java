@@ -30,15 +30,36 @@ import com.github.rholder.retry.RetryListener;
 import com.github.rholder.retry.Retryer;
 import com.github.rholder.retry.RetryerBuilder;
 import com.github.rholder.retry.StopStrategies;
+import com.github.rholder.retry.StopStrategy;
 import com.github.rholder.retry.WaitStrategies;
 import lombok.extern.slf4j.Slf4j;
+import oap.util.Dates;
 
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Retries a single message until it is delivered or {@code maxAttempts} is reached.
+ * A batch is retried only until {@code maxAttempts} or its time budget is spent, and each retry sends only
+ * the messages, which were not delivered yet, so one permanently failing message cannot block a stream.
+ */
 @Slf4j
 public class GuaranteedDeliveryTransport {
+    private static final RetryListener listener = new RetryListener() {
+        @Override
+        public <V> void onRetry( Attempt<V> attempt ) {
+            String errorMessage = attempt.hasException() ? attempt.getExceptionCause().toString() : "no errors";
+            V result = attempt.hasResult() ? attempt.getResult() : null;
+            log.warn( "attempt: {},  result: {}, error: {}", attempt.getAttemptNumber(), result, errorMessage );
+        }
+    };
 
+    private final long maxWaitTimeSeconds;
+    private final int maxAttempts;
+    private final long batchTimeout;
     private final Retryer<Boolean> retryer;
 
     public GuaranteedDeliveryTransport( long maxWaitTimeSeconds ) {
@@ -46,28 +67,51 @@ public class GuaranteedDeliveryTransport {
     }
 
     public GuaranteedDeliveryTransport( long maxWaitTimeSeconds, int maxAttempts ) {
-        retryer = RetryerBuilder.<Boolean>newBuilder()
-            .withRetryListener( new RetryListener() {
-                @Override
-                public <V> void onRetry( Attempt<V> attempt ) {
-                    String errorMessage = attempt.hasException() ? attempt.getExceptionCause().toString() : "no errors";
-                    V result = attempt.hasResult() ? attempt.getResult() : null;
-                    log.warn( "attempt: {},  result: {}, error: {}", attempt.getAttemptNumber(), result, errorMessage );
-                }
-            } )
+        this( maxWaitTimeSeconds, maxAttempts, Dates.m( 5 ) );
+    }
+
+    /**
+     * @param batchTimeout time budget of one batch, ms
+     */
+    public GuaranteedDeliveryTransport( long maxWaitTimeSeconds, int maxAttempts, long batchTimeout ) {
+        this.maxWaitTimeSeconds = maxWaitTimeSeconds;
+        this.maxAttempts = maxAttempts;
+        this.batchTimeout = batchTimeout;
+        this.retryer = retryer( StopStrategies.stopAfterAttempt( maxAttempts ) );
+    }
+
+    private Retryer<Boolean> retryer( StopStrategy stopStrategy ) {
+        return RetryerBuilder.<Boolean>newBuilder()
+            .withRetryListener( listener )
             .retryIfException( e -> !( e instanceof InterruptedException ) )
+            .retryIfResult( delivered -> !delivered )
             .withWaitStrategy( WaitStrategies.fibonacciWait( maxWaitTimeSeconds, TimeUnit.SECONDS ) )
-            .withStopStrategy( StopStrategies.stopAfterAttempt( maxAttempts ) )
+            .withStopStrategy( stopStrategy )
             .build();
     }
 
-
     public <Message> void send( Message m, MessageTransport<Message> transport ) throws InterruptedException {
+        call( retryer, () -> {
+            transport.send( m );
+            return true;
+        } );
+    }
+
+    /**
+     * @return messages, which were not delivered within {@code maxAttempts} and the batch time budget
+     */
+    public <Message> List<Message> sendBatch( List<Message> messages, MessageTransport<Message> transport ) throws InterruptedException {
+        var pending = new AtomicReference<>( messages );
+        call( retryer( attempt -> attempt.getAttemptNumber() >= maxAttempts || attempt.getDelaySinceFirstAttempt() >= batchTimeout ), () -> {
+            pending.set( transport.sendBatch( pending.get() ) );
+            return pending.get().isEmpty();
+        } );
+        return pending.get();
+    }
+
+    private static void call( Retryer<Boolean> retryer, Callable<Boolean> callable ) throws InterruptedException {
         try {
-            retryer.call( () -> {
-                transport.send( m );
-                return true;
-            } );
+            retryer.call( callable );
         } catch( ExecutionException e ) {
             if( e.getCause() instanceof InterruptedException ) throw ( InterruptedException ) e.getCause();
             log.error( "unexpected execution exception", e );
@@ -27,10 +27,14 @@ package oap.alert;
 import oap.util.Pair;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import static oap.util.Pair.__;
 
-public class MemoryMessenger implements Messenger {
+/**
+ * collects alerts as {@code name/host -> alert}, can also be the transport behind a {@link BackgroundMessageStream}
+ */
+public class MemoryMessenger implements Messenger, MessageTransport<Pair<String, Alert>> {
     public boolean changesOnly;
     public ArrayList<Pair<String, Alert>> alerts = new ArrayList<>();
 
@@ -40,6 +44,17 @@ public class MemoryMessenger implements Messenger {
 
     @Override
     public void send( String host, String name, Alert alert, boolean changed ) {
-        if( !this.changesOnly || changed ) alerts.add( __( name + "/" + host, alert ) );
+        if( !this.changesOnly || changed ) send( __( name + "/" + host, alert ) );
+    }
+
+    @Override
+    public synchronized void send( Pair<String, Alert> alert ) {
+        alerts.add( alert );
+    }
+
+    @Override
+    public synchronized List<Pair<String, Alert>> sendBatch( List<Pair<String, Alert>> alerts ) {
+        this.alerts.addAll( alerts );
+        return List.of();
     }
 }
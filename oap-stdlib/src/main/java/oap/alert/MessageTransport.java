@@ -24,6 +24,30 @@
 
 package oap.alert;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface MessageTransport<M> {
     void send( M message );
+
+    /**
+     * transports that can deliver several messages in one call should override it
+     *
+     * @return messages, which were not delivered, to be retried
+     * @throws RuntimeException the last failure if no message was delivered
+     */
+    default List<M> sendBatch( List<M> messages ) {
+        var failed = new ArrayList<M>();
+        RuntimeException last = null;
+        for( var message : messages )
+            try {
+                send( message );
+            } catch( RuntimeException e ) {
+                failed.add( message );
+                last = e;
+            }
+
+        if( last != null && failed.size() == messages.size() ) throw last;
+        return failed;
+    }
 }
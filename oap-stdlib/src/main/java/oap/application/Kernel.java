@@ -443,12 +443,10 @@ public class Kernel implements Closeable {
 
     @SuppressWarnings( "unchecked" )
     public <T> List<T> ofClass( String moduleName, Class<T> clazz ) {
-        var ret = new ArrayList<T>();
+        var found = services.findAllServicesByClass( moduleName, clazz );
+        var ret = new ArrayList<T>( found.size() );
 
-        this.services.forEach( ( serviceItem, service ) -> {
-            if( ServiceStorage.ALL_MODULES.contains( moduleName ) || serviceItem.getModuleName().equals( moduleName ) )
-                if( clazz.isInstance( service.instance ) ) ret.add( ( T ) service.instance );
-        } );
+        for( var si : found ) ret.add( ( T ) si.instance );
 
         return ret;
     }
@@ -470,16 +468,11 @@ public class Kernel implements Closeable {
     }
 
     public <T> List<ServiceExt<T>> servicesByExt( String ext, Class<T> clazz ) {
-        var ret = new ArrayList<ServiceExt<T>>();
-
-        for( var si : services.values() ) {
-            var extConfiguration = si.service.<T>getExt( ext );
-            if( extConfiguration == null ) continue;
-
-            ret.add( new ServiceExt<T>( si.implementationName, si.module.module, si, extConfiguration ) );
+        var found = services.findAllServicesByExt( ext );
+        var ret = new ArrayList<ServiceExt<T>>( found.size() );
 
-
-        }
+        for( var si : found )
+            ret.add( new ServiceExt<T>( si.implementationName, si.module.module, si, si.service.<T>getExt( ext ) ) );
 
         return ret;
     }
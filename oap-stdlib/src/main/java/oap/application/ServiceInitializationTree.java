@@ -25,12 +25,17 @@
 package oap.application;
 
 import oap.util.Result;
+import org.apache.commons.lang3.ClassUtils;
 
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiConsumer;
@@ -43,13 +48,77 @@ public class ServiceInitializationTree extends AbstractMap<ModuleItem.ServiceIte
     // JPathWS
     public final LinkedHashMap<String, LinkedHashMap<String, ServiceInitialization>> moduleMap = new LinkedHashMap<>();
     private final LinkedHashMap<ModuleItem.ServiceItem, ServiceInitialization> map = new LinkedHashMap<>();
+    /**
+     * indexes are maintained on registration, so that lookups by type or ext do not scan all services.
+     * type index contains every superclass and interface of the service instance.
+     */
+    private final HashMap<Class<?>, List<ServiceInitialization>> typeIndex = new HashMap<>();
+    private final HashMap<String, HashMap<Class<?>, List<ServiceInitialization>>> moduleTypeIndex = new HashMap<>();
+    private final HashMap<String, List<ServiceInitialization>> extIndex = new HashMap<>();
+
+    private static Set<Class<?>> typesOf( Object instance ) {
+        var types = new LinkedHashSet<Class<?>>();
+        if( instance == null ) return types;
+
+        var clazz = instance.getClass();
+        types.add( clazz );
+        types.addAll( ClassUtils.getAllSuperclasses( clazz ) );
+        types.addAll( ClassUtils.getAllInterfaces( clazz ) );
+
+        return types;
+    }
 
     @Override
     public ServiceInitialization put( ModuleItem.ServiceItem key, ServiceInitialization value ) {
         var services = moduleMap.computeIfAbsent( key.getModuleName(), n -> new LinkedHashMap<>() );
         services.put( key.serviceName, value );
         services.putIfAbsent( key.getName(), value );
-        return map.put( key, value );
+        var previous = map.put( key, value );
+        if( previous != null ) reindex();
+        else index( key, value );
+        return previous;
+    }
+
+    /**
+     * a replaced service keeps its position in {@link #map}, the indexes are rebuilt to follow it
+     */
+    private void reindex() {
+        typeIndex.clear();
+        moduleTypeIndex.clear();
+        extIndex.clear();
+        map.forEach( this::index );
+    }
+
+    private void index( ModuleItem.ServiceItem key, ServiceInitialization si ) {
+        var moduleIndex = moduleTypeIndex.computeIfAbsent( key.getModuleName(), m -> new HashMap<>() );
+        for( var type : typesOf( si.instance ) ) {
+            typeIndex.computeIfAbsent( type, t -> new ArrayList<>() ).add( si );
+            moduleIndex.computeIfAbsent( type, t -> new ArrayList<>() ).add( si );
+        }
+
+        if( si.service != null )
+            si.service.ext.forEach( ( ext, value ) -> {
+                if( value != null ) extIndex.computeIfAbsent( ext, e -> new ArrayList<>() ).add( si );
+            } );
+    }
+
+    private void unindex( ModuleItem.ServiceItem key, ServiceInitialization si ) {
+        var moduleIndex = moduleTypeIndex.get( key.getModuleName() );
+        for( var type : typesOf( si.instance ) ) {
+            removeFromIndex( typeIndex, type, si );
+            if( moduleIndex != null ) removeFromIndex( moduleIndex, type, si );
+        }
+
+        if( si.service != null )
+            for( var ext : si.service.ext.keySet() ) removeFromIndex( extIndex, ext, si );
+    }
+
+    private static <K> void removeFromIndex( Map<K, List<ServiceInitialization>> index, K key, ServiceInitialization si ) {
+        var list = index.get( key );
+        if( list == null ) return;
+
+        list.removeIf( s -> s == si );
+        if( list.isEmpty() ) index.remove( key );
     }
 
     @Override
@@ -57,14 +126,20 @@ public class ServiceInitializationTree extends AbstractMap<ModuleItem.ServiceIte
         map.forEach( action );
     }
 
+    /**
+     * read-only, services are removed with {@link #removeService(String, String)} to keep the indexes in sync
+     */
     @Override
     public Collection<ServiceInitialization> values() {
-        return map.values();
+        return Collections.unmodifiableCollection( map.values() );
     }
 
+    /**
+     * read-only, services are removed with {@link #removeService(String, String)} to keep the indexes in sync
+     */
     @Override
     public Set<Entry<ModuleItem.ServiceItem, ServiceInitialization>> entrySet() {
-        return map.entrySet();
+        return Collections.unmodifiableSet( map.entrySet() );
     }
 
     public LinkedHashMap<String, ServiceInitialization> getServices( String moduleName ) {
@@ -73,7 +148,7 @@ public class ServiceInitializationTree extends AbstractMap<ModuleItem.ServiceIte
 
     public ServiceInitialization putIfAbsent( ModuleItem.ServiceItem key, String serviceName, ServiceInitialization value ) {
         var ret = moduleMap.computeIfAbsent( key.getModuleName(), n -> new LinkedHashMap<>() ).putIfAbsent( serviceName, value );
-        map.putIfAbsent( key, value );
+        if( map.putIfAbsent( key, value ) == null ) index( key, value );
 
         return ret;
     }
@@ -81,6 +156,28 @@ public class ServiceInitializationTree extends AbstractMap<ModuleItem.ServiceIte
     public void clear() {
         map.clear();
         moduleMap.clear();
+        typeIndex.clear();
+        moduleTypeIndex.clear();
+        extIndex.clear();
+    }
+
+    /**
+     * @return services, which instances are of the {@code clazz} type, in the registration order
+     */
+    public List<ServiceInitialization> findAllServicesByClass( String moduleName, Class<?> clazz ) {
+        var index = ALL_MODULES.contains( moduleName ) ? typeIndex : moduleTypeIndex.get( moduleName );
+        if( index == null ) return List.of();
+
+        var ret = index.get( clazz );
+        return ret != null ? Collections.unmodifiableList( ret ) : List.of();
+    }
+
+    /**
+     * @return services with the {@code ext} configuration, in the registration order
+     */
+    public List<ServiceInitialization> findAllServicesByExt( String ext ) {
+        var ret = extIndex.get( ext );
+        return ret != null ? Collections.unmodifiableList( ret ) : List.of();
     }
 
     @Override
@@ -127,6 +224,13 @@ public class ServiceInitializationTree extends AbstractMap<ModuleItem.ServiceIte
 
         mod.remove( serviceName );
 
-        map.entrySet().removeIf( e -> e.getKey().getModuleName().equals( moduleName ) && e.getKey().serviceName.equals( serviceName ) );
+        var it = map.entrySet().iterator();
+        while( it.hasNext() ) {
+            var entry = it.next();
+            if( entry.getKey().getModuleName().equals( moduleName ) && entry.getKey().serviceName.equals( serviceName ) ) {
+                it.remove();
+                unindex( entry.getKey(), entry.getValue() );
+            }
+        }
     }
 }
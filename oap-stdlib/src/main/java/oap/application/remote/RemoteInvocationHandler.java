@@ -237,11 +237,11 @@ public final class RemoteInvocationHandler implements InvocationHandler {
                     }
                 } else throw new RemoteInvocationException( "invocation failed " + this + "#" + method.getName() + " code " + response.statusCode() );
             } catch( HttpTimeoutException | TimeoutException | UncheckedTimeoutException e ) {
-                LogConsolidated.log( log, Level.WARN, s( 5 ), "timeout invoking " + method.getName() + "#" + this, null );
+                LogConsolidated.log( log, Level.WARN, "RemoteInvocationHandler.timeout", s( 5 ), () -> "timeout invoking " + method.getName() + "#" + this, null );
                 timeoutMetrics.increment();
                 lastException = e;
             } catch( Exception e ) {
-                LogConsolidated.log( log, Level.WARN, s( 5 ), "error invoking " + this + "#" + method.getName() + ": " + e.getMessage(), null );
+                LogConsolidated.log( log, Level.WARN, "RemoteInvocationHandler.error", s( 5 ), () -> "error invoking " + this + "#" + method.getName() + ": " + e.getMessage(), null );
                 errorMetrics.increment();
                 lastException = e;
             }
@@ -25,19 +25,33 @@
 package oap.benchmark;
 
 import lombok.ToString;
+import oap.io.Files;
+import oap.json.Binder;
 import oap.reflect.Reflect;
 import oap.util.function.Try;
 import org.joda.time.Period;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.function.IntConsumer;
 import java.util.function.LongFunction;
 
 import static oap.util.function.Functions.empty.noop;
 
+/**
+ * Besides average time and rate every experiment reports latency percentiles, bytes allocated per operation and GC activity.
+ * <p>
+ * Results are written as json to {@code output} directory ({@code -Doap.benchmark.output}) and compared with the same
+ * file in {@code baseline} directory ({@code -Doap.benchmark.baseline}). The benchmark fails if average time,
+ * p99, p999 or allocation per operation grow more than {@code threshold} ({@code -Doap.benchmark.threshold}, 0.1 by default).
+ */
 @ToString( exclude = "code" )
 public final class Benchmark {
     public int experiments = 5;
     public Period period = Period.seconds( 1 );
+    public Path output = pathProperty( "oap.benchmark.output" );
+    public Path baseline = pathProperty( "oap.benchmark.baseline" );
+    public double threshold = Double.parseDouble( System.getProperty( "oap.benchmark.threshold", "0.1" ) );
     String name;
     int samples;
     IntConsumer code;
@@ -60,6 +74,11 @@ public final class Benchmark {
         return new Benchmark( Reflect.caller( 1 ).getSimpleName() + "#" + name, samples, i -> code.run() );
     }
 
+    private static Path pathProperty( String name ) {
+        var value = System.getProperty( name );
+        return value != null ? Path.of( value ) : null;
+    }
+
     private static long getRate( int samples, Period period, long total ) {
         return ( long ) ( samples / ( total / period.toStandardDuration().getMillis() / 1000000f ) );
     }
@@ -93,6 +112,20 @@ public final class Benchmark {
         return this;
     }
 
+    public Benchmark output( Path directory ) {
+        this.output = directory;
+        return this;
+    }
+
+    /**
+     * @param threshold allowed relative regression, 0.1 = 10%
+     */
+    public Benchmark baseline( Path directory, double threshold ) {
+        this.baseline = directory;
+        this.threshold = threshold;
+        return this;
+    }
+
     private String getPeriod() {
         final long millis = period.toStandardDuration().getMillis();
         if( millis == 1 ) return "ms";
@@ -108,13 +141,15 @@ public final class Benchmark {
 
     void printResult( long totalTime, Result result ) {
         System.out.format(
-            "benchmarking %s: %d samples, %d usec, avg time %d usec, rate %s\n",
-            name, samples, totalTime / 1000, result.time, rateToString( result.rate ) );
+            "benchmarking %s: %d samples, %d usec, avg time %d usec, rate %s, p50 %d ns, p99 %d ns, p999 %d ns, %d bytes/op, gc %d (%d ms)\n",
+            name, samples, totalTime / 1000, result.time, rateToString( result.rate ),
+            result.p50, result.p99, result.p999, result.allocated, result.gcCount, result.gcTime );
     }
 
     void printAverageResult( Result result ) {
-        System.out.format( "benchmarking %s: avg time %d usec, avg rate %s\n",
-            name, result.time, rateToString( result.rate ) );
+        System.out.format( "benchmarking %s: avg time %d usec, avg rate %s, p50 %d ns, p99 %d ns, p999 %d ns, %d bytes/op, gc %d (%d ms)\n",
+            name, result.time, rateToString( result.rate ),
+            result.p50, result.p99, result.p999, result.allocated, result.gcCount, result.gcTime );
 
     }
 
@@ -122,7 +157,52 @@ public final class Benchmark {
         return new Result( total / samples / 1000, getRate( samples, period, total ) );
     }
 
+    /**
+     * @param allocated bytes allocated by all threads during the experiment, negative if not supported
+     */
+    Result toResult( long total, Histogram histogram, long allocated, long gcCount, long gcTime ) {
+        var result = toResult( total );
+        result.p50 = histogram.percentile( 50 );
+        result.p99 = histogram.percentile( 99 );
+        result.p999 = histogram.percentile( 99.9 );
+        result.allocated = allocated >= 0 ? allocated / samples : -1;
+        result.gcCount = gcCount;
+        result.gcTime = gcTime;
+        return result;
+    }
+
     public void run() {
-        runner.run( this );
+        var result = runner.run( this );
+
+        if( output != null ) Binder.json.marshal( output.resolve( fileName() ), result );
+
+        if( baseline != null ) compare( result );
+    }
+
+    private String fileName() {
+        return name.replace( '#', '.' ) + ".json";
+    }
+
+    private void compare( Result result ) {
+        var path = baseline.resolve( fileName() );
+        if( !Files.exists( path ) ) {
+            System.out.format( "benchmarking %s: no baseline %s\n", name, path );
+            return;
+        }
+
+        var base = Binder.json.unmarshal( Result.class, path );
+        var regressions = new ArrayList<String>();
+        regression( regressions, "avg time", base.time, result.time );
+        regression( regressions, "p99", base.p99, result.p99 );
+        regression( regressions, "p999", base.p999, result.p999 );
+        if( base.allocated >= 0 && result.allocated >= 0 )
+            regression( regressions, "bytes/op", base.allocated, result.allocated );
+
+        if( !regressions.isEmpty() )
+            throw new AssertionError( name + ": regression over " + ( int ) ( threshold * 100 ) + "%: " + String.join( ", ", regressions ) );
+    }
+
+    private void regression( ArrayList<String> regressions, String metric, long base, long current ) {
+        if( current > base * ( 1 + threshold ) ) regressions.add( metric + " " + base + " -> " + current );
     }
 }
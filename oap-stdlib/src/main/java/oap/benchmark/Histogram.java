@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.benchmark;
+
+/**
+ * Log-linear latency histogram with a relative error below 1.6% (64 sub-buckets per power of two).
+ * Not thread safe, every thread records into its own instance, instances are merged afterwards.
+ */
+final class Histogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final long[] counts = new long[( 64 - SUB_BUCKET_BITS ) * SUB_BUCKETS];
+    private long total;
+    private long max;
+
+    static int index( long value ) {
+        if( value < 2 * SUB_BUCKETS ) return ( int ) Math.max( value, 0 );
+        var shift = 63 - Long.numberOfLeadingZeros( value ) - SUB_BUCKET_BITS;
+        return ( shift + 1 ) * SUB_BUCKETS + ( int ) ( ( value >>> shift ) - SUB_BUCKETS );
+    }
+
+    /**
+     * @return highest value, which belongs to the same bucket
+     */
+    static long value( int index ) {
+        if( index < 2 * SUB_BUCKETS ) return index;
+        var shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ( ( mantissa + 1 ) << shift ) - 1;
+    }
+
+    void record( long value ) {
+        counts[index( value )]++;
+        total++;
+        if( value > max ) max = value;
+    }
+
+    void merge( Histogram histogram ) {
+        for( var i = 0; i < counts.length; i++ ) counts[i] += histogram.counts[i];
+        total += histogram.total;
+        max = Math.max( max, histogram.max );
+    }
+
+    long count() {
+        return total;
+    }
+
+    /**
+     * @param percentile 0..100
+     */
+    long percentile( double percentile ) {
+        if( total == 0 ) return 0;
+        var rank = Math.max( 1, ( long ) Math.ceil( percentile / 100 * total ) );
+        long seen = 0;
+        for( var i = 0; i < counts.length; i++ ) {
+            seen += counts[i];
+            if( seen >= rank ) return Math.min( value( i ), max );
+        }
+        return max;
+    }
+}
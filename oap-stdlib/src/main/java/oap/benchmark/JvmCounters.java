@@ -0,0 +1,75 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Allocation and GC counters of the running JVM.
+ */
+@Slf4j
+final class JvmCounters {
+    private static final com.sun.management.ThreadMXBean threadMXBean = threadMXBean();
+
+    private JvmCounters() {
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        var bean = ManagementFactory.getThreadMXBean();
+        if( bean instanceof com.sun.management.ThreadMXBean ) {
+            var sunBean = ( com.sun.management.ThreadMXBean ) bean;
+            if( sunBean.isThreadAllocatedMemorySupported() ) {
+                if( !sunBean.isThreadAllocatedMemoryEnabled() ) sunBean.setThreadAllocatedMemoryEnabled( true );
+                return sunBean;
+            }
+        }
+        log.warn( "thread allocated memory is not supported" );
+        return null;
+    }
+
+    /**
+     * @return bytes allocated by the current thread so far or {@code -1} if not supported
+     */
+    static long allocatedBytes() {
+        return threadMXBean != null ? threadMXBean.getThreadAllocatedBytes( Thread.currentThread().getId() ) : -1;
+    }
+
+    static long gcCount() {
+        long count = 0;
+        for( GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans() )
+            count += Math.max( gc.getCollectionCount(), 0 );
+        return count;
+    }
+
+    static long gcTime() {
+        long time = 0;
+        for( GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans() )
+            time += Math.max( gc.getCollectionTime(), 0 );
+        return time;
+    }
+}
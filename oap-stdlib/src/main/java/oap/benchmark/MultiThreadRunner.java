@@ -31,6 +31,7 @@ import oap.util.function.Try;
 
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.IntStream;
 
 import static java.util.stream.Collectors.toList;
@@ -70,20 +71,37 @@ class MultiThreadRunner extends AbstractRunner {
                         int samplesPerThread = benchmark.samples / threads;
 
                         var rpool = oap.concurrent.Executors.newFixedThreadPool( threads, new ThreadFactoryBuilder().setNameFormat( "name-%d" ).build() );
+                        var histogram = new Histogram();
+                        var allocated = new AtomicLong();
+                        long gcCount = JvmCounters.gcCount();
+                        long gcTime = JvmCounters.gcTime();
 
                         long start = System.nanoTime();
                         for( var t = 0; t < threads; t++ ) {
                             int finalT = t;
-                            rpool.execute( () -> IntStream
-                                .range( finalT * samplesPerThread, ( finalT + 1 ) * samplesPerThread )
-                                .forEach( benchmark.code ) );
+                            rpool.execute( () -> {
+                                var threadHistogram = new Histogram();
+                                long threadAllocated = JvmCounters.allocatedBytes();
+                                for( var i = finalT * samplesPerThread; i < ( finalT + 1 ) * samplesPerThread; i++ ) {
+                                    long opStart = System.nanoTime();
+                                    benchmark.code.accept( i );
+                                    threadHistogram.record( System.nanoTime() - opStart );
+                                }
+                                if( threadAllocated >= 0 )
+                                    allocated.addAndGet( JvmCounters.allocatedBytes() - threadAllocated );
+                                else allocated.set( Long.MIN_VALUE );
+                                synchronized( histogram ) {
+                                    histogram.merge( threadHistogram );
+                                }
+                            } );
 
                         }
                         rpool.shutdown();
                         rpool.awaitTermination( 5, TimeUnit.HOURS );
 
                         long total = System.nanoTime() - start;
-                        Result result = benchmark.toResult( total );
+                        Result result = benchmark.toResult( total, histogram, allocated.get(),
+                            JvmCounters.gcCount() - gcCount, JvmCounters.gcTime() - gcTime );
                         benchmark.printResult( total, result );
                         benchmark.afterExperiment.run();
 
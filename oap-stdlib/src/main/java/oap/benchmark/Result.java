@@ -24,11 +24,36 @@
 
 package oap.benchmark;
 
+import lombok.ToString;
+
 import java.util.List;
+import java.util.function.ToLongFunction;
 
+@ToString
 class Result {
     public long rate;
+    /**
+     * average, usec
+     */
     public long time;
+    /**
+     * latency percentiles, nanoseconds
+     */
+    public long p50;
+    public long p99;
+    public long p999;
+    /**
+     * bytes per operation, -1 if not supported
+     */
+    public long allocated = -1;
+    public long gcCount;
+    /**
+     * ms
+     */
+    public long gcTime;
+
+    Result() {
+    }
 
     Result( long time, long rate ) {
         this.time = time;
@@ -36,15 +61,20 @@ class Result {
     }
 
     public static Result average( List<Result> results, int experiments ) {
-        return new Result(
-            results.stream()
-                .skip( experiments > 1 ? 1 : 0 )
-                .mapToLong( r -> r.time )
-                .sum() / ( experiments > 1 ? experiments - 1 : experiments ),
-            results.stream()
-                .skip( experiments > 1 ? 1 : 0 )
-                .mapToLong( r1 -> r1.rate )
-                .sum() / ( experiments > 1 ? experiments - 1 : experiments )
-        );
+        var result = new Result( average( results, experiments, r -> r.time ), average( results, experiments, r -> r.rate ) );
+        result.p50 = average( results, experiments, r -> r.p50 );
+        result.p99 = average( results, experiments, r -> r.p99 );
+        result.p999 = average( results, experiments, r -> r.p999 );
+        result.allocated = average( results, experiments, r -> r.allocated );
+        result.gcCount = average( results, experiments, r -> r.gcCount );
+        result.gcTime = average( results, experiments, r -> r.gcTime );
+        return result;
+    }
+
+    private static long average( List<Result> results, int experiments, ToLongFunction<Result> value ) {
+        return results.stream()
+            .skip( experiments > 1 ? 1 : 0 )
+            .mapToLong( value )
+            .sum() / ( experiments > 1 ? experiments - 1 : experiments );
     }
 }
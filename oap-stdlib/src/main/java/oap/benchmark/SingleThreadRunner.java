@@ -46,14 +46,21 @@ class SingleThreadRunner extends AbstractRunner {
             List<Result> results = IntStream.range( 0, benchmark.experiments )
                 .mapToObj( x -> Teamcity.progress( benchmark.name + " e=" + x + "...", () -> {
                     benchmark.beforeExperiment.run();
+                    var histogram = new Histogram();
+                    long gcCount = JvmCounters.gcCount();
+                    long gcTime = JvmCounters.gcTime();
+                    long allocated = JvmCounters.allocatedBytes();
                     long total = 0;
                     for( int i = 0; i < benchmark.samples; i++ ) {
                         long start = System.nanoTime();
                         benchmark.code.accept( i );
-                        total += System.nanoTime() - start;
-
+                        long time = System.nanoTime() - start;
+                        total += time;
+                        histogram.record( time );
                     }
-                    Result r = benchmark.toResult( total );
+                    if( allocated >= 0 ) allocated = JvmCounters.allocatedBytes() - allocated;
+                    Result r = benchmark.toResult( total, histogram, allocated,
+                        JvmCounters.gcCount() - gcCount, JvmCounters.gcTime() - gcTime );
                     benchmark.printResult( total, r );
                     benchmark.afterExperiment.run();
                     return r;
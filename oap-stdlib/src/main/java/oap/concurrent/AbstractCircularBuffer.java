@@ -0,0 +1,146 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sequencing of lock-free ring buffers. Writers claim a sequence number, then a slot stamp marks the slot
+ * as being written (odd) or as holding the value of a sequence (even). Readers copy a value only if the stamp
+ * is the expected one before and after the read, so snapshots never contain torn or overwritten values.
+ * A writer, which was lapped by the whole ring, drops its value: newer values are already in the buffer.
+ * A writer, which finds its slot still being written by an older writer, drops its value too instead of waiting,
+ * so a writer preempted between {@link #claim(int, long)} and {@link #publish(int, long)} never blocks the others.
+ */
+abstract class AbstractCircularBuffer {
+    protected final int capacity;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicLong drained = new AtomicLong();
+    private final AtomicLongArray stamps;
+    private final AtomicLongArray dropped;
+
+    protected AbstractCircularBuffer( int capacity ) {
+        if( capacity <= 0 ) throw new IllegalArgumentException( "capacity must be positive: " + capacity );
+        this.capacity = capacity;
+        this.stamps = new AtomicLongArray( capacity );
+        this.dropped = new AtomicLongArray( capacity );
+        for( var i = 0; i < capacity; i++ ) dropped.set( i, -1 );
+    }
+
+    private static long writing( long seq ) {
+        return 2 * seq + 1;
+    }
+
+    private static long published( long seq ) {
+        return 2 * seq + 2;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of elements ever added
+     */
+    public long count() {
+        return cursor.get();
+    }
+
+    protected final long next() {
+        return cursor.getAndIncrement();
+    }
+
+    protected final int index( long seq ) {
+        return ( int ) ( seq % capacity );
+    }
+
+    /**
+     * @return {@code false} if the slot already belongs to a newer sequence or is still being written by an older one
+     */
+    protected final boolean claim( int index, long seq ) {
+        var writing = writing( seq );
+        while( true ) {
+            var stamp = stamps.get( index );
+            if( stamp >= writing ) return false;
+            if( ( stamp & 1 ) == 1 ) {
+                dropped.accumulateAndGet( index, seq, Math::max );
+                return false;
+            }
+            if( stamps.compareAndSet( index, stamp, writing ) ) return true;
+        }
+    }
+
+    protected final void publish( int index, long seq ) {
+        stamps.set( index, published( seq ) );
+    }
+
+    /**
+     * @return stamp to pass to {@link #validate(int, long)} or {@code -1} if the slot does not hold {@code seq}
+     */
+    protected final long stamp( int index, long seq ) {
+        var stamp = stamps.get( index );
+        return stamp == published( seq ) ? stamp : -1;
+    }
+
+    protected final boolean validate( int index, long stamp ) {
+        return stamps.get( index ) == stamp;
+    }
+
+    /**
+     * @return first sequence of the newest {@code max} elements, which are still in the buffer
+     */
+    protected final long snapshotFrom( long to, int max ) {
+        return Math.max( 0, to - Math.min( capacity, max ) );
+    }
+
+    protected final long snapshotTo() {
+        return cursor.get();
+    }
+
+    /**
+     * Claims the range of elements, which were not drained yet. The range ends before the first element,
+     * which is still being written, the next drain continues from it. Dropped elements are passed over.
+     *
+     * @return [from, to) or {@code null} if there is nothing to drain
+     */
+    protected final long[] drainRange( int max ) {
+        while( true ) {
+            var current = drained.get();
+            var to = cursor.get();
+            var from = Math.max( current, to - capacity );
+            to = Math.min( to, from + max );
+            var end = from;
+            while( end < to && isComplete( end ) ) end++;
+            if( end <= from ) return null;
+            if( drained.compareAndSet( current, end ) ) return new long[] { from, end };
+        }
+    }
+
+    private boolean isComplete( long seq ) {
+        var index = index( seq );
+        return stamps.get( index ) >= published( seq ) || dropped.get( index ) == seq;
+    }
+}
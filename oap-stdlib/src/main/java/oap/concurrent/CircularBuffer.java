@@ -26,32 +26,76 @@ package oap.concurrent;
 
 import java.lang.reflect.Array;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
-public class CircularBuffer<T> {
+/**
+ * Lock-free ring buffer of the last {@code capacity} objects for many concurrent writers.
+ * <p>
+ * Snapshots are consistent: every returned element was in the buffer, in order of addition.
+ * Elements, which are being written during a snapshot, are skipped, a drain stops before them.
+ */
+public class CircularBuffer<T> extends AbstractCircularBuffer {
     private final Class<T> clazz;
-    private final T[] data;
-    private int index = 0;
-    private boolean cycled = false;
+    private final AtomicReferenceArray<T> data;
 
-    @SuppressWarnings( "unchecked" )
     public CircularBuffer( Class<T> clazz, int size ) {
+        super( size );
         this.clazz = clazz;
-        this.data = ( T[] ) Array.newInstance( clazz, size );
+        this.data = new AtomicReferenceArray<>( size );
+    }
+
+    public void add( T element ) {
+        var seq = next();
+        var index = index( seq );
+        if( !claim( index, seq ) ) return;
+        data.set( index, element );
+        publish( index, seq );
+    }
+
+    /**
+     * Copies the newest elements, oldest first.
+     *
+     * @return number of copied elements
+     */
+    public int snapshot( T[] dest ) {
+        var to = snapshotTo();
+        return copy( snapshotFrom( to, dest.length ), to, dest );
+    }
+
+    /**
+     * Moves elements, which were added since the previous drain, oldest first.
+     * Elements overwritten before the drain are lost.
+     *
+     * @return number of moved elements
+     */
+    public int drain( T[] dest ) {
+        var range = drainRange( dest.length );
+        return range != null ? copy( range[0], range[1], dest ) : 0;
     }
 
-    public synchronized void add( T element ) {
-        if( !cycled && index == data.length ) cycled = true;
-        this.data[index == data.length ? index = 0 : index] = element;
-        index++;
+    /**
+     * Allocates the result, use {@link #snapshot(Object[])} with a reused array on hot paths.
+     */
+    public T[] getElements() {
+        var result = newArray( capacity );
+        var size = snapshot( result );
+        return size == result.length ? result : Arrays.copyOf( result, size );
     }
 
     @SuppressWarnings( "unchecked" )
-    public synchronized T[] getElements() {
-        if( cycled ) {
-            T[] result = ( T[] ) Array.newInstance( clazz, data.length );
-            System.arraycopy( data, index, result, 0, data.length - index );
-            System.arraycopy( data, 0, result, data.length - index, index );
-            return result;
-        } else return Arrays.copyOf( data, index );
+    private T[] newArray( int size ) {
+        return ( T[] ) Array.newInstance( clazz, size );
+    }
+
+    private int copy( long from, long to, T[] dest ) {
+        var size = 0;
+        for( var seq = from; seq < to; seq++ ) {
+            var index = index( seq );
+            var stamp = stamp( index, seq );
+            if( stamp < 0 ) continue;
+            var value = data.get( index );
+            if( validate( index, stamp ) ) dest[size++] = value;
+        }
+        return size;
     }
 }
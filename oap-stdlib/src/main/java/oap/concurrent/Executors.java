@@ -75,6 +75,29 @@ public final class Executors {
         return new BlockingExecutor( nThreads, threadFactory );
     }
 
+    /**
+     * @param threadPrefix threads are named {@code threadPrefix-N}
+     * @return unbounded thread-per-task executor on virtual threads (daemon platform threads before JDK 21)
+     */
+    public static VirtualThreadExecutor newVirtualThreadPerTaskExecutor( String threadPrefix ) {
+        return new VirtualThreadExecutor( VirtualThreads.factory( threadPrefix ), 0, false );
+    }
+
+    /**
+     * @param maxConcurrency tasks over the limit are rejected with {@link java.util.concurrent.RejectedExecutionException}
+     */
+    public static VirtualThreadExecutor newVirtualThreadPerTaskExecutor( int maxConcurrency, String threadPrefix ) {
+        return new VirtualThreadExecutor( VirtualThreads.factory( threadPrefix ), maxConcurrency, false );
+    }
+
+    /**
+     * Virtual counterpart of {@link #newFixedBlockingThreadPool(int)}: {@code execute} blocks while
+     * {@code concurrentTasksLimit} tasks are running.
+     */
+    public static BlockingExecutor newVirtualBlockingExecutor( int concurrentTasksLimit, String threadPrefix ) {
+        return new BlockingExecutor( concurrentTasksLimit, newVirtualThreadPerTaskExecutor( threadPrefix ) );
+    }
+
     public static ScheduledExecutorService newScheduledThreadPool( int corePoolSize, String threadPrefix ) {
         return new ScheduledExecutorService( java.util.concurrent.Executors.newScheduledThreadPool(
             corePoolSize,
@@ -83,7 +106,12 @@ public final class Executors {
 
     public static final class BlockingExecutor implements Executor {
         private final Semaphore semaphore;
-        private final ThreadPoolExecutor threadPoolExecutor;
+        private final ExecutorService threadPoolExecutor;
+
+        private BlockingExecutor( int concurrentTasksLimit, ExecutorService executor ) {
+            semaphore = new Semaphore( concurrentTasksLimit );
+            this.threadPoolExecutor = executor;
+        }
 
         private BlockingExecutor( int concurrentTasksLimit, ThreadFactory threadFactory ) {
             this( concurrentTasksLimit, concurrentTasksLimit, threadFactory );
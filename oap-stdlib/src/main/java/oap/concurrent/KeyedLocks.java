@@ -0,0 +1,193 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.SneakyThrows;
+import oap.util.function.Try;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Reentrant read/write locks by key. Keys are compared with {@link Object#equals(Object)},
+ * a lock exists only while it is held or awaited, so the registry is bounded by the number of keys in use.
+ * <p>
+ * Contended acquisitions are counted in {@code oap_keyed_locks_contended}, time spent waiting is
+ * recorded in {@code oap_keyed_locks_wait}.
+ */
+public class KeyedLocks {
+    public static final KeyedLocks DEFAULT = new KeyedLocks( "default" );
+
+    private final ConcurrentHashMap<Object, Entry> locks = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Object, CompletableFuture<Void>> queues = new ConcurrentHashMap<>();
+    private final Counter contended;
+    private final Timer wait;
+
+    public KeyedLocks( String name ) {
+        var tags = Tags.of( "name", name );
+        contended = Metrics.counter( "oap_keyed_locks_contended", tags );
+        wait = Metrics.timer( "oap_keyed_locks_wait", tags );
+        Metrics.gaugeMapSize( "oap_keyed_locks_keys", tags, locks );
+    }
+
+    public <R> R withLock( Object key, Try.ThrowingSupplier<R> action ) {
+        return locked( key, false, action );
+    }
+
+    public void withLock( Object key, Try.ThrowingRunnable action ) {
+        locked( key, false, () -> {
+            action.run();
+            return null;
+        } );
+    }
+
+    public <R> R withReadLock( Object key, Try.ThrowingSupplier<R> action ) {
+        return locked( key, true, action );
+    }
+
+    public void withReadLock( Object key, Try.ThrowingRunnable action ) {
+        locked( key, true, () -> {
+            action.run();
+            return null;
+        } );
+    }
+
+    /**
+     * @return {@code false} if the lock is not acquired within the timeout, the action is not executed then
+     */
+    @SneakyThrows
+    public boolean tryWithLock( Object key, long timeout, TimeUnit unit, Try.ThrowingRunnable action ) {
+        var entry = acquire( key );
+        try {
+            var lock = entry.lock.writeLock();
+            if( !lock.tryLock() ) {
+                contended.increment();
+                var start = System.nanoTime();
+                var locked = lock.tryLock( timeout, unit );
+                wait.record( System.nanoTime() - start, NANOSECONDS );
+                if( !locked ) return false;
+            }
+            try {
+                action.run();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            release( key );
+        }
+    }
+
+    /**
+     * Actions with the same key run one after another on {@code executor}, no thread is blocked while waiting for the previous action.
+     * The key is also locked for {@link #withLock} callers while the action runs.
+     * If {@code executor} rejects the action, the returned future fails and the next action for the key is not blocked.
+     */
+    public <R> CompletableFuture<R> withLockAsync( Object key, Supplier<R> action, Executor executor ) {
+        var result = new CompletableFuture<R>();
+        var done = new CompletableFuture<Void>();
+        var previous = queues.put( key, done );
+
+        ( previous != null ? previous : CompletableFuture.completedFuture( null ) ).whenComplete( ( v, e ) -> {
+            try {
+                executor.execute( () -> {
+                    try {
+                        result.complete( withLock( key, action::get ) );
+                    } catch( Throwable t ) {
+                        result.completeExceptionally( t );
+                    } finally {
+                        complete( key, done );
+                    }
+                } );
+            } catch( Throwable t ) {
+                result.completeExceptionally( t );
+                complete( key, done );
+            }
+        } );
+
+        return result;
+    }
+
+    private void complete( Object key, CompletableFuture<Void> done ) {
+        queues.remove( key, done );
+        done.complete( null );
+    }
+
+    /**
+     * @return number of keys, which are locked or awaited
+     */
+    public int size() {
+        return locks.size();
+    }
+
+    @SneakyThrows
+    private <R> R locked( Object key, boolean read, Try.ThrowingSupplier<R> action ) {
+        var entry = acquire( key );
+        try {
+            Lock lock = read ? entry.lock.readLock() : entry.lock.writeLock();
+            if( !lock.tryLock() ) {
+                contended.increment();
+                var start = System.nanoTime();
+                lock.lock();
+                wait.record( System.nanoTime() - start, NANOSECONDS );
+            }
+            try {
+                return action.get();
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            release( key );
+        }
+    }
+
+    private Entry acquire( Object key ) {
+        return locks.compute( key, ( k, entry ) -> {
+            if( entry == null ) entry = new Entry();
+            entry.users++;
+            return entry;
+        } );
+    }
+
+    private void release( Object key ) {
+        locks.computeIfPresent( key, ( k, entry ) -> --entry.users == 0 ? null : entry );
+    }
+
+    private static final class Entry {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        int users;
+    }
+}
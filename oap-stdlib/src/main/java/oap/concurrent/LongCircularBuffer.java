@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.concurrent;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free ring buffer of the last {@code capacity} {@code long} values for many concurrent writers.
+ * <p>
+ * Snapshots are consistent: every returned element was in the buffer, in order of addition.
+ * Elements, which are being written during a snapshot, are skipped, a drain stops before them.
+ */
+public class LongCircularBuffer extends AbstractCircularBuffer {
+    private final AtomicLongArray data;
+
+    public LongCircularBuffer( int size ) {
+        super( size );
+        this.data = new AtomicLongArray( size );
+    }
+
+    public void add( long element ) {
+        var seq = next();
+        var index = index( seq );
+        if( !claim( index, seq ) ) return;
+        data.set( index, element );
+        publish( index, seq );
+    }
+
+    /**
+     * Copies the newest elements, oldest first.
+     *
+     * @return number of copied elements
+     */
+    public int snapshot( long[] dest ) {
+        var to = snapshotTo();
+        return copy( snapshotFrom( to, dest.length ), to, dest );
+    }
+
+    /**
+     * Moves elements, which were added since the previous drain, oldest first.
+     * Elements overwritten before the drain are lost.
+     *
+     * @return number of moved elements
+     */
+    public int drain( long[] dest ) {
+        var range = drainRange( dest.length );
+        return range != null ? copy( range[0], range[1], dest ) : 0;
+    }
+
+    public long[] getElements() {
+        var result = new long[capacity];
+        var size = snapshot( result );
+        return size == result.length ? result : Arrays.copyOf( result, size );
+    }
+
+    private int copy( long from, long to, long[] dest ) {
+        var size = 0;
+        for( var seq = from; seq < to; seq++ ) {
+            var index = index( seq );
+            var stamp = stamp( index, seq );
+            if( stamp < 0 ) continue;
+            var value = data.get( index );
+            if( validate( index, stamp ) ) dest[size++] = value;
+        }
+        return size;
+    }
+}
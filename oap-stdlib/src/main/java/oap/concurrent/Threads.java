@@ -78,10 +78,11 @@ public class Threads {
         synchronizedOn( String.valueOf( id ), run );
     }
 
+    /**
+     * @see KeyedLocks#DEFAULT
+     */
     public static void synchronizedOn( String id, Runnable run ) {
-        synchronized( id.intern() ) {
-            run.run();
-        }
+        KeyedLocks.DEFAULT.withLock( id, run::run );
     }
 
     public static <R> R synchronizedOn( Object id, Supplier<R> run ) {
@@ -89,9 +90,7 @@ public class Threads {
     }
 
     public static <R> R synchronizedOn( String id, Supplier<R> run ) {
-        synchronized( id.intern() ) {
-            return run.get();
-        }
+        return KeyedLocks.DEFAULT.withLock( id, run::get );
     }
 
     @SneakyThrows
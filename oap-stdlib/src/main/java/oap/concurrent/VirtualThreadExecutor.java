@@ -0,0 +1,149 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.concurrent;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread-per-task executor. Every task gets a new (virtual, if supported) thread, nothing is pooled.
+ * With a concurrency limit the executor either rejects ({@link RejectedExecutionException}) or blocks the caller
+ * once the limit is reached, the same way a bounded {@link ThreadPoolExecutor} with a {@code SynchronousQueue} does.
+ *
+ * @see Executors#newVirtualThreadPerTaskExecutor(String)
+ */
+@Slf4j( topic = "UncaughException" )
+public class VirtualThreadExecutor extends AbstractExecutorService {
+    private final ThreadFactory threadFactory;
+    private final Semaphore permits;
+    private final boolean blocking;
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+    private volatile boolean shutdown;
+
+    /**
+     * @param maxConcurrency maximum number of running tasks, {@code <= 0} - unlimited
+     * @param blocking       block the caller instead of rejecting a task when the limit is reached
+     */
+    public VirtualThreadExecutor( ThreadFactory threadFactory, int maxConcurrency, boolean blocking ) {
+        this.threadFactory = threadFactory;
+        this.permits = maxConcurrency > 0 ? new Semaphore( maxConcurrency ) : null;
+        this.blocking = blocking;
+    }
+
+    @Override
+    public void execute( @Nonnull Runnable command ) {
+        if( shutdown ) throw new RejectedExecutionException( "executor is shut down" );
+
+        if( permits != null ) {
+            if( blocking ) try {
+                permits.acquire();
+            } catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException( e );
+            }
+            else if( !permits.tryAcquire() )
+                throw new RejectedExecutionException( "too many active tasks: " + getActiveCount() );
+        }
+
+        var started = false;
+        try {
+            var thread = threadFactory.newThread( () -> {
+                try {
+                    command.run();
+                } catch( Throwable e ) {
+                    log.error( e.getMessage(), e );
+                } finally {
+                    release( Thread.currentThread() );
+                }
+            } );
+            threads.add( thread );
+            thread.start();
+            started = true;
+        } finally {
+            if( !started && permits != null ) permits.release();
+        }
+    }
+
+    private void release( Thread thread ) {
+        if( permits != null ) permits.release();
+        threads.remove( thread );
+        if( shutdown && threads.isEmpty() ) synchronized( this ) {
+            notifyAll();
+        }
+    }
+
+    public int getActiveCount() {
+        return threads.size();
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        if( threads.isEmpty() ) synchronized( this ) {
+            notifyAll();
+        }
+    }
+
+    @Nonnull
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        threads.forEach( Thread::interrupt );
+
+        return List.of();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && threads.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination( long timeout, @Nonnull TimeUnit unit ) throws InterruptedException {
+        var deadline = System.nanoTime() + unit.toNanos( timeout );
+        synchronized( this ) {
+            while( !isTerminated() ) {
+                var left = deadline - System.nanoTime();
+                if( left <= 0 ) return false;
+                TimeUnit.NANOSECONDS.timedWait( this, left );
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.concurrent;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual threads (JDK 21+) are looked up reflectively, so the library still runs on older JVMs.
+ * On a JVM without virtual threads the factories fall back to daemon platform threads.
+ */
+@Slf4j
+public final class VirtualThreads {
+    private static final Method ofVirtual;
+    private static final Method name;
+    private static final Method factory;
+
+    static {
+        Method ofVirtualMethod = null;
+        Method nameMethod = null;
+        Method factoryMethod = null;
+        try {
+            var builderClass = Class.forName( "java.lang.Thread$Builder" );
+            ofVirtualMethod = Thread.class.getMethod( "ofVirtual" );
+            nameMethod = builderClass.getMethod( "name", String.class, long.class );
+            factoryMethod = builderClass.getMethod( "factory" );
+            ofVirtualMethod.invoke( null );
+        } catch( ReflectiveOperationException | UnsupportedOperationException e ) {
+            log.trace( "virtual threads are not supported: {}", e.toString() );
+            ofVirtualMethod = null;
+        }
+        ofVirtual = ofVirtualMethod;
+        name = nameMethod;
+        factory = factoryMethod;
+    }
+
+    private VirtualThreads() {
+    }
+
+    public static boolean isSupported() {
+        return ofVirtual != null;
+    }
+
+    /**
+     * @param prefix thread name prefix, threads are named {@code prefix-N}
+     * @return virtual thread factory or daemon platform thread factory if virtual threads are not supported
+     */
+    public static ThreadFactory factory( String prefix ) {
+        if( isSupported() ) try {
+            var builder = ofVirtual.invoke( null );
+            builder = name.invoke( builder, prefix + "-", 0L );
+            return ( ThreadFactory ) factory.invoke( builder );
+        } catch( ReflectiveOperationException e ) {
+            log.warn( "cannot create virtual thread factory: {}", e.toString() );
+        }
+
+        return new ThreadFactoryBuilder().setNameFormat( prefix + "-%d" ).setDaemon( true ).build();
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.concurrent.scheduler;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Fixed rate job driven by {@link Scheduler#timer}, as the Quartz simple trigger it replaces: runs are
+ * {@code delay} apart from the first one, a run that overruns the period is followed immediately and the missed
+ * runs are coalesced into that one. The timer thread only fires the job, the job itself runs on {@code workers}.
+ * Executions never overlap, including {@link #triggerNow()}.
+ */
+@Slf4j
+public class ExecutorScheduled extends Scheduled {
+    final String identity;
+    private final Runnable runnable;
+    private final long delayNanos;
+    private final Executor workers;
+    private final Timer duration;
+    private final Timer lateness;
+    private final Counter overrun;
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * guards {@link #runningThread} together with the interrupt status of that thread,
+     * so that {@link #cancel()} never interrupts a pooled worker that already moved on to another job
+     */
+    private final Object interruptLock = new Object();
+    private volatile boolean cancelled = false;
+    private Thread runningThread;
+    private volatile ScheduledFuture<?> next;
+    private volatile long expectedAt;
+
+    ExecutorScheduled( String identity, String job, long delay, TimeUnit unit, Runnable runnable, Executor workers ) {
+        this.identity = identity;
+        this.runnable = runnable;
+        this.delayNanos = unit.toNanos( delay );
+        this.workers = workers;
+        this.duration = Metrics.timer( "oap_scheduler_job_duration", "job", job );
+        this.lateness = Metrics.timer( "oap_scheduler_job_lateness", "job", job );
+        this.overrun = Metrics.counter( "oap_scheduler_job_overrun", "job", job );
+    }
+
+    void schedule() {
+        expectedAt = System.nanoTime() + delayNanos;
+        scheduleAt( expectedAt );
+    }
+
+    private void scheduleNext() {
+        var now = System.nanoTime();
+        var at = expectedAt + delayNanos;
+        if( at - now < 0 ) at = now;
+        expectedAt = at;
+        scheduleAt( at );
+    }
+
+    private void scheduleAt( long at ) {
+        if( cancelled ) return;
+
+        try {
+            next = Scheduler.timer.schedule( this::fire, Math.max( 0, at - System.nanoTime() ), NANOSECONDS );
+        } catch( RejectedExecutionException e ) {
+            log.warn( "cannot schedule {}: {}", identity, e.getMessage() );
+        }
+    }
+
+    private void fire() {
+        if( cancelled ) return;
+
+        try {
+            workers.execute( () -> {
+                try {
+                    lateness.record( System.nanoTime() - expectedAt, NANOSECONDS );
+                    execute( true );
+                } finally {
+                    scheduleNext();
+                }
+            } );
+        } catch( RejectedExecutionException e ) {
+            log.warn( "cannot execute {}: {}", identity, e.getMessage() );
+        }
+    }
+
+    private void execute( boolean worker ) {
+        lock.lock();
+        try {
+            if( cancelled ) return;
+
+            log.trace( "executing {}", identity );
+            if( worker ) synchronized( interruptLock ) {
+                runningThread = Thread.currentThread();
+            }
+            var start = System.nanoTime();
+            try {
+                if( !cancelled ) runnable.run();
+            } catch( Exception e ) {
+                log.error( identity + ": " + e.getMessage(), e );
+            } finally {
+                var time = System.nanoTime() - start;
+                duration.record( time, NANOSECONDS );
+                if( time > delayNanos ) overrun.increment();
+
+                if( worker ) synchronized( interruptLock ) {
+                    runningThread = null;
+                    Thread.interrupted();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void cancel() {
+        log.trace( "cancelling {}", identity );
+        cancelled = true;
+        Scheduler.jobs.remove( identity, this );
+
+        var future = next;
+        if( future != null ) future.cancel( false );
+
+        synchronized( interruptLock ) {
+            var thread = runningThread;
+            if( thread != null && thread != Thread.currentThread() ) thread.interrupt();
+        }
+
+        try {
+            if( lock.tryLock( 10, SECONDS ) ) lock.unlock();
+            else log.warn( "{} is still running", identity );
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+        log.trace( "cancelled {}", identity );
+    }
+
+    /**
+     * executes the job in the calling thread and waits for the completion
+     */
+    @Override
+    public void triggerNow() {
+        log.trace( "forcefully triggering job {}", identity );
+        execute( false );
+    }
+
+    @Override
+    public String toString() {
+        return identity;
+    }
+}
@@ -41,20 +41,20 @@ public class QuartzScheduled extends Scheduled {
     @SneakyThrows
     public void cancel() {
         log.trace( "cancelling {}", job );
-        Scheduler.scheduler.deleteJob( job.jobDetail.getKey() );
-        Scheduler.jobFactory.unregister( job.jobDetail.getKey() );
+        Scheduler.Quartz.scheduler.deleteJob( job.jobDetail.getKey() );
+        Scheduler.Quartz.jobFactory.unregister( job.jobDetail.getKey() );
 
         int i = 10;
 
-        while( --i >= 0 && Lists.contains( Scheduler.scheduler.getCurrentlyExecutingJobs(),
+        while( --i >= 0 && Lists.contains( Scheduler.Quartz.scheduler.getCurrentlyExecutingJobs(),
             j -> j.getJobDetail().getKey().equals( job.jobDetail.getKey() ) ) ) {
 
             try {
-                Lists.find( Scheduler.scheduler.getCurrentlyExecutingJobs(),
+                Lists.find( Scheduler.Quartz.scheduler.getCurrentlyExecutingJobs(),
                     j -> j.getJobDetail().getKey().equals( job.jobDetail.getKey() ) )
                     .ifPresent( Try.consume( j -> {
                         log.debug( "running job [{}]...", j.getJobDetail().getKey() );
-                        Scheduler.scheduler.interrupt( j.getJobDetail().getKey() );
+                        Scheduler.Quartz.scheduler.interrupt( j.getJobDetail().getKey() );
                     } ) );
             } catch( Exception e ) {
                 log.error( e.getMessage(), e );
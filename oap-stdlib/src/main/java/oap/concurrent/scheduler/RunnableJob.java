@@ -72,7 +72,7 @@ public class RunnableJob implements Job, InterruptableJob {
     public void triggerNow() {
         synchronized( this ) {
             log.trace( "forcefully triggering job {}", jobDetail );
-            Scheduler.scheduler.triggerJob( jobDetail.getKey() );
+            Scheduler.Quartz.scheduler.triggerJob( jobDetail.getKey() );
             this.wait();
         }
     }
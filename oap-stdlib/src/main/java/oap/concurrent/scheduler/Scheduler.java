@@ -24,20 +24,27 @@
 
 package oap.concurrent.scheduler;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import oap.concurrent.ThreadPoolExecutor;
+import oap.concurrent.VirtualThreads;
 import oap.util.Throwables;
 import oap.util.function.Try;
 import org.quartz.CronScheduleBuilder;
 import org.quartz.JobKey;
 import org.quartz.ScheduleBuilder;
-import org.quartz.SimpleScheduleBuilder;
 import org.quartz.impl.StdSchedulerFactory;
 import org.quartz.impl.matchers.GroupMatcher;
 
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
@@ -47,31 +54,39 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.quartz.JobBuilder.newJob;
 import static org.quartz.TriggerBuilder.newTrigger;
 
+/**
+ * Fixed delay jobs (fixed rate, as under Quartz) run on a lightweight {@link ScheduledThreadPoolExecutor} based engine, see {@link ExecutorScheduled}.
+ * Quartz is used for cron jobs only and is initialized on the first cron job.
+ * <p>
+ * Set the {@code oap.scheduler.virtual-threads} system property to {@code true}
+ * to execute fixed delay jobs on virtual threads (JDK 21+).
+ */
 @Slf4j
 public final class Scheduler {
-    static final org.quartz.Scheduler scheduler;
-    static final FunctionJobFactory jobFactory;
+    static final ScheduledThreadPoolExecutor timer;
+    static final Executor workers;
+    static final ConcurrentHashMap<String, ExecutorScheduled> jobs = new ConcurrentHashMap<>();
     private static final AtomicLong ids = new AtomicLong();
+    private static volatile boolean quartzStarted;
 
     static {
-        try {
-            final StdSchedulerFactory sf = new StdSchedulerFactory();
-            Properties props = new Properties();
-//            props.setProperty( StdSchedulerFactory.PROP_SCHED_SKIP_UPDATE_CHECK, "true" );
-            props.setProperty( StdSchedulerFactory.PROP_JOB_STORE_CLASS, "org.quartz.simpl.RAMJobStore" );
-            props.setProperty( "org.quartz.threadPool.threadCount",
-                String.valueOf( Runtime.getRuntime().availableProcessors() * 4 ) );
-            sf.initialize( props );
-
-            scheduler = sf.getScheduler();
-            scheduler.setJobFactory( jobFactory = new FunctionJobFactory() );
-
-            scheduler.getListenerManager().addJobListener( new SchedulerLogging() );
-
-            scheduler.start();
-        } catch( org.quartz.SchedulerException e ) {
-            throw Throwables.propagate( e );
+        timer = new ScheduledThreadPoolExecutor( 1,
+            new ThreadFactoryBuilder().setNameFormat( "oap-scheduler-timer-%d" ).setDaemon( true ).build() );
+        timer.setRemoveOnCancelPolicy( true );
+
+        workers = workers( Boolean.getBoolean( "oap.scheduler.virtual-threads" ) );
+    }
+
+    static Executor workers( boolean virtualThreads ) {
+        if( virtualThreads && VirtualThreads.isSupported() ) {
+            var factory = VirtualThreads.factory( "oap-scheduler" );
+            return command -> factory.newThread( command ).start();
         }
+
+        return new ThreadPoolExecutor( 0, Integer.MAX_VALUE,
+            60L, TimeUnit.SECONDS,
+            new SynchronousQueue<>(),
+            new ThreadFactoryBuilder().setNameFormat( "oap-scheduler-%d" ).setDaemon( true ).build() );
     }
 
     private Scheduler() {
@@ -79,7 +94,7 @@ public final class Scheduler {
 
 
     @SneakyThrows
-    private static Scheduled schedule( long delay, TimeUnit unit, Runnable runnable, ScheduleBuilder<?> scheduleBuilder ) {
+    private static Scheduled scheduleQuartz( long delay, TimeUnit unit, Runnable runnable, ScheduleBuilder<?> scheduleBuilder ) {
         var identity = identity( runnable );
 
 
@@ -94,15 +109,15 @@ public final class Scheduler {
             .withSchedule( scheduleBuilder )
             .build();
 
-        var runnableJob = jobFactory.register( jobDetail, runnable );
+        var runnableJob = Quartz.jobFactory.register( jobDetail, runnable );
 
-        scheduler.scheduleJob( jobDetail, trigger );
+        Quartz.scheduler.scheduleJob( jobDetail, trigger );
         log.trace( "scheduling job {} with trigger {}", jobDetail, trigger );
         return new QuartzScheduled( runnableJob );
     }
 
     public static Scheduled scheduleCron( String cron, Runnable runnable ) {
-        return schedule( 0, SECONDS, Try.catching( runnable )
+        return scheduleQuartz( 0, SECONDS, Try.catching( runnable )
                 .logOnException( log )
                 .propagate(),
             CronScheduleBuilder.cronSchedule( cron ) );
@@ -121,14 +136,24 @@ public final class Scheduler {
         return clazz.getName() + "/" + ids.incrementAndGet();
     }
 
+    private static String jobName( Runnable runnable ) {
+        if( runnable instanceof PeriodicScheduled ) return ( ( PeriodicScheduled ) runnable ).getOwner().getName();
+        var name = runnable.getClass().getName();
+        var lambda = name.indexOf( "$$Lambda" );
+        return lambda > 0 ? name.substring( 0, lambda ) : name;
+    }
+
+    /**
+     * The name is historical: as under the Quartz simple trigger, runs are {@code delay} apart (fixed rate),
+     * a run that overruns the period is followed immediately and the missed runs are coalesced into it.
+     * See {@link ExecutorScheduled}.
+     */
     public static Scheduled scheduleWithFixedDelay( long delay, TimeUnit unit, Runnable runnable ) {
-        return schedule( delay, unit, Try.catching( runnable )
-                .logOnException( log )
-                .propagate(),
-            SimpleScheduleBuilder.simpleSchedule()
-                .withIntervalInMilliseconds( unit.toMillis( delay ) )
-                .withMisfireHandlingInstructionIgnoreMisfires()
-                .repeatForever() );
+        var scheduled = new ExecutorScheduled( identity( runnable ), jobName( runnable ), delay, unit, runnable, workers );
+        log.trace( "scheduling job {} with delay {} {}", scheduled, delay, unit );
+        jobs.put( scheduled.identity, scheduled );
+        scheduled.schedule();
+        return scheduled;
     }
 
     public static PeriodicScheduled scheduleWithFixedDelay( Class owner, long delay, long safePeriod, Consumer<Long> consume ) {
@@ -149,8 +174,46 @@ public final class Scheduler {
         return scheduled;
     }
 
+    /**
+     * Does not start Quartz if no cron job was scheduled yet.
+     *
+     * @return keys of the cron jobs and of the fixed delay jobs, which are named as they were under Quartz
+     */
     @SneakyThrows
     public static Set<JobKey> getAllJobKeys() {
-        return scheduler.getJobKeys( GroupMatcher.anyGroup() );
+        var keys = new HashSet<JobKey>();
+        if( quartzStarted ) keys.addAll( Quartz.scheduler.getJobKeys( GroupMatcher.anyGroup() ) );
+        for( var identity : jobs.keySet() ) keys.add( new JobKey( identity + "/job" ) );
+        return keys;
+    }
+
+    static final class Quartz {
+        static final org.quartz.Scheduler scheduler;
+        static final FunctionJobFactory jobFactory;
+
+        static {
+            try {
+                final StdSchedulerFactory sf = new StdSchedulerFactory();
+                Properties props = new Properties();
+//                props.setProperty( StdSchedulerFactory.PROP_SCHED_SKIP_UPDATE_CHECK, "true" );
+                props.setProperty( StdSchedulerFactory.PROP_JOB_STORE_CLASS, "org.quartz.simpl.RAMJobStore" );
+                props.setProperty( "org.quartz.threadPool.threadCount",
+                    String.valueOf( Runtime.getRuntime().availableProcessors() * 4 ) );
+                sf.initialize( props );
+
+                scheduler = sf.getScheduler();
+                scheduler.setJobFactory( jobFactory = new FunctionJobFactory() );
+
+                scheduler.getListenerManager().addJobListener( new SchedulerLogging() );
+
+                scheduler.start();
+                quartzStarted = true;
+            } catch( org.quartz.SchedulerException e ) {
+                throw Throwables.propagate( e );
+            }
+        }
+
+        private Quartz() {
+        }
     }
 }
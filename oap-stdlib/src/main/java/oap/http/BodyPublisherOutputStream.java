@@ -0,0 +1,191 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.http;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.Flow;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Request body for {@link java.net.http.HttpClient} written as an {@link OutputStream}.
+ * Writes are chunked into buffers handed to the subscriber on demand, the writer blocks only
+ * while {@code capacity} chunks are waiting to be sent.
+ */
+final class BodyPublisherOutputStream extends OutputStream implements Flow.Publisher<ByteBuffer> {
+    private final int chunkSize;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final ArrayDeque<ByteBuffer> queue = new ArrayDeque<>();
+    private Flow.Subscriber<? super ByteBuffer> subscriber;
+    private long demand;
+    private boolean closed;
+    private boolean done;
+    private boolean draining;
+    private boolean aborted;
+    private ByteBuffer current;
+
+    BodyPublisherOutputStream( int chunkSize, int capacity ) {
+        this.chunkSize = chunkSize;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void subscribe( Flow.Subscriber<? super ByteBuffer> subscriber ) {
+        lock.lock();
+        try {
+            if( this.subscriber != null ) {
+                subscriber.onSubscribe( new Subscription() );
+                subscriber.onError( new IllegalStateException( "body is not repeatable" ) );
+                return;
+            }
+            this.subscriber = subscriber;
+        } finally {
+            lock.unlock();
+        }
+        subscriber.onSubscribe( new Subscription() );
+        drain();
+    }
+
+    @Override
+    public void write( int b ) throws IOException {
+        if( current == null ) current = ByteBuffer.allocate( chunkSize );
+        current.put( ( byte ) b );
+        if( !current.hasRemaining() ) enqueue();
+    }
+
+    @Override
+    public void write( @Nonnull byte[] b, int off, int len ) throws IOException {
+        while( len > 0 ) {
+            if( current == null ) current = ByteBuffer.allocate( chunkSize );
+            var chunk = Math.min( len, current.remaining() );
+            current.put( b, off, chunk );
+            off += chunk;
+            len -= chunk;
+            if( !current.hasRemaining() ) enqueue();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if( current != null && current.position() > 0 ) enqueue();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+
+    /**
+     * the request is over, wake up and fail the writer if it is still writing
+     */
+    void abort() {
+        lock.lock();
+        try {
+            aborted = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue() throws IOException {
+        var buffer = current.flip();
+        current = null;
+        lock.lock();
+        try {
+            while( queue.size() >= capacity && !aborted ) changed.await();
+            if( aborted ) throw new IOException( "request is aborted" );
+            queue.add( buffer );
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( e.getMessage() );
+        } finally {
+            lock.unlock();
+        }
+        drain();
+    }
+
+    private void drain() {
+        while( true ) {
+            Flow.Subscriber<? super ByteBuffer> s;
+            ByteBuffer item = null;
+            lock.lock();
+            try {
+                s = subscriber;
+                if( s == null || draining || done || aborted ) return;
+                if( demand > 0 && !queue.isEmpty() ) {
+                    demand--;
+                    item = queue.poll();
+                    changed.signalAll();
+                } else if( closed && queue.isEmpty() ) done = true;
+                else return;
+                draining = true;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                if( item != null ) s.onNext( item );
+                else s.onComplete();
+            } finally {
+                lock.lock();
+                draining = false;
+                lock.unlock();
+            }
+        }
+    }
+
+    private final class Subscription implements Flow.Subscription {
+        @Override
+        public void request( long n ) {
+            lock.lock();
+            try {
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            } finally {
+                lock.unlock();
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            abort();
+        }
+    }
+}
@@ -26,13 +26,16 @@ package oap.http;
 import com.fasterxml.jackson.databind.MappingIterator;
 import com.google.common.base.Preconditions;
 import com.google.common.io.ByteStreams;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
 import lombok.SneakyThrows;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import oap.concurrent.AsyncCallbacks;
 import oap.http.client.HttpClient;
 import oap.io.Closeables;
-import oap.io.Files;
 import oap.io.IoStreams;
 import oap.json.Binder;
 import oap.reflect.TypeRef;
@@ -43,7 +46,7 @@ import oap.util.Stream;
 import oap.util.Throwables;
 import oap.util.function.Try;
 import oap.util.function.Try.ThrowingRunnable;
-import org.apache.http.Header;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.config.CookieSpecs;
@@ -55,9 +58,9 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.client.utils.DateUtils;
 import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.ssl.DefaultHostnameVerifier;
 import org.apache.http.conn.util.PublicSuffixMatcherLoader;
 import org.apache.http.cookie.Cookie;
@@ -74,81 +77,90 @@ import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
 import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
 import org.apache.http.impl.nio.reactor.IOReactorConfig;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
 import org.apache.http.nio.conn.NoopIOSessionStrategy;
 import org.apache.http.nio.conn.SchemeIOSessionStrategy;
 import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
 import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
 import org.apache.http.ssl.SSLContexts;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.io.BufferedInputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
 
 import static java.net.HttpURLConnection.HTTP_MOVED_TEMP;
 import static java.net.HttpURLConnection.HTTP_NOT_MODIFIED;
 import static java.net.HttpURLConnection.HTTP_OK;
+import static java.net.HttpURLConnection.HTTP_PARTIAL;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
-import static oap.io.IoStreams.Encoding.PLAIN;
-import static oap.io.ProgressInputStream.progress;
 import static oap.util.Dates.m;
 import static oap.util.Pair.__;
 import static org.apache.commons.lang3.StringUtils.split;
+import static org.apache.http.HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE;
 import static org.apache.http.entity.ContentType.APPLICATION_OCTET_STREAM;
 
 @Slf4j
 public final class Client implements Closeable {
+    private static final AtomicInteger ids = new AtomicInteger();
+
     public static final Client DEFAULT = custom()
+        .setName( "default" )
         .onError( ( c, e ) -> log.error( e.getMessage(), e ) )
         .onTimeout( c -> log.error( "timeout" ) )
         .build();
-    private static final FutureCallback<org.apache.http.HttpResponse> FUTURE_CALLBACK = new FutureCallback<>() {
-        @Override
-        public void completed( org.apache.http.HttpResponse result ) {
-        }
-
-        @Override
-        public void failed( Exception e ) {
-            log.warn( e.getMessage() );
-        }
-
-        @Override
-        public void cancelled() {
-
-        }
-    };
 
     private final BasicCookieStore basicCookieStore;
     private final ClientBuilder builder;
+    private final String name;
+    private final ConcurrentHashMap<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final AtomicInteger otherRequests = new AtomicInteger();
+    private final List<Meter> meters = new CopyOnWriteArrayList<>();
     private CloseableHttpAsyncClient client;
+    private PoolingNHttpClientConnectionManager connectionManager;
+    private Http2Transport http2;
 
     private Client( BasicCookieStore basicCookieStore, ClientBuilder builder ) {
-        this.client = builder.client();
-
         this.basicCookieStore = basicCookieStore;
         this.builder = builder;
+        this.name = builder.name != null ? builder.name : "client-" + ids.incrementAndGet();
+
+        initialize();
+
+        if( http2 == null ) registerPoolMetrics( "total", null );
+        gauge( "oap_http_client_requests", Tags.of( "client", name, "route", "other" ), otherRequests, AtomicInteger::get );
+    }
+
+    private void initialize() {
+        if( builder.http2 ) http2 = builder.http2();
+        else {
+            connectionManager = builder.connectionManager();
+            client = builder.client( connectionManager );
+        }
     }
 
     public static ClientBuilder custom( Path certificateLocation, String certificatePassword, int connectTimeout, int readTimeout ) {
@@ -272,15 +284,18 @@ public final class Client implements Closeable {
     }
 
     private OutputStreamWithResponse post( ContentType contentType, HttpPost request ) throws UncheckedIOException {
-        try {
-            var pos = new PipedOutputStream();
-            var pis = new PipedInputStream( pos );
-            request.setEntity( new InputStreamEntity( pis, contentType ) );
+        var counter = requests( request.getURI() );
+        counter.incrementAndGet();
 
-            return new OutputStreamWithResponse( pos, execute( request, Map.of() ), request, builder.timeout );
-        } catch( IOException e ) {
-            throw new UncheckedIOException( e );
+        if( http2 != null ) {
+            var stream = http2.stream( request, contentType, builder.streamingBufferSize );
+            return new OutputStreamWithResponse( stream._1, complete( stream._2, counter ), request, builder.timeout );
         }
+
+        var producer = new StreamingRequestProducer( request, contentType, builder.streamingBufferSize );
+        var future = new CompletableFuture<Response>();
+        client.execute( producer, HttpAsyncMethods.createConsumer(), callback( future ) );
+        return new OutputStreamWithResponse( producer.outputStream(), complete( future, counter ), request, builder.timeout );
     }
 
     public Response post( String uri, InputStream content, ContentType contentType ) {
@@ -357,11 +372,12 @@ public final class Client implements Closeable {
     }
 
     public List<Cookie> getCookies() {
-        return basicCookieStore.getCookies();
+        return http2 != null ? http2.getCookies() : basicCookieStore.getCookies();
     }
 
     public void clearCookies() {
-        basicCookieStore.clear();
+        if( http2 != null ) http2.clearCookies();
+        else basicCookieStore.clear();
     }
 
     private CompletableFuture<Response> execute( HttpUriRequest request, Map<String, Object> headers ) {
@@ -373,9 +389,33 @@ public final class Client implements Closeable {
                                                  ThrowingRunnable asyncRunnable ) {
         headers.forEach( ( name, value ) -> request.setHeader( name, value == null ? "" : value.toString() ) );
 
-        var completableFuture = new CompletableFuture<Response>();
+        var counter = requests( request.getURI() );
+        counter.incrementAndGet();
+
+        CompletableFuture<Response> completableFuture;
+        if( http2 != null ) try {
+            completableFuture = http2.execute( request );
+        } catch( IOException e ) {
+            completableFuture = CompletableFuture.failedFuture( e );
+        }
+        else {
+            completableFuture = new CompletableFuture<>();
+            client.execute( request, callback( completableFuture ) );
+        }
+
+        asyncRunnable.run();
+        return complete( completableFuture, counter );
+    }
+
+    private CompletableFuture<Response> complete( CompletableFuture<Response> future, AtomicInteger counter ) {
+        return future.whenComplete( ( r, e ) -> {
+            counter.decrementAndGet();
+            if( e == null ) builder.onSuccess.accept( Client.this );
+        } );
+    }
 
-        client.execute( request, new FutureCallback<>() {
+    private FutureCallback<HttpResponse> callback( CompletableFuture<Response> completableFuture ) {
+        return new FutureCallback<>() {
             @Override
             public void completed( HttpResponse response ) {
                 try {
@@ -397,7 +437,6 @@ public final class Client implements Closeable {
                         response.getStatusLine().getReasonPhrase(),
                         responseHeaders
                     );
-                    builder.onSuccess.accept( Client.this );
 
                     completableFuture.complete( result );
                 } catch( IOException e ) {
@@ -414,21 +453,69 @@ public final class Client implements Closeable {
             public void cancelled() {
                 completableFuture.cancel( false );
             }
+        };
+    }
+
+    /**
+     * in-flight requests (HTTP/2 streams) per route, pool gauges are registered on the first request to a route.
+     * Routes over {@link ClientBuilder#setMaxRouteMetrics(int)} are counted together as route {@code other}.
+     */
+    private AtomicInteger requests( URI uri ) {
+        var scheme = uri.getScheme() != null ? uri.getScheme().toLowerCase() : "http";
+        var port = uri.getPort() > 0 ? uri.getPort() : "https".equals( scheme ) ? 443 : 80;
+        var route = scheme + "://" + uri.getHost() + ":" + port;
+
+        var counter = requests.get( route );
+        if( counter != null ) return counter;
+        if( requests.size() >= builder.maxRouteMetrics ) return otherRequests;
+
+        return requests.computeIfAbsent( route, r -> {
+            var c = new AtomicInteger();
+            gauge( "oap_http_client_requests", Tags.of( "client", name, "route", r ), c, AtomicInteger::get );
+            if( http2 == null )
+                registerPoolMetrics( r, new HttpRoute( new HttpHost( uri.getHost(), port, scheme ), null, "https".equals( scheme ) ) );
+            return c;
         } );
+    }
 
-        asyncRunnable.run();
+    private void registerPoolMetrics( String route, HttpRoute httpRoute ) {
+        var tags = Tags.of( "client", name, "route", route );
+        gauge( "oap_http_client_pool", tags.and( "type", "leased" ), this, c -> c.poolStats( httpRoute ).getLeased() );
+        gauge( "oap_http_client_pool", tags.and( "type", "pending" ), this, c -> c.poolStats( httpRoute ).getPending() );
+        gauge( "oap_http_client_pool", tags.and( "type", "available" ), this, c -> c.poolStats( httpRoute ).getAvailable() );
+    }
 
-        return completableFuture;
+    /**
+     * a gauge already registered by another client with the same name is left to that client,
+     * so that {@link #close()} removes only own gauges
+     */
+    private <T> void gauge( String metric, Tags tags, T obj, ToDoubleFunction<T> value ) {
+        if( Metrics.globalRegistry.find( metric ).tags( tags ).gauge() != null ) {
+            log.warn( "{} {} is already registered, client names should be unique", metric, tags );
+            return;
+        }
+        meters.add( Gauge.builder( metric, obj, value ).tags( tags ).register( Metrics.globalRegistry ) );
     }
 
-    @SneakyThrows
-    public Optional<Path> download( String url, Optional<Long> modificationTime, Optional<Path> file, Consumer<Integer> progress ) {
-        try {
-            var response = resolve( url, modificationTime ).orElse( null );
-            if( response == null ) return Optional.empty();
+    private PoolStats poolStats( HttpRoute route ) {
+        var manager = connectionManager;
+        return route == null ? manager.getTotalStats() : manager.getStats( route );
+    }
 
-            var entity = response.getEntity();
+    public Optional<Path> download( String url, Optional<Long> modificationTime, Optional<Path> file, Consumer<Integer> progress ) {
+        return download( url, modificationTime, file, new DownloadOptions(), progress );
+    }
 
+    /**
+     * Downloads {@code url} into {@code file} (or a temp file) through {@code <file>.part} and an atomic rename,
+     * in parallel ranges when the server supports them. Without range support the response body is buffered in memory
+     * by the async client before it is written, see {@link DownloadOptions}.
+     *
+     * @return empty if not modified since {@code modificationTime}
+     */
+    @SneakyThrows
+    public Optional<Path> download( String url, Optional<Long> modificationTime, Optional<Path> file, DownloadOptions options, Consumer<Integer> progress ) {
+        try {
             final Path path = file.orElseGet( Try.supply( () -> {
                 final IoStreams.Encoding encoding = IoStreams.Encoding.from( url );
 
@@ -437,20 +524,10 @@ public final class Client implements Closeable {
                 return tempFile.toPath();
             } ) );
 
-            try( InputStream in = new BufferedInputStream( entity.getContent() ) ) {
-                IoStreams.write( path, PLAIN, in, false, file.isPresent(), progress( entity.getContentLength(), progress ) );
-            }
-
-            final Header lastModified = response.getLastHeader( "Last-Modified" );
-            if( lastModified != null ) {
-                final Date date = DateUtils.parseDate( lastModified.getValue() );
-
-                Files.setLastModifiedTime( path, date.getTime() );
-            }
-
-            builder.onSuccess.accept( this );
+            var downloaded = new RangedDownload( this, url, path, options, progress ).run( modificationTime );
+            if( downloaded.isEmpty() && file.isEmpty() ) Files.deleteIfExists( path );
 
-            return Optional.of( path );
+            return downloaded;
         } catch( ExecutionException | IOException e ) {
             builder.onError.accept( this, e );
             throw e;
@@ -460,33 +537,47 @@ public final class Client implements Closeable {
         }
     }
 
-    private Optional<HttpResponse> resolve( String url, Optional<Long> ifModifiedSince ) throws InterruptedException, ExecutionException, IOException {
-        HttpGet request = new HttpGet( url );
-        ifModifiedSince.ifPresent( ims -> request.addHeader( "If-Modified-Since", DateUtils.formatDate( new Date( ims ) ) ) );
-        Future<HttpResponse> future = client.execute( request, FUTURE_CALLBACK );
-        HttpResponse response = future.get();
-        if( response.getStatusLine().getStatusCode() == HTTP_OK && response.getEntity() != null )
-            return Optional.of( response );
-        else if( response.getStatusLine().getStatusCode() == HTTP_MOVED_TEMP ) {
-            Header location = response.getFirstHeader( "Location" );
-            if( location == null ) throw new IOException( "redirect w/o location!" );
-            log.debug( "following {}", location.getValue() );
-            return resolve( location.getValue(), Optional.empty() );
-        } else if( response.getStatusLine().getStatusCode() == HTTP_NOT_MODIFIED ) {
+    /**
+     * follows redirects, If-Modified-Since is sent only to the original location.
+     * A range request answered with 416 (e.g. an empty resource) is repeated without Range.
+     *
+     * @return final location and 200/206 response, empty on 304
+     */
+    Optional<Pair<String, Response>> resolve( String url, Map<String, Object> headers ) throws InterruptedException, ExecutionException, IOException {
+        var response = execute( new HttpGet( url ), headers ).get();
+        if( response.code == HTTP_OK || response.code == HTTP_PARTIAL )
+            return Optional.of( __( url, response ) );
+
+        response.close();
+        if( response.code == SC_REQUESTED_RANGE_NOT_SATISFIABLE && headers.containsKey( "Range" ) ) {
+            log.debug( "{}: range not satisfiable, retrying without Range", url );
+            var full = new HashMap<>( headers );
+            full.remove( "Range" );
+            full.remove( "If-Range" );
+            return resolve( url, full );
+        } else if( response.code == HTTP_MOVED_TEMP ) {
+            var location = response.header( "Location" ).orElseThrow( () -> new IOException( "redirect w/o location!" ) );
+            log.debug( "following {}", location );
+            var redirected = new HashMap<>( headers );
+            redirected.remove( "If-Modified-Since" );
+            return resolve( location, redirected );
+        } else if( response.code == HTTP_NOT_MODIFIED ) {
             return Optional.empty();
         } else
-            throw new IOException( response.getStatusLine().toString() );
+            throw new IOException( response.code + " " + response.reasonPhrase );
     }
 
     public void reset() {
         Closeables.close( client );
-        client = builder.client();
+        initialize();
         clearCookies();
     }
 
     @Override
     public void close() {
         Closeables.close( client );
+        meters.forEach( Metrics.globalRegistry::remove );
+        meters.clear();
     }
 
 //    @SneakyThrows
@@ -662,6 +753,10 @@ public final class Client implements Closeable {
         private int maxConnPerRoute = 1000;
         private boolean redirectsEnabled = false;
         private String cookieSpec = CookieSpecs.STANDARD;
+        private boolean http2 = false;
+        private String name;
+        private int maxRouteMetrics = 100;
+        private int streamingBufferSize = 64 * 1024;
 
         public ClientBuilder( Path certificateLocation, String certificatePassword, long connectTimeout, long timeout ) {
             basicCookieStore = new BasicCookieStore();
@@ -672,7 +767,7 @@ public final class Client implements Closeable {
             this.timeout = timeout;
         }
 
-        private HttpAsyncClientBuilder initialize() {
+        private PoolingNHttpClientConnectionManager connectionManager() {
             try {
                 final PoolingNHttpClientConnectionManager connManager = new PoolingNHttpClientConnectionManager(
                     new DefaultConnectingIOReactor( IOReactorConfig.custom()
@@ -693,7 +788,14 @@ public final class Client implements Closeable {
                 connManager.setMaxTotal( maxConnTotal );
                 connManager.setDefaultMaxPerRoute( maxConnPerRoute );
 
-                return ( certificateLocation != null
+                return connManager;
+            } catch( IOReactorException e ) {
+                throw new UncheckedIOException( e );
+            }
+        }
+
+        private HttpAsyncClientBuilder initialize( PoolingNHttpClientConnectionManager connManager ) {
+            return ( certificateLocation != null
                     ? HttpAsyncClients.custom()
                     .setSSLContext( HttpClient.createSSLContext( certificateLocation, certificatePassword ) )
                     : HttpAsyncClients.custom() )
@@ -707,9 +809,12 @@ public final class Client implements Closeable {
                         .setCookieSpec( cookieSpec )
                         .build() )
                     .setDefaultCookieStore( basicCookieStore );
-            } catch( IOReactorException e ) {
-                throw new UncheckedIOException( e );
-            }
+        }
+
+        private Http2Transport http2() {
+            return new Http2Transport( certificateLocation != null
+                ? HttpClient.createSSLContext( certificateLocation, certificatePassword )
+                : null, connectTimeout, timeout, redirectsEnabled );
         }
 
         public ClientBuilder setMaxConnTotal( int maxConnTotal ) {
@@ -736,8 +841,45 @@ public final class Client implements Closeable {
             return this;
         }
 
-        private CloseableHttpAsyncClient client() {
-            final CloseableHttpAsyncClient build = initialize().build();
+        /**
+         * HTTP/2 with multiplexed streams over one connection per origin, HTTP/1.1 if the server does not support it.
+         * Connection pool settings and pool metrics apply to HTTP/1.1 mode only.
+         */
+        public ClientBuilder setHttp2( boolean http2 ) {
+            this.http2 = http2;
+
+            return this;
+        }
+
+        /**
+         * client tag of the oap_http_client_* metrics, should be unique, {@code client-<n>} by default
+         */
+        public ClientBuilder setName( String name ) {
+            this.name = name;
+
+            return this;
+        }
+
+        /**
+         * number of routes with own oap_http_client_* metrics, other routes are reported as route {@code other}
+         */
+        public ClientBuilder setMaxRouteMetrics( int maxRouteMetrics ) {
+            this.maxRouteMetrics = maxRouteMetrics;
+
+            return this;
+        }
+
+        /**
+         * buffer of {@link Client#post(String, ContentType)} streaming uploads, writers block while it is full
+         */
+        public ClientBuilder setStreamingBufferSize( int streamingBufferSize ) {
+            this.streamingBufferSize = streamingBufferSize;
+
+            return this;
+        }
+
+        private CloseableHttpAsyncClient client( PoolingNHttpClientConnectionManager connManager ) {
+            final CloseableHttpAsyncClient build = initialize( connManager ).build();
             build.start();
             return build;
         }
@@ -751,10 +893,10 @@ public final class Client implements Closeable {
         private final CompletableFuture<Response> completableFuture;
         private final HttpRequestBase request;
         private final long timeout;
-        private PipedOutputStream pos;
+        private OutputStream pos;
         private Response response;
 
-        public OutputStreamWithResponse( PipedOutputStream pos, CompletableFuture<Response> completableFuture, HttpRequestBase request, long timeout ) {
+        public OutputStreamWithResponse( OutputStream pos, CompletableFuture<Response> completableFuture, HttpRequestBase request, long timeout ) {
             this.pos = pos;
             this.completableFuture = completableFuture;
             this.request = request;
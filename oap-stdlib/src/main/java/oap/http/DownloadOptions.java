@@ -0,0 +1,68 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package oap.http;
+
+import lombok.ToString;
+
+/**
+ * segmented download settings, see {@link Client#download(String, java.util.Optional, java.util.Optional, DownloadOptions, java.util.function.Consumer)}.
+ * <p>
+ * The file is fetched in {@code chunkSize} HTTP ranges, at most {@code parallelism} at once, into {@code <file>.part}.
+ * Completed chunks are recorded in {@code <file>.part.state}, so an interrupted download continues where it stopped
+ * as long as the server still reports the same ETag (or Last-Modified). Servers without range support get a single request,
+ * whose whole body is buffered in memory by the async client, so it is not suitable for large files on such servers.
+ */
+@ToString
+public class DownloadOptions {
+    public int parallelism = 4;
+    public long chunkSize = 8 * 1024 * 1024;
+    public boolean resume = true;
+    public String checksumAlgorithm;
+    public String checksum;
+
+    public DownloadOptions withParallelism( int parallelism ) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public DownloadOptions withChunkSize( long chunkSize ) {
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    public DownloadOptions withResume( boolean resume ) {
+        this.resume = resume;
+        return this;
+    }
+
+    /**
+     * @param algorithm {@link java.security.MessageDigest} algorithm, e.g. SHA-256
+     * @param checksum  expected digest, hex
+     */
+    public DownloadOptions withChecksum( String algorithm, String checksum ) {
+        this.checksumAlgorithm = algorithm;
+        this.checksum = checksum;
+        return this;
+    }
+}
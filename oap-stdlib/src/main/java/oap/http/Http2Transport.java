@@ -0,0 +1,157 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.http;
+
+import oap.util.Pair;
+import oap.util.function.Try;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.impl.cookie.BasicClientCookie;
+
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.CookieManager;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static oap.util.Pair.__;
+import static org.apache.http.entity.ContentType.APPLICATION_OCTET_STREAM;
+
+/**
+ * HTTP/2 (with HTTP/1.1 fallback) transport for {@link Client} on top of {@link HttpClient}.
+ * Requests to the same origin share one connection and are multiplexed as streams.
+ */
+final class Http2Transport {
+    private static final Set<String> RESTRICTED_HEADERS = Set.of( "connection", "content-length", "expect", "host", "upgrade" );
+
+    private final HttpClient client;
+    private final CookieManager cookieManager = new CookieManager();
+    private final long timeout;
+
+    Http2Transport( SSLContext sslContext, long connectTimeout, long timeout, boolean redirectsEnabled ) {
+        this.timeout = timeout;
+
+        var builder = HttpClient.newBuilder()
+            .version( HttpClient.Version.HTTP_2 )
+            .connectTimeout( Duration.ofMillis( connectTimeout ) )
+            .followRedirects( redirectsEnabled ? HttpClient.Redirect.NORMAL : HttpClient.Redirect.NEVER )
+            .cookieHandler( cookieManager );
+        if( sslContext != null ) builder.sslContext( sslContext );
+
+        client = builder.build();
+    }
+
+    private static Client.Response toResponse( HttpResponse<InputStream> response ) {
+        var headers = new ArrayList<Pair<String, String>>();
+        response.headers().map().forEach( ( name, values ) -> values.forEach( v -> headers.add( __( name, v ) ) ) );
+
+        var contentType = response.headers().firstValue( "Content-Type" )
+            .map( ContentType::parse )
+            .orElse( APPLICATION_OCTET_STREAM );
+
+        return new Client.Response( response.statusCode(), EnglishReasonPhraseCatalog.INSTANCE.getReason( response.statusCode(), null ),
+            headers, contentType, response.body() );
+    }
+
+    private static BodyPublisher body( HttpUriRequest request ) throws IOException {
+        if( !( request instanceof HttpEntityEnclosingRequest ) ) return BodyPublishers.noBody();
+        var entity = ( ( HttpEntityEnclosingRequest ) request ).getEntity();
+        if( entity == null ) return BodyPublishers.noBody();
+
+        if( entity.isRepeatable() && entity.getContentLength() >= 0 && entity.getContentLength() <= Integer.MAX_VALUE ) {
+            var out = new ByteArrayOutputStream( ( int ) entity.getContentLength() );
+            entity.writeTo( out );
+            return BodyPublishers.ofByteArray( out.toByteArray() );
+        }
+        return BodyPublishers.ofInputStream( Try.supply( entity::getContent ) );
+    }
+
+    private HttpRequest.Builder request( HttpUriRequest request ) {
+        var builder = HttpRequest.newBuilder( request.getURI() ).timeout( Duration.ofMillis( timeout ) );
+        for( var header : request.getAllHeaders() )
+            if( !RESTRICTED_HEADERS.contains( header.getName().toLowerCase() ) )
+                builder.header( header.getName(), header.getValue() );
+
+        if( request instanceof HttpEntityEnclosingRequest && request.getFirstHeader( "Content-Type" ) == null ) {
+            var entity = ( ( HttpEntityEnclosingRequest ) request ).getEntity();
+            if( entity != null && entity.getContentType() != null )
+                builder.header( "Content-Type", entity.getContentType().getValue() );
+        }
+        return builder;
+    }
+
+    CompletableFuture<Client.Response> execute( HttpUriRequest request ) throws IOException {
+        var httpRequest = request( request ).method( request.getMethod(), body( request ) ).build();
+
+        return client.sendAsync( httpRequest, BodyHandlers.ofInputStream() ).thenApply( Http2Transport::toResponse );
+    }
+
+    /**
+     * @return stream for the request body, the response completes after the stream is closed
+     */
+    Pair<BodyPublisherOutputStream, CompletableFuture<Client.Response>> stream( HttpUriRequest request, ContentType contentType, int bufferSize ) {
+        var body = new BodyPublisherOutputStream( bufferSize, 4 );
+        var httpRequest = request( request )
+            .header( "Content-Type", contentType.toString() )
+            .method( request.getMethod(), BodyPublishers.fromPublisher( body ) )
+            .build();
+
+        var future = client.sendAsync( httpRequest, BodyHandlers.ofInputStream() )
+            .whenComplete( ( r, e ) -> body.abort() )
+            .thenApply( Http2Transport::toResponse );
+
+        return __( body, future );
+    }
+
+    List<Cookie> getCookies() {
+        var cookies = new ArrayList<Cookie>();
+        for( var httpCookie : cookieManager.getCookieStore().getCookies() ) {
+            var cookie = new BasicClientCookie( httpCookie.getName(), httpCookie.getValue() );
+            cookie.setDomain( httpCookie.getDomain() );
+            cookie.setPath( httpCookie.getPath() );
+            cookie.setSecure( httpCookie.getSecure() );
+            cookies.add( cookie );
+        }
+        return cookies;
+    }
+
+    void clearCookies() {
+        cookieManager.getCookieStore().removeAll();
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.http;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Lazy view over a raw query string or Cookie header. Nothing is parsed until the first lookup,
+ * then one pass builds an index of name/value offsets. Values are copied and decoded only when accessed,
+ * numbers are parsed straight from the source.
+ */
+public final class Parameters {
+    private static final int[] EMPTY = new int[0];
+
+    private final String source;
+    private final int from;
+    private final int to;
+    private final char separator;
+    private final boolean cookie;
+    /**
+     * nameStart, nameEnd, valueStart, valueEnd per parameter, valueStart = -1 if there is no '='
+     */
+    private int[] index;
+    private int size;
+
+    private Parameters( String source, int from, int to, char separator, boolean cookie ) {
+        this.source = source;
+        this.from = from;
+        this.to = to;
+        this.separator = separator;
+        this.cookie = cookie;
+    }
+
+    /**
+     * @param query raw query string, not decoded
+     */
+    public static Parameters of( String query ) {
+        return query == null ? new Parameters( "", 0, 0, '&', false ) : new Parameters( query, 0, query.length(), '&', false );
+    }
+
+    /**
+     * @param uri request uri, parameters start after '?'
+     */
+    public static Parameters query( String uri ) {
+        var q = uri.indexOf( '?' );
+        return q < 0 ? new Parameters( uri, uri.length(), uri.length(), '&', false ) : new Parameters( uri, q + 1, uri.length(), '&', false );
+    }
+
+    /**
+     * @param header Cookie header value, values are not decoded
+     */
+    public static Parameters cookies( String header ) {
+        return header == null ? new Parameters( "", 0, 0, ';', true ) : new Parameters( header, 0, header.length(), ';', true );
+    }
+
+    public int size() {
+        ensureIndexed();
+        return size;
+    }
+
+    public boolean contains( String name ) {
+        return find( name, 0 ) >= 0;
+    }
+
+    /**
+     * @return first decoded value or null
+     */
+    public String get( String name ) {
+        var i = find( name, 0 );
+        return i < 0 ? null : value( i );
+    }
+
+    public List<String> getAll( String name ) {
+        var result = new ArrayList<String>( 1 );
+        for( var i = find( name, 0 ); i >= 0; i = find( name, i + 1 ) ) result.add( value( i ) );
+        return result;
+    }
+
+    /**
+     * @return first value without copying if it does not need decoding, null if absent
+     */
+    public CharSequence getView( String name ) {
+        var i = find( name, 0 );
+        if( i < 0 ) return null;
+        var start = index[i * 4 + 2];
+        if( start < 0 ) return cookie ? null : "";
+        var end = index[i * 4 + 3];
+        return needsDecoding( start, end ) ? value( i ) : CharBuffer.wrap( source, start, end );
+    }
+
+    public int getInt( String name, int def ) {
+        var value = getLong( name, def );
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? def : ( int ) value;
+    }
+
+    public long getLong( String name, long def ) {
+        var i = find( name, 0 );
+        if( i < 0 ) return def;
+        var start = index[i * 4 + 2];
+        var end = index[i * 4 + 3];
+        if( start < 0 || start == end ) return def;
+
+        var negative = source.charAt( start ) == '-';
+        var p = negative || source.charAt( start ) == '+' ? start + 1 : start;
+        if( p == end || end - p > 18 ) try {
+            return Long.parseLong( value( i ) );
+        } catch( NumberFormatException e ) {
+            return def;
+        }
+
+        long result = 0;
+        for( ; p < end; p++ ) {
+            var c = source.charAt( p );
+            if( c < '0' || c > '9' ) return def;
+            result = result * 10 + ( c - '0' );
+        }
+        return negative ? -result : result;
+    }
+
+    public void forEach( BiConsumer<String, String> consumer ) {
+        ensureIndexed();
+        for( var i = 0; i < size; i++ )
+            consumer.accept( source.substring( index[i * 4], index[i * 4 + 1] ), value( i ) );
+    }
+
+    private String value( int i ) {
+        var start = index[i * 4 + 2];
+        if( start < 0 ) return cookie ? null : "";
+        var end = index[i * 4 + 3];
+        var value = source.substring( start, end );
+        return needsDecoding( start, end ) ? Url.decode( value ) : value;
+    }
+
+    private boolean needsDecoding( int start, int end ) {
+        if( cookie ) return false;
+        for( var p = start; p < end; p++ ) {
+            var c = source.charAt( p );
+            if( c == '%' || c == '+' ) return true;
+        }
+        return false;
+    }
+
+    private int find( String name, int fromParameter ) {
+        ensureIndexed();
+        var length = name.length();
+        for( var i = fromParameter; i < size; i++ ) {
+            var start = index[i * 4];
+            if( index[i * 4 + 1] - start == length && source.regionMatches( start, name, 0, length ) ) return i;
+        }
+        return -1;
+    }
+
+    private void ensureIndexed() {
+        if( index != null ) return;
+
+        var idx = EMPTY;
+        var n = 0;
+        var p = from;
+        while( p < to ) {
+            var end = source.indexOf( separator, p );
+            if( end < 0 || end > to ) end = to;
+
+            var s = p;
+            var e = end;
+            if( cookie ) {
+                while( s < e && source.charAt( s ) == ' ' ) s++;
+                while( e > s && source.charAt( e - 1 ) == ' ' ) e--;
+            }
+
+            if( s < e ) {
+                if( idx.length < ( n + 1 ) * 4 ) idx = Arrays.copyOf( idx, Math.max( 16, idx.length * 2 ) );
+
+                var eq = s;
+                while( eq < e && source.charAt( eq ) != '=' ) eq++;
+                if( eq > s && eq < e ) {
+                    idx[n * 4] = s;
+                    idx[n * 4 + 1] = eq;
+                    idx[n * 4 + 2] = eq + 1;
+                    idx[n * 4 + 3] = e;
+                } else {
+                    idx[n * 4] = s;
+                    idx[n * 4 + 1] = e;
+                    idx[n * 4 + 2] = cookie ? -1 : e;
+                    idx[n * 4 + 3] = e;
+                }
+                n++;
+            }
+
+            p = end + 1;
+        }
+
+        size = n;
+        index = idx;
+    }
+
+    @Override
+    public String toString() {
+        return source.substring( from, to );
+    }
+}
@@ -0,0 +1,352 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package oap.http;
+
+import lombok.extern.slf4j.Slf4j;
+import oap.concurrent.Executors;
+import oap.concurrent.VirtualThreads;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.http.client.utils.DateUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static java.net.HttpURLConnection.HTTP_OK;
+import static java.net.HttpURLConnection.HTTP_PARTIAL;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * One download of {@link Client#download(String, Optional, Optional, DownloadOptions, java.util.function.Consumer)}.
+ * The first chunk request doubles as the probe: 206 switches to parallel ranges, 200 means no range support
+ * (or a changed resource on resume, or an empty resource after 416) and the body is written as a whole.
+ * Only ranges bound the memory: a 200 body is buffered by the async client before it is written.
+ */
+@Slf4j
+class RangedDownload {
+    private static final Pattern CONTENT_RANGE = Pattern.compile( "bytes\\s+(\\d+)-(\\d+)/(\\d+)" );
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Client client;
+    private final String url;
+    private final Path path;
+    private final Path part;
+    private final Path state;
+    private final DownloadOptions options;
+    private final Consumer<Integer> progress;
+    private final AtomicLong downloaded = new AtomicLong();
+    private final AtomicInteger lastReport = new AtomicInteger();
+    private volatile long length = -1;
+
+    RangedDownload( Client client, String url, Path path, DownloadOptions options, Consumer<Integer> progress ) {
+        this.client = client;
+        this.url = url;
+        this.path = path;
+        this.part = path.resolveSibling( path.getFileName() + ".part" );
+        this.state = path.resolveSibling( path.getFileName() + ".part.state" );
+        this.options = options;
+        this.progress = progress;
+    }
+
+    Optional<Path> run( Optional<Long> ifModifiedSince ) throws IOException, InterruptedException, ExecutionException {
+        oap.io.Files.ensureFile( part );
+
+        var previous = options.resume ? State.load( state ) : null;
+        if( previous != null && !Files.exists( part ) ) previous = null;
+
+        var headers = new HashMap<String, Object>();
+        headers.put( "Range", range( 0 ) );
+        if( previous != null ) headers.put( "If-Range", previous.validator );
+        ifModifiedSince.ifPresent( ims -> headers.put( "If-Modified-Since", DateUtils.formatDate( new Date( ims ) ) ) );
+
+        var resolved = client.resolve( url, headers );
+        if( resolved.isEmpty() ) return Optional.empty();
+
+        var location = resolved.get()._1;
+        var response = resolved.get()._2;
+        try( response ) {
+            if( response.code == HTTP_PARTIAL ) {
+                var range = contentRange( response )
+                    .filter( r -> r[0] == 0 )
+                    .orElseThrow( () -> new IOException( location + ": unexpected Content-Range " + response.header( "Content-Range" ).orElse( "" ) ) );
+                ranged( location, response, range[2], validator( response ), previous );
+            } else if( response.code == HTTP_OK ) {
+                Files.deleteIfExists( state );
+                length = response.header( "Content-Length" ).map( Long::parseLong ).orElse( -1L );
+                try( var channel = FileChannel.open( part, CREATE, WRITE, TRUNCATE_EXISTING ) ) {
+                    transfer( body( response ), channel, 0, length );
+                    channel.force( false );
+                }
+            } else throw new IOException( location + ": " + response.code + " " + response.reasonPhrase );
+        }
+
+        complete( response.header( "Last-Modified" ) );
+
+        return Optional.of( path );
+    }
+
+    private void ranged( String location, Client.Response first, long length, String validator, State previous ) throws IOException, InterruptedException, ExecutionException {
+        this.length = length;
+
+        var chunks = ( int ) ( ( length + options.chunkSize - 1 ) / options.chunkSize );
+        var resumed = previous != null && previous.matches( validator, length, options.chunkSize );
+        var current = resumed ? previous : new State( validator, length, options.chunkSize, new BitSet( chunks ) );
+        if( resumed ) log.debug( "{}: resuming, {}/{} chunks done", location, current.done.cardinality(), chunks );
+        else Files.deleteIfExists( state );
+
+        current.done.clear( 0 );
+        downloaded.set( current.done.stream().mapToLong( this::chunkLength ).sum() );
+
+        OpenOption[] open = resumed ? new OpenOption[] { CREATE, WRITE } : new OpenOption[] { CREATE, WRITE, TRUNCATE_EXISTING };
+        try( var channel = FileChannel.open( part, open ) ) {
+            transfer( body( first ), channel, 0, chunkLength( 0 ) );
+            complete( current, 0, channel );
+
+            var pending = IntStream.range( 1, chunks ).filter( i -> !current.done.get( i ) ).toArray();
+            if( pending.length > 0 ) {
+                var executor = Executors.newFixedThreadPool( Math.min( options.parallelism, pending.length ), VirtualThreads.factory( "download" ) );
+                try {
+                    var futures = IntStream.of( pending )
+                        .mapToObj( i -> executor.submit( () -> {
+                            chunk( location, channel, current, i );
+                            return null;
+                        } ) )
+                        .toList();
+                    for( Future<?> future : futures ) future.get();
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+
+            channel.force( false );
+        }
+    }
+
+    private void chunk( String location, FileChannel channel, State current, int index ) throws IOException, InterruptedException, ExecutionException {
+        var from = index * options.chunkSize;
+        var to = from + chunkLength( index ) - 1;
+
+        var headers = new HashMap<String, Object>();
+        headers.put( "Range", range( index ) );
+        if( current.validator != null ) headers.put( "If-Range", current.validator );
+
+        var response = client.resolve( location, headers )
+            .map( p -> p._2 )
+            .orElseThrow( () -> new IOException( location + ": not modified" ) );
+        try( response ) {
+            if( response.code != HTTP_PARTIAL )
+                throw new IOException( location + ": resource changed during download" );
+
+            var range = contentRange( response );
+            if( range.isEmpty() || range.get()[0] != from || range.get()[1] != to || range.get()[2] != length )
+                throw new IOException( location + ": unexpected Content-Range " + response.header( "Content-Range" ).orElse( "" ) );
+
+            transfer( body( response ), channel, from, to - from + 1 );
+        }
+
+        complete( current, index, channel );
+    }
+
+    private void complete( State current, int index, FileChannel channel ) throws IOException {
+        synchronized( current ) {
+            current.done.set( index );
+            if( current.validator == null ) return;
+
+            channel.force( false );
+            current.store( state );
+        }
+    }
+
+    private void complete( Optional<String> lastModified ) throws IOException {
+        if( options.checksum != null ) verify();
+
+        var date = lastModified.map( DateUtils::parseDate ).orElse( null );
+        if( date != null ) Files.setLastModifiedTime( part, FileTime.fromMillis( date.getTime() ) );
+
+        try {
+            Files.move( part, path, REPLACE_EXISTING, ATOMIC_MOVE );
+        } catch( AtomicMoveNotSupportedException e ) {
+            Files.move( part, path, REPLACE_EXISTING );
+        }
+        Files.deleteIfExists( state );
+
+        if( lastReport.getAndSet( 100 ) < 100 ) progress.accept( 100 );
+    }
+
+    private void verify() throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance( options.checksumAlgorithm );
+        } catch( NoSuchAlgorithmException e ) {
+            throw new IOException( e );
+        }
+
+        try( var in = new DigestInputStream( Files.newInputStream( part ), digest ) ) {
+            in.transferTo( OutputStream.nullOutputStream() );
+        }
+
+        var actual = Hex.encodeHexString( digest.digest() );
+        if( !actual.equalsIgnoreCase( options.checksum ) ) {
+            Files.deleteIfExists( part );
+            Files.deleteIfExists( state );
+            throw new IOException( url + ": " + options.checksumAlgorithm + " mismatch, expected " + options.checksum + ", actual " + actual );
+        }
+    }
+
+    private void transfer( InputStream in, FileChannel channel, long position, long expected ) throws IOException {
+        var buffer = new byte[BUFFER_SIZE];
+        var written = 0L;
+        int read;
+        while( ( read = in.read( buffer ) ) >= 0 ) {
+            var bb = ByteBuffer.wrap( buffer, 0, read );
+            while( bb.hasRemaining() ) position += channel.write( bb, position );
+            written += read;
+            report( read );
+        }
+
+        if( expected >= 0 && written != expected )
+            throw new IOException( url + ": expected " + expected + " bytes, received " + written );
+    }
+
+    private static InputStream body( Client.Response response ) {
+        var in = response.getInputStream();
+        return in != null ? in : InputStream.nullInputStream();
+    }
+
+    private void report( long bytes ) {
+        var soFar = downloaded.addAndGet( bytes );
+        if( length <= 0 ) return;
+
+        var percent = ( int ) Math.min( 100, soFar * 100 / length );
+        var last = lastReport.get();
+        if( percent > last && lastReport.compareAndSet( last, percent ) ) progress.accept( percent );
+    }
+
+    private String range( int index ) {
+        var from = index * options.chunkSize;
+        return "bytes=" + from + "-" + ( from + ( length < 0 ? options.chunkSize : chunkLength( index ) ) - 1 );
+    }
+
+    private long chunkLength( int index ) {
+        return Math.min( options.chunkSize, length - index * options.chunkSize );
+    }
+
+    private static Optional<long[]> contentRange( Client.Response response ) {
+        return response.header( "Content-Range" )
+            .map( CONTENT_RANGE::matcher )
+            .filter( Matcher::matches )
+            .map( m -> new long[] { Long.parseLong( m.group( 1 ) ), Long.parseLong( m.group( 2 ) ), Long.parseLong( m.group( 3 ) ) } );
+    }
+
+    /**
+     * If-Range accepts only a strong ETag or a date, without either a download is not resumable
+     */
+    private static String validator( Client.Response response ) {
+        return response.header( "ETag" )
+            .filter( etag -> !etag.startsWith( "W/" ) )
+            .or( () -> response.header( "Last-Modified" ) )
+            .orElse( null );
+    }
+
+    private static final class State {
+        final String validator;
+        final long length;
+        final long chunkSize;
+        final BitSet done;
+
+        State( String validator, long length, long chunkSize, BitSet done ) {
+            this.validator = validator;
+            this.length = length;
+            this.chunkSize = chunkSize;
+            this.done = done;
+        }
+
+        static State load( Path path ) {
+            if( !Files.exists( path ) ) return null;
+
+            try( Reader reader = Files.newBufferedReader( path ) ) {
+                var properties = new Properties();
+                properties.load( reader );
+
+                var done = new BitSet();
+                var chunks = properties.getProperty( "done", "" );
+                if( !chunks.isEmpty() ) for( var chunk : chunks.split( "," ) ) done.set( Integer.parseInt( chunk ) );
+
+                return new State( properties.getProperty( "validator" ),
+                    Long.parseLong( properties.getProperty( "length" ) ),
+                    Long.parseLong( properties.getProperty( "chunkSize" ) ),
+                    done );
+            } catch( IOException | RuntimeException e ) {
+                log.warn( "{}: {}, starting over", path, e.getMessage() );
+                return null;
+            }
+        }
+
+        boolean matches( String validator, long length, long chunkSize ) {
+            return validator != null && validator.equals( this.validator ) && this.length == length && this.chunkSize == chunkSize;
+        }
+
+        void store( Path path ) throws IOException {
+            var properties = new Properties();
+            properties.setProperty( "validator", validator );
+            properties.setProperty( "length", String.valueOf( length ) );
+            properties.setProperty( "chunkSize", String.valueOf( chunkSize ) );
+            properties.setProperty( "done", done.stream().mapToObj( String::valueOf ).collect( Collectors.joining( "," ) ) );
+
+            try( Writer writer = Files.newBufferedWriter( path ) ) {
+                properties.store( writer, null );
+            }
+        }
+    }
+}
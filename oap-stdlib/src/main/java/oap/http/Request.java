@@ -25,7 +25,6 @@
 package oap.http;
 
 import com.google.common.base.MoreObjects;
-import com.google.common.base.Splitter;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
 import com.google.common.io.ByteStreams;
@@ -35,7 +34,6 @@ import oap.util.Lists;
 import oap.util.Strings;
 import oap.util.function.Try;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpRequest;
 import org.apache.http.entity.ContentType;
@@ -50,7 +48,6 @@ import java.util.Optional;
 import java.util.zip.GZIPInputStream;
 
 public class Request {
-    private static final Splitter SPLITTER = Splitter.on( ";" ).trimResults().omitEmptyStrings();
     public final HttpRequest underlying;
     public final Context context;
     public final Optional<InputStream> body;
@@ -64,8 +61,10 @@ public class Request {
     private UniqueParams uniqueParams;
     private ListMultimap<String, String> headers;
     private Map<String, String> cookies;
+    private Parameters cookieParameters;
     private String requestLine;
-    private ListMultimap<String, String> params;
+    private Parameters query;
+    private Parameters form;
 
     public Request( HttpRequest underlying, Context context ) {
         this.underlying = underlying;
@@ -77,16 +76,22 @@ public class Request {
         this.ip = header( "X-Forwarded-For" ).orElse( context.remoteAddress.getHostAddress() );
     }
 
+    /**
+     * @return lazily parsed query string, use it for primitive and {@link CharSequence} access
+     */
+    public Parameters query() {
+        if( query == null ) query = Parameters.query( uri );
+        return query;
+    }
+
     public Optional<String> parameter( String name ) {
-        ensureParametersParsed();
-        List<String> values = params.get( name );
-        if( values.isEmpty() ) return Optional.empty();
-        return Optional.ofNullable( values.get( 0 ) );
+        var value = query().get( name );
+        if( value == null && form() != null ) value = form.get( name );
+        return Optional.ofNullable( value );
     }
 
     public String parameter( String name, String def ) {
-        ensureParametersParsed();
-        return Lists.headOf( params.get( name ) ).orElse( def );
+        return parameter( name ).orElse( def );
     }
 
     @Deprecated
@@ -95,20 +100,21 @@ public class Request {
     }
 
     public List<String> parameters( String name ) {
-        ensureParametersParsed();
-        return params.get( name );
+        var values = query().getAll( name );
+        if( form() != null ) values.addAll( form.getAll( name ) );
+        return values;
     }
 
     @SneakyThrows
-    private void ensureParametersParsed() {
-        if( this.params != null ) return;
-        this.params = ArrayListMultimap.create();
-        Url.parseQuery( Strings.substringAfter( uri, "?" ), this.params );
-        var contentType = underlying.getFirstHeader( "Content-Type" );
-        if( contentType != null && contentType.getValue().startsWith( "application/x-www-form-urlencoded" )
-            && underlying instanceof HttpEntityEnclosingRequest )
-            Url.parseQuery( EntityUtils.toString( ( ( HttpEntityEnclosingRequest ) underlying ).getEntity() ), this.params );
-
+    private Parameters form() {
+        if( form == null ) {
+            var contentType = underlying.getFirstHeader( "Content-Type" );
+            if( contentType != null && contentType.getValue().startsWith( "application/x-www-form-urlencoded" )
+                && underlying instanceof HttpEntityEnclosingRequest )
+                form = Parameters.of( EntityUtils.toString( ( ( HttpEntityEnclosingRequest ) underlying ).getEntity() ) );
+            else form = Parameters.of( null );
+        }
+        return form.size() > 0 ? form : null;
     }
 
     /**
@@ -166,21 +172,22 @@ public class Request {
         return headers;
     }
 
+    /**
+     * @return cookies by name, the first value wins for duplicate names as in {@link #cookie(String)}
+     */
     public Map<String, String> getCookies() {
         if( cookies == null ) {
             cookies = new HashMap<>();
-
-            header( "Cookie" ).ifPresent( header -> {
-                for( var cookie : SPLITTER.split( header ) ) {
-                    var p = StringUtils.splitByWholeSeparatorPreserveAllTokens( cookie, "=", 2 );
-                    if( p.length > 1 ) cookies.put( p[0], p[1] );
-                    else cookies.put( p[0], null );
-                }
-            } );
+            cookieParameters().forEach( cookies::putIfAbsent );
         }
         return cookies;
     }
 
+    private Parameters cookieParameters() {
+        if( cookieParameters == null ) cookieParameters = Parameters.cookies( header( "Cookie" ).orElse( null ) );
+        return cookieParameters;
+    }
+
     public HttpMethod getHttpMethod() {
         return HttpMethod.valueOf( underlying.getRequestLine().getMethod().toUpperCase() );
     }
@@ -233,11 +240,8 @@ public class Request {
     }
 
     public Optional<String> header( String name ) {
-        ListMultimap<String, String> headers = getHeaders();
-        String normalisedName = name.toLowerCase();
-        return headers.containsKey( normalisedName )
-            ? Lists.headOf( headers.get( normalisedName ) )
-            : Optional.empty();
+        var header = underlying.getFirstHeader( name );
+        return header != null ? Optional.of( header.getValue() ) : Optional.empty();
     }
 
     /**
@@ -253,7 +257,7 @@ public class Request {
     }
 
     public Optional<String> cookie( String name ) {
-        return Optional.ofNullable( getCookies().get( name ) );
+        return Optional.ofNullable( cookies != null ? cookies.get( name ) : cookieParameters().get( name ) );
     }
 
     @Override
@@ -262,7 +266,7 @@ public class Request {
             .add( "baseUrl", getBaseUrl() )
             .add( "requestLine", getRequestLine() )
             .add( "method", getHttpMethod() )
-            .add( "params", this.params )
+            .add( "params", this.query )
             .omitNullValues()
             .toString();
     }
@@ -274,7 +278,7 @@ public class Request {
             .add( "ip", this.ip )
             .add( "ua", this.ua )
             .add( "uri", this.uri )
-            .add( "params", this.params )
+            .add( "params", this.query )
             .add( "headers", this.getHeaders() )
             .add( "cookies", getCookies() )
             .omitNullValues()
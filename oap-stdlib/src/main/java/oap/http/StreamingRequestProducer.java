@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.http;
+
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.ContentOutputStream;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.util.SharedOutputBuffer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Chunked request body written by the caller thread into a bounded buffer and sent by the I/O reactor
+ * when the connection is writable, no extra thread or pipe in between.
+ */
+final class StreamingRequestProducer implements HttpAsyncRequestProducer {
+    private final HttpHost target;
+    private final HttpUriRequest request;
+    private final SharedOutputBuffer buffer;
+
+    StreamingRequestProducer( HttpUriRequest request, ContentType contentType, int bufferSize ) {
+        this.target = URIUtils.extractHost( request.getURI() );
+        this.request = request;
+        this.buffer = new SharedOutputBuffer( bufferSize );
+
+        var entity = new BasicHttpEntity();
+        entity.setChunked( true );
+        entity.setContentLength( -1 );
+        entity.setContentType( contentType.toString() );
+        ( ( HttpEntityEnclosingRequest ) request ).setEntity( entity );
+    }
+
+    OutputStream outputStream() {
+        return new ContentOutputStream( buffer );
+    }
+
+    @Override
+    public HttpHost getTarget() {
+        return target;
+    }
+
+    @Override
+    public HttpRequest generateRequest() {
+        return request;
+    }
+
+    @Override
+    public void produceContent( ContentEncoder encoder, IOControl ioctrl ) throws IOException {
+        buffer.produceContent( encoder, ioctrl );
+    }
+
+    @Override
+    public void requestCompleted( HttpContext context ) {
+    }
+
+    @Override
+    public void failed( Exception ex ) {
+        buffer.shutdown();
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public void resetRequest() {
+        buffer.shutdown();
+    }
+
+    @Override
+    public void close() {
+        buffer.shutdown();
+    }
+}
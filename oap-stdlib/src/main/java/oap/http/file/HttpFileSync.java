@@ -27,6 +27,7 @@ package oap.http.file;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import oap.http.Client;
+import oap.http.DownloadOptions;
 import oap.io.AbstractFileSync;
 
 import java.nio.file.Files;
@@ -35,6 +36,8 @@ import java.util.Optional;
 
 @Slf4j
 public class HttpFileSync extends AbstractFileSync {
+    public final DownloadOptions options = new DownloadOptions();
+
     public HttpFileSync() {
         super( "http", "https" );
     }
@@ -43,6 +46,6 @@ public class HttpFileSync extends AbstractFileSync {
     protected Optional<Path> download() {
         Optional<Long> modificationTime = Files.exists( localFile )
             ? Optional.of( Files.getLastModifiedTime( localFile ).toMillis() ) : Optional.empty();
-        return Client.DEFAULT.download( uri.toString(), modificationTime, Optional.of( localFile ), i -> {} );
+        return Client.DEFAULT.download( uri.toString(), modificationTime, Optional.of( localFile ), options, i -> {} );
     }
 }
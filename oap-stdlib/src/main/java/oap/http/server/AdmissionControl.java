@@ -0,0 +1,186 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.http.server;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Request admission based on the time a request waited for a worker (queue sojourn time).
+ * <p>
+ * CoDel-style: if the minimum sojourn time within an {@link #interval} stays above {@link #targetDelay},
+ * the lowest priority class of contexts is shed for the next interval, then the next one, and so on.
+ * Each interval below the target restores one class. The highest priority class is never shed,
+ * but any request whose time budget is already spent in the queue is rejected as {@link Decision#EXPIRED}.
+ * <p>
+ * Sojourn time is the time from the hand-over of a connection with a request to the worker pool until a worker picks
+ * it up. Keep-alive requests served by a worker bound to the connection did not wait and count as 0, see
+ * {@link oap.http.server.apache.ApacheHttpServer#parkIdleConnections} for a per request measure.
+ * <p>
+ * Meters are tagged with {@code name}, give each server its own name.
+ */
+@Slf4j
+public class AdmissionControl {
+    /**
+     * acceptable sojourn time, ms
+     */
+    public long targetDelay = 5;
+    /**
+     * ms
+     */
+    public long interval = 100;
+    /**
+     * context -> priority, higher is more important. Assign a new map to change priorities at runtime,
+     * changes in place are not picked up.
+     */
+    public Map<String, Integer> priorities = new HashMap<>();
+    public int defaultPriority = 0;
+    /**
+     * context -> time budget of a request, ms
+     */
+    public Map<String, Long> timeouts = new HashMap<>();
+    /**
+     * optional request header with the remaining time budget in ms, overrides {@link #timeouts}
+     */
+    public String deadlineHeader;
+
+    public final String name;
+
+    private final AtomicInteger level = new AtomicInteger();
+    private final AtomicLong minSojourn = new AtomicLong( Long.MAX_VALUE );
+    private final AtomicLong windowEnd = new AtomicLong( System.nanoTime() );
+    private final ConcurrentHashMap<String, Counter[]> counters = new ConcurrentHashMap<>();
+    private final Timer sojournTimer;
+    private volatile Classes classes;
+
+    public AdmissionControl() {
+        this( "default" );
+    }
+
+    public AdmissionControl( String name ) {
+        this.name = name;
+        this.sojournTimer = Metrics.timer( "oap_http_admission_sojourn", "name", name );
+        Metrics.gauge( "oap_http_admission_level", Tags.of( "name", name ), level );
+    }
+
+    /**
+     * @param context        bound context
+     * @param sojourn        time the request waited for a worker, ns
+     * @param deadlineHeader value of {@link #deadlineHeader}, may be null
+     */
+    public Decision admit( String context, long sojourn, String deadlineHeader ) {
+        sojournTimer.record( sojourn, TimeUnit.NANOSECONDS );
+        update( System.nanoTime(), sojourn );
+
+        var timeout = NumberUtils.toLong( deadlineHeader, timeouts.getOrDefault( context, -1L ) );
+
+        Decision decision;
+        if( timeout >= 0 && sojourn >= TimeUnit.MILLISECONDS.toNanos( timeout ) ) decision = Decision.EXPIRED;
+        else if( shed( priorities.getOrDefault( context, defaultPriority ) ) ) decision = Decision.SHED;
+        else decision = Decision.ADMITTED;
+
+        counters( context )[decision.ordinal()].increment();
+
+        return decision;
+    }
+
+    public int getLevel() {
+        return level.get();
+    }
+
+    private boolean shed( int priority ) {
+        var l = level.get();
+        if( l <= 0 ) return false;
+        var c = classes();
+        return priority < c[Math.min( l, c.length - 1 )];
+    }
+
+    private void update( long now, long sojourn ) {
+        minSojourn.accumulateAndGet( sojourn, Math::min );
+
+        var end = windowEnd.get();
+        if( now - end < 0 || !windowEnd.compareAndSet( end, now + TimeUnit.MILLISECONDS.toNanos( interval ) ) )
+            return;
+
+        var min = minSojourn.getAndSet( Long.MAX_VALUE );
+        var maxLevel = classes().length - 1;
+        if( min > TimeUnit.MILLISECONDS.toNanos( targetDelay ) ) {
+            var l = level.get();
+            if( l < maxLevel && level.compareAndSet( l, l + 1 ) )
+                log.warn( "sojourn time {}ms > {}ms, shedding priorities < {}", TimeUnit.NANOSECONDS.toMillis( min ), targetDelay, classes()[l + 1] );
+        } else if( level.get() > 0 && level.decrementAndGet() == 0 )
+            log.info( "sojourn time is back to normal, shedding stopped" );
+    }
+
+    /**
+     * @return distinct priorities in ascending order, recomputed when {@link #priorities} is replaced or {@link #defaultPriority} changes
+     */
+    private int[] classes() {
+        var c = classes;
+        if( c == null || c.defaultPriority != defaultPriority || c.priorities != priorities )
+            classes = c = new Classes( priorities, defaultPriority );
+        return c.values;
+    }
+
+    private Counter[] counters( String context ) {
+        return counters.computeIfAbsent( context, c -> {
+            var values = Decision.values();
+            var result = new Counter[values.length];
+            for( var d : values )
+                result[d.ordinal()] = Metrics.counter( "oap_http_admission", "name", name, "context", c, "decision", d.name().toLowerCase() );
+            return result;
+        } );
+    }
+
+    private static final class Classes {
+        final Map<String, Integer> priorities;
+        final int defaultPriority;
+        final int[] values;
+
+        Classes( Map<String, Integer> priorities, int defaultPriority ) {
+            this.priorities = priorities;
+            this.defaultPriority = defaultPriority;
+            var set = new TreeSet<>( priorities.values() );
+            set.add( defaultPriority );
+            this.values = set.stream().mapToInt( Integer::intValue ).toArray();
+        }
+    }
+
+    public enum Decision {
+        ADMITTED, SHED, EXPIRED
+    }
+}
@@ -30,11 +30,14 @@ import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.Metrics;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import oap.concurrent.Executors;
 import oap.concurrent.ThreadPoolExecutor;
+import oap.concurrent.VirtualThreads;
 import oap.http.ClasspathResourceHandler;
 import oap.http.Protocol;
 import oap.http.cors.CorsPolicy;
 import oap.http.cors.GenericCorsPolicy;
+import oap.http.server.AdmissionControl;
 import oap.http.server.Handler;
 import oap.http.server.HttpServer;
 import oap.http.server.health.HealthHttpHandler;
@@ -42,6 +45,7 @@ import oap.io.Closeables;
 import oap.net.Inet;
 import oap.util.Dates;
 import org.apache.http.ConnectionClosedException;
+import org.apache.http.HttpException;
 import org.apache.http.HttpVersion;
 import org.apache.http.impl.DefaultBHttpServerConnection;
 import org.apache.http.impl.DefaultBHttpServerConnectionFactory;
@@ -69,6 +73,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -94,11 +99,39 @@ public class ApacheHttpServer implements HttpServer, Closeable {
     public int keepAliveTimeout = 1000 * 20;
     public String originalServer = "OAP Server/1.0";
     public boolean responseDate = true;
+    /**
+     * Connections are parked on virtual threads while idle, {@code workers} limits concurrent requests instead of
+     * connections, requests over the limit wait for a worker. {@code queueSize} is not used in this mode.
+     * Reset to false on start if the JVM has no virtual threads, {@link #parkIdleConnections} is used instead.
+     */
+    public boolean virtualThreads = false;
+    /**
+     * Idle keep-alive connections are parked on a selector and take a worker from the pool only when a request arrives,
+     * so {@code workers} limits concurrent requests instead of connections. Works on any JVM, for connections accepted by
+     * {@link PlainHttpListener}, ssl connections keep their worker while idle.
+     */
+    public boolean parkIdleConnections = false;
+    /**
+     * virtual threads and parked idle connections modes only, connections over the limit are rejected
+     */
+    public int maxConnections = 65536;
+    /**
+     * virtual threads and parked idle connections modes only, per connection input and output buffer size
+     */
+    public int connectionBufferSize = 8 * 1024;
+    /**
+     * request level load shedding, disabled if null.
+     * Works in any mode, but with a plain worker pool only the first request of a connection waits for a worker,
+     * use {@link #parkIdleConnections} or {@link #virtualThreads} to measure the sojourn time of keep-alive requests.
+     */
+    public AdmissionControl admission;
     protected HealthHttpHandler healthHttpHandler;
     private HttpService httpService;
     private ExecutorService executor;
     private ExecutorService rejectedExecutor;
     private BlockingQueue<Runnable> workQueue;
+    private Semaphore requestPermits;
+    private IdleConnectionSelector idleConnections;
     private Gauge workQueueMetric;
 
     public ApacheHttpServer( int workers, int queueSize, boolean registerStatic ) {
@@ -119,8 +152,16 @@ public class ApacheHttpServer implements HttpServer, Closeable {
         return new ServerHttpContext( httpServer, HttpCoreContext.create(), protocol, connection );
     }
 
+    @SneakyThrows
     public void start() {
-        log.info( "workers = {}, queue size = {}", workers, queueSize );
+        if( virtualThreads && !VirtualThreads.isSupported() ) {
+            log.warn( "virtual threads are not supported by this JVM, falling back to parked idle connections" );
+            virtualThreads = false;
+            parkIdleConnections = true;
+        }
+
+        log.info( "workers = {}, queue size = {}, virtual threads = {}, park idle connections = {}, max connections = {}",
+            workers, queueSize, virtualThreads, parkIdleConnections, maxConnections );
 
         var httpProcessorBuilder = HttpProcessorBuilder.create();
         if( originalServer != null )
@@ -136,18 +177,31 @@ public class ApacheHttpServer implements HttpServer, Closeable {
             DefaultHttpResponseFactory.INSTANCE,
             mapper );
 
-        workQueue = queueSize == 0 ? new SynchronousQueue<>() : new LinkedBlockingQueue<>( queueSize );
-
-        if( queueSize > 0 )
-            workQueueMetric = Gauge.builder( "oap_http_queue", workQueue, BlockingQueue::size ).register( Metrics.globalRegistry );
-
-        this.executor = new ThreadPoolExecutor( 0, workers, 10, TimeUnit.SECONDS,
-            workQueue,
-            new ThreadFactoryBuilder().setNameFormat( "http-%d" ).build() );
+        if( virtualThreads ) {
+            this.requestPermits = new Semaphore( workers );
+            this.executor = Executors.newVirtualThreadPerTaskExecutor( maxConnections, "http" );
+            this.rejectedExecutor = Executors.newVirtualThreadPerTaskExecutor( workers, "http-rejected" );
+        } else {
+            workQueue = queueSize == 0 ? new SynchronousQueue<>() : new LinkedBlockingQueue<>( queueSize );
+
+            if( queueSize > 0 )
+                workQueueMetric = Gauge.builder( "oap_http_queue", workQueue, BlockingQueue::size ).register( Metrics.globalRegistry );
+
+            var executor = new ThreadPoolExecutor( 0, workers, 10, TimeUnit.SECONDS,
+                workQueue,
+                new ThreadFactoryBuilder().setNameFormat( "http-%d" ).build() );
+            if( parkIdleConnections ) {
+                // a worker serves a single request at a time here, so all of them are needed before the queue fills up
+                executor.setCorePoolSize( workers );
+                executor.allowCoreThreadTimeOut( true );
+                this.idleConnections = new IdleConnectionSelector( keepAliveTimeout, this::resume, this::expired );
+            }
+            this.executor = executor;
 
-        this.rejectedExecutor = new ThreadPoolExecutor( 0, workers,
-            10, TimeUnit.SECONDS, new SynchronousQueue<>(),
-            new ThreadFactoryBuilder().setNameFormat( "http-rejected-%d" ).build() );
+            this.rejectedExecutor = new ThreadPoolExecutor( 0, workers,
+                10, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat( "http-rejected-%d" ).build() );
+        }
 
         if( registerStatic )
             mapper.register( "/static/*", new ClasspathResourceHandler( "/static", "/WEB-INF" ) );
@@ -174,10 +228,31 @@ public class ApacheHttpServer implements HttpServer, Closeable {
     public void accepted( Socket socket ) {
         socket.setSoTimeout( keepAliveTimeout );
         try {
-            var connection = connectionFactory.createConnection( socket );
+            var connection = requestPermits != null || idleConnections != null
+                ? new IdleAwareServerConnection( socket, connectionBufferSize )
+                : connectionFactory.createConnection( socket );
             var connectionId = connection.toString();
 
+            if( idleConnections != null && socket.getChannel() != null ) {
+                if( connections.size() >= maxConnections ) {
+                    rejectedCounter.increment();
+                    log.warn( "too many connections: {}", connections.size() );
+                    reject( connection );
+                    return;
+                }
+
+                handledCounter.increment();
+                log.debug( "connection accepted: {}", connection );
+
+                var httpContext = createHttpContext( this, socket, connection );
+                httpContext.admission = admission;
+                connections.put( connectionId, httpContext );
+                idleConnections.park( httpContext );
+                return;
+            }
+
             try {
+                var submitted = System.nanoTime();
                 executor.submit( () -> {
                     try {
                         handledCounter.increment();
@@ -185,18 +260,21 @@ public class ApacheHttpServer implements HttpServer, Closeable {
                         log.debug( "connection accepted: {}", connection );
 
                         var httpContext = createHttpContext( this, socket, connection );
+                        httpContext.admission = admission;
+                        httpContext.sojourn = System.nanoTime() - submitted;
                         connections.put( connectionId, httpContext );
 
                         Thread.currentThread().setName( connection.toString() );
 
                         log.trace( "start handling {}", connection );
                         while( !Thread.interrupted() && connection.isOpen() ) {
-                            requestsCounter.increment();
-                            activeCount.incrementAndGet();
+                            if( requestPermits != null && !awaitRequest( ( IdleAwareServerConnection ) connection, httpContext ) )
+                                break;
                             try {
-                                httpService.handleRequest( connection, httpContext );
+                                handleRequest( connection, httpContext );
                             } finally {
-                                activeCount.decrementAndGet();
+                                httpContext.sojourn = 0;
+                                if( requestPermits != null ) requestPermits.release();
                             }
                         }
                     } catch( SocketTimeoutException e ) {
@@ -209,47 +287,133 @@ public class ApacheHttpServer implements HttpServer, Closeable {
                     } catch( Throwable e ) {
                         log.error( e.getMessage(), e );
                     } finally {
-                        var info = connections.remove( connectionId );
-
-                        log.trace( "closing connection: {}, requests: {}, duration: {}",
-                            info.connection, ( long ) requestsCounter.count(), Dates.durationToString( ( long ) ( ( System.nanoTime() - info.start ) / 1E6 ) ) );
-                        try {
-                            connection.close();
-                        } catch( IOException e ) {
-                            log.trace( e.getMessage(), e );
-                        }
+                        closeConnection( connectionId, connection );
                     }
                 } );
             } catch( RejectedExecutionException e ) {
                 rejectedCounter.increment();
                 log.warn( e.getMessage() );
+                reject( connection );
+            }
+        } catch( final IOException e ) {
+            log.warn( e.getMessage() );
+            throw e;
+        }
+    }
+
+    /**
+     * Serves requests of a connection handed back by {@link #idleConnections} until it is idle again.
+     */
+    private void resume( ServerHttpContext httpContext ) {
+        var connection = ( IdleAwareServerConnection ) httpContext.connection;
+        var connectionId = connection.toString();
 
+        try {
+            var enqueued = System.nanoTime();
+            executor.execute( () -> {
+                httpContext.sojourn = System.nanoTime() - enqueued;
+                var parked = false;
                 try {
-                    rejectedExecutor.execute( () -> {
-                        try {
-                            var response = new BasicHttpResponse( HttpVersion.HTTP_1_1, HTTP_UNAVAILABLE, "temporary overload" );
-                            response.setHeader( "Connection", "close" );
-                            connection.sendResponseHeader( response );
-                        } catch( Exception t ) {
-                            log.trace( t.getMessage(), t );
-                        } finally {
-                            Closeables.close( connection );
-                        }
-                    } );
+                    do {
+                        handleRequest( connection, httpContext );
+                        httpContext.sojourn = 0;
+                    } while( connection.isOpen() && connection.hasBufferedInput() );
+
+                    if( connection.isOpen() ) {
+                        idleConnections.park( httpContext );
+                        parked = true;
+                    }
+                } catch( SocketTimeoutException e ) {
+                    keepaliveTimeoutCounter.increment();
+                    log.trace( "{}: timeout", connection );
+                } catch( SocketException | SSLException e ) {
+                    log.debug( "{}: {}", connection, e.getMessage() );
+                } catch( ConnectionClosedException e ) {
+                    log.debug( "connection closed: {}", connection );
+                } catch( Throwable e ) {
+                    log.error( e.getMessage(), e );
+                } finally {
+                    if( !parked ) closeConnection( connectionId, connection );
+                }
+            } );
+        } catch( RejectedExecutionException e ) {
+            rejectedCounter.increment();
+            log.warn( e.getMessage() );
+            connections.remove( connectionId );
+            reject( connection );
+        }
+    }
+
+    private void expired( ServerHttpContext httpContext ) {
+        keepaliveTimeoutCounter.increment();
+        log.trace( "{}: timeout", httpContext.connection );
+        closeConnection( httpContext.connection.toString(), httpContext.connection );
+    }
+
+    private void handleRequest( DefaultBHttpServerConnection connection, ServerHttpContext httpContext ) throws IOException, HttpException {
+        requestsCounter.increment();
+        activeCount.incrementAndGet();
+        try {
+            httpService.handleRequest( connection, httpContext );
+        } finally {
+            activeCount.decrementAndGet();
+        }
+    }
+
+    private void closeConnection( String connectionId, DefaultBHttpServerConnection connection ) {
+        var info = connections.remove( connectionId );
+
+        if( info != null )
+            log.trace( "closing connection: {}, requests: {}, duration: {}",
+                info.connection, ( long ) requestsCounter.count(), Dates.durationToString( ( long ) ( ( System.nanoTime() - info.start ) / 1E6 ) ) );
+        try {
+            connection.close();
+        } catch( IOException e ) {
+            log.trace( e.getMessage(), e );
+        }
+    }
+
+    private void reject( DefaultBHttpServerConnection connection ) {
+        try {
+            rejectedExecutor.execute( () -> {
+                try {
+                    var response = new BasicHttpResponse( HttpVersion.HTTP_1_1, HTTP_UNAVAILABLE, "temporary overload" );
+                    response.setHeader( "Connection", "close" );
+                    connection.sendResponseHeader( response );
                 } catch( Exception t ) {
                     log.trace( t.getMessage(), t );
-                    connection.close();
+                } finally {
+                    Closeables.close( connection );
                 }
-            }
-        } catch( final IOException e ) {
-            log.warn( e.getMessage() );
-            throw e;
+            } );
+        } catch( Exception t ) {
+            log.trace( t.getMessage(), t );
+            Closeables.close( connection );
+        }
+    }
+
+    /**
+     * Waits for the next request on an idle connection and then for a free worker.
+     *
+     * @return false if the connection was closed by the peer or the thread was interrupted
+     */
+    private boolean awaitRequest( IdleAwareServerConnection connection, ServerHttpContext httpContext ) throws IOException {
+        if( !connection.awaitRequest( keepAliveTimeout ) ) return false;
+        var enqueued = System.nanoTime();
+        try {
+            requestPermits.acquire();
+            httpContext.sojourn = System.nanoTime() - enqueued;
+            return true;
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return false;
         }
     }
 
     @Override
     public int getQueueSize() {
-        return workQueue.size();
+        if( workQueue != null ) return workQueue.size();
+        return requestPermits != null ? requestPermits.getQueueLength() : 0;
     }
 
     @Override
@@ -257,7 +421,12 @@ public class ApacheHttpServer implements HttpServer, Closeable {
         return activeCount.get();
     }
 
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
     public synchronized void preStop() {
+        Closeables.close( idleConnections );
         connections.forEach( ( key, connection ) -> Closeables.close( connection ) );
 
         Closeables.close( executor );
@@ -29,6 +29,7 @@ import oap.http.Protocol;
 import oap.http.Request;
 import oap.http.Response;
 import oap.http.cors.CorsPolicy;
+import oap.http.server.AdmissionControl;
 import oap.http.server.Handler;
 import oap.net.Inet;
 import org.apache.http.HttpRequest;
@@ -36,6 +37,7 @@ import org.apache.http.HttpResponse;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.protocol.HttpRequestHandler;
 
+import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
 import static java.util.Objects.requireNonNull;
 import static oap.http.HttpResponse.FORBIDDEN;
 import static oap.http.HttpResponse.NO_CONTENT;
@@ -44,12 +46,14 @@ import static oap.http.HttpResponse.NO_CONTENT;
 class BlockingHandlerAdapter implements HttpRequestHandler {
     private final Protocol protocol;
     private final String location;
+    private final String context;
     private final Handler handler;
     private final CorsPolicy corsPolicy;
 
     BlockingHandlerAdapter( String location, Handler handler,
                             CorsPolicy corsPolicy, Protocol protocol ) {
         this.location = location;
+        this.context = location.substring( 1 );
         this.handler = requireNonNull( handler );
         this.corsPolicy = corsPolicy;
         this.protocol = protocol;
@@ -63,6 +67,18 @@ class BlockingHandlerAdapter implements HttpRequestHandler {
 
         var serverHttpContext = ( ServerHttpContext ) httpContext;
 
+        var admission = serverHttpContext.admission;
+        if( admission != null ) {
+            var deadline = admission.deadlineHeader != null ? httpRequest.getFirstHeader( admission.deadlineHeader ) : null;
+            var decision = admission.admit( context, serverHttpContext.sojourn, deadline != null ? deadline.getValue() : null );
+            if( decision != AdmissionControl.Decision.ADMITTED ) {
+                log.trace( "{} {}", decision, httpRequest );
+                httpResponse.setStatusCode( HTTP_UNAVAILABLE );
+                httpResponse.setReasonPhrase( decision == AdmissionControl.Decision.EXPIRED ? "deadline exceeded" : "temporary overload" );
+                return;
+            }
+        }
+
         var connection = serverHttpContext.connection;
         var remoteAddress = connection.getRemoteAddress();
 
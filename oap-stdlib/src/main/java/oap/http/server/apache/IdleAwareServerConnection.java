@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package oap.http.server.apache;
+
+import org.apache.http.impl.DefaultBHttpServerConnection;
+import org.apache.http.io.BufferInfo;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Connection that can wait for the next keep-alive request without taking a request worker.
+ * The buffers are allocated once per connection with the given size.
+ */
+class IdleAwareServerConnection extends DefaultBHttpServerConnection {
+    IdleAwareServerConnection( Socket socket, int bufferSize ) throws IOException {
+        super( bufferSize );
+        bind( socket );
+    }
+
+    /**
+     * @return false if the peer closed the connection
+     * @throws java.net.SocketTimeoutException no request within {@code timeout} ms
+     */
+    boolean awaitRequest( int timeout ) throws IOException {
+        return awaitInput( timeout );
+    }
+
+    /**
+     * @return true if a pipelined request has already been read into the buffer
+     */
+    boolean hasBufferedInput() {
+        return ( ( BufferInfo ) getSessionInputBuffer() ).length() > 0;
+    }
+
+    /**
+     * @return the channel of the socket, null if the connection is closed or the socket was not opened by a channel
+     */
+    SocketChannel channel() {
+        var socket = getSocket();
+        return socket != null ? socket.getChannel() : null;
+    }
+}
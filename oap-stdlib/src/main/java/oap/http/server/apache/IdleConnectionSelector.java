@@ -0,0 +1,161 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package oap.http.server.apache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Parks idle keep-alive connections on a single selector thread and hands a connection back once the peer sent
+ * something (a request or end of stream), so idle connections do not hold a worker. Works with connections of channel
+ * based sockets only, see {@link IdleAwareServerConnection#channel()}.
+ * <p>
+ * A parked channel is switched to non-blocking mode and restored to blocking mode before it is handed back.
+ */
+@Slf4j
+class IdleConnectionSelector implements Closeable {
+    private final Selector selector;
+    private final ConcurrentLinkedQueue<ServerHttpContext> parked = new ConcurrentLinkedQueue<>();
+    private final long keepAliveTimeout;
+    private final Consumer<ServerHttpContext> ready;
+    private final Consumer<ServerHttpContext> expired;
+
+    /**
+     * @param keepAliveTimeout ms, idle connections are passed to {@code expired} afterwards
+     * @param ready            called on the selector thread for a connection with input
+     * @param expired          called on the selector thread for a timed out or broken connection
+     */
+    IdleConnectionSelector( int keepAliveTimeout, Consumer<ServerHttpContext> ready, Consumer<ServerHttpContext> expired ) throws IOException {
+        this.selector = Selector.open();
+        this.keepAliveTimeout = TimeUnit.MILLISECONDS.toNanos( keepAliveTimeout );
+        this.ready = ready;
+        this.expired = expired;
+
+        var thread = new Thread( this::run, "http-idle" );
+        thread.setDaemon( true );
+        thread.start();
+    }
+
+    void park( ServerHttpContext httpContext ) {
+        parked.add( httpContext );
+        selector.wakeup();
+    }
+
+    private void run() {
+        var checkInterval = Math.max( 1, TimeUnit.NANOSECONDS.toMillis( keepAliveTimeout ) / 10 );
+        var lastCheck = System.nanoTime();
+        var readyKeys = new ArrayList<SelectionKey>();
+        var expiredKeys = new ArrayList<SelectionKey>();
+
+        try {
+            while( selector.isOpen() ) {
+                for( ServerHttpContext httpContext; ( httpContext = parked.poll() ) != null; ) register( httpContext );
+
+                selector.select( checkInterval );
+
+                for( var key : selector.selectedKeys() ) {
+                    key.cancel();
+                    readyKeys.add( key );
+                }
+                selector.selectedKeys().clear();
+
+                var now = System.nanoTime();
+                if( now - lastCheck >= TimeUnit.MILLISECONDS.toNanos( checkInterval ) ) {
+                    lastCheck = now;
+                    for( var key : selector.keys() )
+                        if( key.isValid() && now - ( ( Idle ) key.attachment() ).since > keepAliveTimeout ) {
+                            key.cancel();
+                            expiredKeys.add( key );
+                        }
+                }
+
+                if( readyKeys.isEmpty() && expiredKeys.isEmpty() ) continue;
+
+                // deregisters cancelled keys, a channel cannot be switched back to blocking mode while registered
+                selector.selectNow();
+
+                for( var key : readyKeys ) {
+                    var httpContext = ( ( Idle ) key.attachment() ).httpContext;
+                    if( blocking( key ) ) ready.accept( httpContext );
+                    else expired.accept( httpContext );
+                }
+                for( var key : expiredKeys ) {
+                    blocking( key );
+                    expired.accept( ( ( Idle ) key.attachment() ).httpContext );
+                }
+                readyKeys.clear();
+                expiredKeys.clear();
+            }
+        } catch( ClosedSelectorException ignored ) {
+        } catch( Throwable e ) {
+            log.error( e.getMessage(), e );
+        }
+    }
+
+    private void register( ServerHttpContext httpContext ) {
+        var channel = ( ( IdleAwareServerConnection ) httpContext.connection ).channel();
+        try {
+            if( channel == null ) throw new IOException( "connection closed" );
+            channel.configureBlocking( false );
+            channel.register( selector, SelectionKey.OP_READ, new Idle( httpContext, System.nanoTime() ) );
+        } catch( IOException e ) {
+            log.trace( "{}: {}", httpContext.connection, e.getMessage() );
+            expired.accept( httpContext );
+        }
+    }
+
+    private static boolean blocking( SelectionKey key ) {
+        try {
+            key.channel().configureBlocking( true );
+            return true;
+        } catch( IOException e ) {
+            log.trace( e.getMessage(), e );
+            return false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        selector.close();
+    }
+
+    private static final class Idle {
+        final ServerHttpContext httpContext;
+        final long since;
+
+        Idle( ServerHttpContext httpContext, long since ) {
+            this.httpContext = httpContext;
+            this.since = since;
+        }
+    }
+}
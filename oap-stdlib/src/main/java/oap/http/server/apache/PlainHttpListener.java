@@ -32,6 +32,7 @@ import java.io.UncheckedIOException;
 import java.net.BindException;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
 
 @Slf4j
 public class PlainHttpListener extends AbstractHttpListener {
@@ -54,7 +55,8 @@ public class PlainHttpListener extends AbstractHttpListener {
     @Override
     protected ServerSocket createSocket() {
         try {
-            ServerSocket serverSocket = new ServerSocket();
+            // channel based, so that idle connections can be parked on a selector
+            ServerSocket serverSocket = ServerSocketChannel.open().socket();
             serverSocket.setReuseAddress( true );
             serverSocket.setSoTimeout( timeout );
             log.info( "binding to {}", address );
@@ -26,6 +26,7 @@ package oap.http.server.apache;
 
 import lombok.ToString;
 import oap.http.Protocol;
+import oap.http.server.AdmissionControl;
 import oap.http.server.HttpServer;
 import org.apache.http.impl.DefaultBHttpServerConnection;
 import org.apache.http.protocol.HttpContext;
@@ -40,6 +41,11 @@ public class ServerHttpContext implements HttpContext, Closeable {
     private final HttpContext httpContext;
     public final HttpServer httpServer;
     public long start = System.nanoTime();
+    public AdmissionControl admission;
+    /**
+     * time the current request waited for a worker, ns. 0 for a keep-alive request served by the worker of the previous one
+     */
+    public long sojourn;
 
     public ServerHttpContext( HttpServer httpServer, HttpContext httpContext, Protocol protocol, DefaultBHttpServerConnection connection ) {
         this.httpServer = httpServer;
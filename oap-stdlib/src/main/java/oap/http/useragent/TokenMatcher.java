@@ -0,0 +1,100 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.http.useragent;
+
+import java.util.Arrays;
+
+/**
+ * Aho-Corasick automaton over up to 64 ASCII tokens, compiled into a dense transition table.
+ * {@link #match(String)} finds all tokens in a single pass and returns them as a bit set.
+ */
+final class TokenMatcher {
+    private static final int ALPHABET = 128;
+
+    private final int[] delta;
+    private final long[] output;
+
+    TokenMatcher( String... tokens ) {
+        if( tokens.length > 64 ) throw new IllegalArgumentException( "too many tokens: " + tokens.length );
+
+        var maxStates = 1 + Arrays.stream( tokens ).mapToInt( String::length ).sum();
+        var trans = new int[maxStates * ALPHABET];
+        Arrays.fill( trans, -1 );
+        var out = new long[maxStates];
+        var states = 1;
+
+        for( var i = 0; i < tokens.length; i++ ) {
+            var state = 0;
+            for( var c : tokens[i].toCharArray() ) {
+                if( c >= ALPHABET ) throw new IllegalArgumentException( "non ascii token " + tokens[i] );
+                if( trans[state * ALPHABET + c] < 0 ) trans[state * ALPHABET + c] = states++;
+                state = trans[state * ALPHABET + c];
+            }
+            out[state] |= 1L << i;
+        }
+
+        var fail = new int[states];
+        var queue = new int[states];
+        int head = 0, tail = 0;
+        for( var c = 0; c < ALPHABET; c++ ) {
+            var next = trans[c];
+            if( next < 0 ) trans[c] = 0;
+            else {
+                fail[next] = 0;
+                queue[tail++] = next;
+            }
+        }
+        while( head < tail ) {
+            var state = queue[head++];
+            for( var c = 0; c < ALPHABET; c++ ) {
+                var next = trans[state * ALPHABET + c];
+                var fallback = trans[fail[state] * ALPHABET + c];
+                if( next < 0 ) trans[state * ALPHABET + c] = fallback;
+                else {
+                    fail[next] = fallback;
+                    out[next] |= out[fallback];
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        delta = Arrays.copyOf( trans, states * ALPHABET );
+        output = Arrays.copyOf( out, states );
+    }
+
+    /**
+     * @return bit {@code i} is set if {@code tokens[i]} occurs in {@code s}
+     */
+    long match( String s ) {
+        var state = 0;
+        var found = 0L;
+        for( var i = 0; i < s.length(); i++ ) {
+            var c = s.charAt( i );
+            state = c < ALPHABET ? delta[state * ALPHABET + c] : 0;
+            found |= output[state];
+        }
+        return found;
+    }
+}
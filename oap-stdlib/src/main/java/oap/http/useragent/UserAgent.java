@@ -24,37 +24,115 @@
 
 package oap.http.useragent;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import lombok.ToString;
 import oap.util.Strings;
 
+import java.util.Arrays;
+
+/**
+ * Browser, OS and device class are classified in one pass over the user agent string.
+ * Use {@link #of(String)} on hot paths, it caches classified user agents.
+ */
+@ToString
 public class UserAgent {
+    public static final int CACHE_SIZE = 50_000;
+
+    private static final TokenMatcher matcher = new TokenMatcher( Arrays.stream( Token.values() ).map( t -> t.value ).toArray( String[]::new ) );
+    private static final Cache<String, UserAgent> cache = CacheBuilder.newBuilder()
+        .maximumSize( CACHE_SIZE )
+        .recordStats()
+        .build();
+    private static final UserAgent EMPTY = new UserAgent( null );
+
+    static {
+        Metrics.gauge( "oap_useragent_cache", Tags.of( "type", "size" ), cache, Cache::size );
+        Metrics.gauge( "oap_useragent_cache", Tags.of( "type", "hit" ), cache, c -> c.stats().hitCount() );
+        Metrics.gauge( "oap_useragent_cache", Tags.of( "type", "miss" ), cache, c -> c.stats().missCount() );
+        Metrics.gauge( "oap_useragent_cache", Tags.of( "type", "eviction" ), cache, c -> c.stats().evictionCount() );
+    }
+
     public final String userAgent;
     public final Browser browser;
+    public final Os os;
+    public final Device device;
 
     public UserAgent( String userAgent ) {
         this.userAgent = userAgent;
-        this.browser = parseBrowser( userAgent );
+
+        var tokens = Strings.isEmpty( userAgent ) ? 0L : matcher.match( userAgent );
+        this.browser = browser( tokens );
+        this.os = os( tokens );
+        this.device = device( tokens, os );
+    }
+
+    public static UserAgent of( String userAgent ) {
+        if( Strings.isEmpty( userAgent ) ) return EMPTY;
+
+        var result = cache.getIfPresent( userAgent );
+        if( result == null ) {
+            result = new UserAgent( userAgent );
+            cache.put( userAgent, result );
+        }
+        return result;
     }
 
     public static Browser parseBrowser( String userAgent ) {
         if( Strings.isEmpty( userAgent ) ) return Browser.UNKNOWN;
 
-        if( userAgent.contains( "Edge" ) )
+        return browser( matcher.match( userAgent ) );
+    }
+
+    private static boolean has( long tokens, Token token ) {
+        return ( tokens & token.mask ) != 0;
+    }
+
+    private static Browser browser( long tokens ) {
+        var mobile = has( tokens, Token.MOBILE );
+
+        if( has( tokens, Token.EDGE ) )
             return Browser.EDGE;
-        else if( userAgent.contains( "OPR" ) || userAgent.contains( "Presto" ) )
-            return userAgent.contains( "Mobile" ) ? Browser.OPERA_MOBILE : Browser.OPERA;
-        else if( userAgent.contains( "Firefox" ) || userAgent.contains( "FxiOS" ) )
+        else if( has( tokens, Token.OPR ) || has( tokens, Token.PRESTO ) )
+            return mobile ? Browser.OPERA_MOBILE : Browser.OPERA;
+        else if( has( tokens, Token.FIREFOX ) || has( tokens, Token.FXIOS ) )
             return Browser.FIREFOX;
-        else if( !userAgent.contains( "Chrome" ) && ( userAgent.contains( "Safari" ) || userAgent.contains( "AppleWebKit" ) ) )
-            return userAgent.contains( "Mobile" ) ? Browser.SAFARI_MOBILE : Browser.SAFARI;
-        else if( userAgent.contains( "UCBrowser" ) )
+        else if( !has( tokens, Token.CHROME ) && ( has( tokens, Token.SAFARI ) || has( tokens, Token.APPLE_WEBKIT ) ) )
+            return mobile ? Browser.SAFARI_MOBILE : Browser.SAFARI;
+        else if( has( tokens, Token.UC_BROWSER ) )
             return Browser.UC_BROWSER;
-        else if( userAgent.contains( "Trident" ) )
+        else if( has( tokens, Token.TRIDENT ) )
             return Browser.INTERNET_EXPLORER;
-        else if( userAgent.contains( "Chrome" ) )
-            return userAgent.contains( "Mobile" ) ? Browser.CHROME_MOBILE : Browser.CHROME;
+        else if( has( tokens, Token.CHROME ) )
+            return mobile ? Browser.CHROME_MOBILE : Browser.CHROME;
         else return Browser.UNKNOWN;
     }
 
+    private static Os os( long tokens ) {
+        if( has( tokens, Token.ANDROID ) ) return Os.ANDROID;
+        else if( has( tokens, Token.IPHONE ) || has( tokens, Token.IPAD ) || has( tokens, Token.IPOD ) ) return Os.IOS;
+        else if( has( tokens, Token.WINDOWS ) ) return Os.WINDOWS;
+        else if( has( tokens, Token.CROS ) ) return Os.CHROME_OS;
+        else if( has( tokens, Token.MACINTOSH ) || has( tokens, Token.MAC_OS_X ) ) return Os.MAC_OS;
+        else if( has( tokens, Token.LINUX ) ) return Os.LINUX;
+        else return Os.UNKNOWN;
+    }
+
+    private static Device device( long tokens, Os os ) {
+        if( has( tokens, Token.BOT ) || has( tokens, Token.BOT_UPPER ) || has( tokens, Token.CRAWLER )
+            || has( tokens, Token.SPIDER ) || has( tokens, Token.SPIDER_UPPER ) )
+            return Device.BOT;
+        else if( has( tokens, Token.IPAD ) || has( tokens, Token.TABLET ) || os == Os.ANDROID && !has( tokens, Token.MOBILE ) )
+            return Device.TABLET;
+        else if( has( tokens, Token.MOBI ) || has( tokens, Token.IPHONE ) || has( tokens, Token.IPOD ) )
+            return Device.MOBILE;
+        else if( os != Os.UNKNOWN )
+            return Device.DESKTOP;
+        else return Device.UNKNOWN;
+    }
+
     public enum Browser {
         UNKNOWN,
         CHROME,
@@ -68,4 +146,59 @@ public class UserAgent {
         UC_BROWSER,
         EDGE
     }
+
+    public enum Os {
+        UNKNOWN,
+        WINDOWS,
+        MAC_OS,
+        IOS,
+        ANDROID,
+        LINUX,
+        CHROME_OS
+    }
+
+    public enum Device {
+        UNKNOWN,
+        DESKTOP,
+        MOBILE,
+        TABLET,
+        BOT
+    }
+
+    private enum Token {
+        EDGE( "Edge" ),
+        OPR( "OPR" ),
+        PRESTO( "Presto" ),
+        MOBILE( "Mobile" ),
+        MOBI( "Mobi" ),
+        FIREFOX( "Firefox" ),
+        FXIOS( "FxiOS" ),
+        CHROME( "Chrome" ),
+        SAFARI( "Safari" ),
+        APPLE_WEBKIT( "AppleWebKit" ),
+        UC_BROWSER( "UCBrowser" ),
+        TRIDENT( "Trident" ),
+        ANDROID( "Android" ),
+        IPHONE( "iPhone" ),
+        IPAD( "iPad" ),
+        IPOD( "iPod" ),
+        WINDOWS( "Windows" ),
+        CROS( "CrOS" ),
+        MACINTOSH( "Macintosh" ),
+        MAC_OS_X( "Mac OS X" ),
+        LINUX( "Linux" ),
+        TABLET( "Tablet" ),
+        BOT( "bot" ),
+        BOT_UPPER( "Bot" ),
+        CRAWLER( "crawler" ),
+        SPIDER( "spider" ),
+        SPIDER_UPPER( "Spider" );
+
+        final String value;
+        final long mask = 1L << ordinal();
+
+        Token( String value ) {
+            this.value = value;
+        }
+    }
 }
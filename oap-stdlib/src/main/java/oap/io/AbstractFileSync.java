@@ -25,6 +25,7 @@
 package oap.io;
 
 import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
 import java.net.URI;
@@ -34,12 +35,15 @@ import java.util.HashSet;
 import java.util.Optional;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static java.util.Arrays.asList;
 
+@Slf4j
 public abstract class AbstractFileSync implements Runnable {
     private final HashSet<String> protocols;
     private final ArrayList<FileDownloaderListener> listeners = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
     protected URI uri;
     protected Path localFile;
 
@@ -104,8 +108,40 @@ public abstract class AbstractFileSync implements Runnable {
         this.listeners.remove( listener );
     }
 
+    /**
+     * Waits for a sync in progress, then syncs.
+     */
     @Override
-    public synchronized void run() {
+    public void run() {
+        lock.lock();
+        try {
+            sync();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Skips the sync if another one is in progress instead of queueing up behind a long download,
+     * use it for periodic syncs.
+     *
+     * @return {@code false} if the sync was skipped
+     */
+    public boolean runIfIdle() {
+        if( !lock.tryLock() ) {
+            log.debug( "{}: sync is already in progress", uri );
+            return false;
+        }
+
+        try {
+            sync();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void sync() {
         final Optional<Path> downloaded = download();
 
         if( downloaded.isPresent() ) {
@@ -1,5 +1,6 @@
 package oap.io;
 
+import oap.util.Stream;
 import org.apache.commons.lang3.StringUtils;
 
 import java.io.IOException;
@@ -7,6 +8,10 @@ import java.io.UncheckedIOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.Consumer;
 
 public class FileWalker {
@@ -68,4 +73,86 @@ public class FileWalker {
             }
         }
     }
+
+    /**
+     * Walks directories in parallel, every directory listing is a separate fork join task.
+     * The visitor is called concurrently and must be thread safe.
+     */
+    public void walkFileTreeParallel( ForkJoinPool pool, Consumer<Path> visitor ) {
+        pool.invoke( new WalkAction( basePath, 0, visitor ) );
+    }
+
+    public void walkFileTreeParallel( Consumer<Path> visitor ) {
+        walkFileTreeParallel( ForkJoinPool.commonPool(), visitor );
+    }
+
+    /**
+     * Lazy variant of {@link #walkFileTree(Consumer)}, directories are listed when the stream reaches them.
+     */
+    public Stream<Path> stream() {
+        return Stream.of( java.util.stream.Stream.of( basePath ).flatMap( p -> stream( p, 0 ) ) );
+    }
+
+    private java.util.stream.Stream<Path> stream( Path path, int position ) {
+        if( wildcard[position] ) {
+            if( !cache.isDirectory( path ) ) return java.util.stream.Stream.empty();
+
+            var matches = list( path, position ).stream();
+            return position < paths.length - 1 ? matches.flatMap( p -> stream( p, position + 1 ) ) : matches;
+        } else {
+            var resolve = path.resolve( paths[position] );
+            if( position < paths.length - 1 ) return stream( resolve, position + 1 );
+
+            return cache.exists( resolve ) ? java.util.stream.Stream.of( resolve ) : java.util.stream.Stream.empty();
+        }
+    }
+
+    private List<Path> list( Path path, int position ) {
+        var anyPosition = any[position];
+        var pathPosition = paths[position];
+
+        try {
+            var entries = cache.list( path );
+            if( anyPosition ) return entries;
+
+            var ret = new ArrayList<Path>();
+            for( var entry : entries )
+                if( Files.wildcardMatch( entry.getFileName().toString(), pathPosition ) ) ret.add( entry );
+            return ret;
+        } catch( NoSuchFileException e ) {
+            return List.of();
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private final class WalkAction extends RecursiveAction {
+        private final Path path;
+        private final int position;
+        private final Consumer<Path> visitor;
+
+        private WalkAction( Path path, int position, Consumer<Path> visitor ) {
+            this.path = path;
+            this.position = position;
+            this.visitor = visitor;
+        }
+
+        @Override
+        protected void compute() {
+            if( wildcard[position] ) {
+                if( !cache.isDirectory( path ) ) return;
+
+                var matches = list( path, position );
+                if( position < paths.length - 1 ) {
+                    var actions = new ArrayList<WalkAction>( matches.size() );
+                    for( var p : matches ) actions.add( new WalkAction( p, position + 1, visitor ) );
+                    invokeAll( actions );
+                } else matches.forEach( visitor );
+            } else {
+                var resolve = path.resolve( paths[position] );
+                if( position < paths.length - 1 ) new WalkAction( resolve, position + 1, visitor ).compute();
+                else if( cache.exists( resolve ) ) visitor.accept( resolve );
+            }
+        }
+    }
 }
@@ -25,37 +25,47 @@
 package oap.io;
 
 import com.google.common.collect.Iterators;
-import oap.util.function.Try;
+import org.joda.time.DateTimeUtils;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.DirectoryIteratorException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
+/**
+ * Thread safe cache of directory listings and file attributes, it can be shared by concurrent {@link FileWalker}s.
+ * Entries older than {@code ttl} milliseconds are reloaded.
+ */
 public class FileWalkerCache {
-    private final HashMap<Path, ArrayList<Path>> map = new HashMap<>();
-    private final HashMap<Path, Boolean> isDirectory = new HashMap<>();
-    private final HashMap<Path, Boolean> exists = new HashMap<>();
-    private final HashMap<Path, FileTime> lastModifiedTime = new HashMap<>();
+    private final long ttl;
+    private final ConcurrentHashMap<Path, Entry<List<Path>>> map = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Path, Entry<Boolean>> isDirectory = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Path, Entry<Boolean>> exists = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Path, Entry<FileTime>> lastModifiedTime = new ConcurrentHashMap<>();
+
+    public FileWalkerCache() {
+        this( Long.MAX_VALUE );
+    }
+
+    /**
+     * @param ttl time to live of the cached entries in milliseconds
+     */
+    public FileWalkerCache( long ttl ) {
+        this.ttl = ttl;
+    }
 
     public DirectoryStream<Path> newDirectoryStream( Path dir,
                                                      DirectoryStream.Filter<? super Path> filter ) throws IOException {
-        final ArrayList<Path> list = map.get( dir );
-        if( list == null ) {
-            final ArrayList<Path> paths = map.computeIfAbsent( dir, d -> new ArrayList<>() );
-
-            return java.nio.file.Files.newDirectoryStream( dir, file -> {
-                paths.add( file );
-                exists.put( file, true );
-                return filter.accept( file );
-            } );
-        }
+        var list = list( dir );
 
         return new DirectoryStream<>() {
             @Override
@@ -77,15 +87,83 @@ public class FileWalkerCache {
         };
     }
 
+    /**
+     * @return all entries of the directory
+     */
+    public List<Path> list( Path dir ) throws IOException {
+        try {
+            return get( map, dir, d -> {
+                var paths = new ArrayList<Path>();
+                try( var stream = Files.newDirectoryStream( d ) ) {
+                    var now = DateTimeUtils.currentTimeMillis();
+                    for( var file : stream ) {
+                        paths.add( file );
+                        exists.put( file, new Entry<>( true, now ) );
+                    }
+                } catch( IOException e ) {
+                    throw new UncheckedIOException( e );
+                }
+                return List.copyOf( paths );
+            } );
+        } catch( UncheckedIOException e ) {
+            throw e.getCause();
+        }
+    }
+
     public boolean isDirectory( Path path ) {
-        return isDirectory.computeIfAbsent( path, Files::isDirectory );
+        return get( isDirectory, path, Files::isDirectory );
     }
 
     public boolean exists( Path path ) {
-        return exists.computeIfAbsent( path, Files::exists );
+        return get( exists, path, Files::exists );
     }
 
     public FileTime getLastModifiedTime( Path path ) {
-        return lastModifiedTime.computeIfAbsent( path, Try.map( Files::getLastModifiedTime ) );
+        return get( lastModifiedTime, path, p -> {
+            try {
+                return Files.getLastModifiedTime( p );
+            } catch( IOException e ) {
+                throw new UncheckedIOException( e );
+            }
+        } );
+    }
+
+    private <T> T get( ConcurrentHashMap<Path, Entry<T>> cache, Path path, Function<Path, T> load ) {
+        var now = DateTimeUtils.currentTimeMillis();
+        var entry = cache.get( path );
+        if( entry == null || entry.expired( now, ttl ) ) {
+            entry = cache.compute( path, ( p, old ) -> old == null || old.expired( now, ttl )
+                ? new Entry<>( load.apply( p ), now )
+                : old );
+        }
+        return entry.value;
+    }
+
+    public void invalidate( Path path ) {
+        map.remove( path );
+        isDirectory.remove( path );
+        exists.remove( path );
+        lastModifiedTime.remove( path );
+    }
+
+    public void invalidateAll() {
+        map.clear();
+        isDirectory.clear();
+        exists.clear();
+        lastModifiedTime.clear();
+    }
+
+    private static final class Entry<T> {
+        final T value;
+        final long created;
+
+        Entry( T value, long created ) {
+            this.value = value;
+            this.created = created;
+        }
+
+        boolean expired( long now, long ttl ) {
+            return now - created >= ttl;
+        }
     }
 }
@@ -59,6 +59,7 @@ import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.channels.FileChannel;
 import java.nio.file.CopyOption;
 import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.DirectoryStream;
@@ -89,6 +90,10 @@ import java.util.function.Predicate;
 
 import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
 
 @Slf4j
 public final class Files {
@@ -135,6 +140,17 @@ public final class Files {
         return result;
     }
 
+    /**
+     * lazy variant of {@link #fastWildcard(Path, String, FileWalkerCache)}
+     */
+    public static Stream<Path> fastWildcardStream( Path basePath, String wildcard, FileWalkerCache cache ) {
+        return new FileWalker( basePath, wildcard, cache ).stream();
+    }
+
+    public static Stream<Path> fastWildcardStream( Path basePath, String wildcard ) {
+        return new FileWalker( basePath, wildcard ).stream();
+    }
+
     public static ArrayList<Path> wildcard( String basePath, String wildcard ) {
         return wildcard( Paths.get( basePath ), wildcard );
     }
@@ -397,6 +413,11 @@ public final class Files {
     private static void copyOrAppend( Path sourcePath, Encoding sourceEncoding, Path destPath,
                                       Encoding destEncoding, int bufferSize, boolean append ) throws UncheckedIOException {
         ensureFile( destPath );
+        if( sourceEncoding == destEncoding && sourceEncoding != Encoding.ZIP && ( !append || sourceEncoding.appendable ) ) {
+            transfer( sourcePath, destPath, append );
+            return;
+        }
+
         try( InputStream is = IoStreams.in( sourcePath, sourceEncoding, bufferSize );
              OutputStream os = IoStreams.out( destPath, destEncoding, bufferSize, append, true ) ) {
             IOUtils.copy( is, os );
@@ -405,6 +426,36 @@ public final class Files {
         }
     }
 
+    /**
+     * Same encoding copy does not decode the content. The bytes are transferred by the kernel,
+     * concatenated gzip, zstd and lz4 frames are valid streams, so this works for append too.
+     */
+    private static void transfer( Path sourcePath, Path destPath, boolean append ) throws UncheckedIOException {
+        if( append ) ensureFileEncodingValid( destPath );
+
+        var unsafePath = Paths.get( destPath + ".unsafe" );
+        try {
+            try( var out = FileChannel.open( unsafePath, CREATE, WRITE, TRUNCATE_EXISTING ) ) {
+                if( append && java.nio.file.Files.exists( destPath ) ) transferAll( destPath, out );
+                transferAll( sourcePath, out );
+                out.force( true );
+            }
+
+            if( java.nio.file.Files.size( unsafePath ) == 0 ) delete( unsafePath );
+            else rename( unsafePath, destPath );
+        } catch( IOException e ) {
+            throw new UncheckedIOException( e );
+        }
+    }
+
+    private static void transferAll( Path sourcePath, FileChannel out ) throws IOException {
+        try( var in = FileChannel.open( sourcePath, READ ) ) {
+            var size = in.size();
+            var position = 0L;
+            while( position < size ) position += in.transferTo( position, size - position, out );
+        }
+    }
+
     public static void copy( Path sourcePath, Encoding sourceEncoding,
                              Path destPath, Encoding destEncoding, int bufferSize ) {
         copyOrAppend( sourcePath, sourceEncoding, destPath, destEncoding, bufferSize, false );
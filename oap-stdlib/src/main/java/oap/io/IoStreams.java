@@ -196,6 +196,19 @@ public class IoStreams {
     }
 
     public static OutputStream out( Path path, Encoding encoding, int bufferSize, boolean append, boolean safe ) throws UncheckedIOException {
+        return out( path, encoding, bufferSize, append, safe, 1 );
+    }
+
+    /**
+     * Gzip, zstd and lz4 output is compressed by independent blocks, at most {@code parallelism} blocks at once,
+     * on a compression pool shared by all streams, see {@link ParallelCompressingOutputStream}.
+     * Other encodings ignore {@code parallelism}.
+     */
+    public static OutputStream outParallel( Path path, Encoding encoding, int parallelism ) throws UncheckedIOException {
+        return out( path, encoding, DEFAULT_BUFFER, false, false, parallelism );
+    }
+
+    public static OutputStream out( Path path, Encoding encoding, int bufferSize, boolean append, boolean safe, int parallelism ) throws UncheckedIOException {
         try {
             checkArgument( !append || encoding.appendable, encoding + " is not appendable" );
             Files.ensureFile( path );
@@ -204,6 +217,8 @@ public class IoStreams {
                 ? new SafeFileOutputStream( path, append, encoding )
                 : new FileOutputStream( path.toFile(), append );
             OutputStream fos = bufferSize > 0 && encoding != Encoding.GZIP ? new BufferedOutputStream( outputStream, bufferSize ) : outputStream;
+            if( parallelism > 1 && ParallelCompressingOutputStream.isSupported( encoding ) )
+                return new ParallelCompressingOutputStream( fos, encoding, parallelism );
             return switch( encoding ) {
                 case GZIP -> {
                     OutputStream gzout = Archiver.gzip( fos, bufferSize > 0 ? bufferSize : 512 );
@@ -246,6 +261,24 @@ public class IoStreams {
         }
     }
 
+    /**
+     * Memory mapped variant of {@link #in(Path, Encoding)} for large files, which are not modified while being read.
+     * Zstd files are decompressed with direct buffers, other encodings are decoded from the mapping.
+     */
+    public static InputStream inMapped( Path path, Encoding encoding ) throws UncheckedIOException {
+        try {
+            if( encoding == Encoding.ZSTD ) return new ZstdMappedInputStream( path );
+
+            return decoded( new MappedInputStream( path ), encoding );
+        } catch( IOException e ) {
+            throw new UncheckedIOException( "couldn't open file " + path.toString(), e );
+        }
+    }
+
+    public static InputStream inMapped( Path path ) throws UncheckedIOException {
+        return inMapped( path, Encoding.from( path ) );
+    }
+
     @SneakyThrows
     public static InputStream in( InputStream stream, Encoding encoding ) {
         return decoded( stream, encoding );
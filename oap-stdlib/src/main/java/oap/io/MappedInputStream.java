@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.io;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Memory mapped file input stream. The file is mapped by windows of {@code windowSize} bytes,
+ * so files larger than 2Gb are supported. Reads copy directly from the page cache, without read syscalls.
+ * <p>
+ * The file must not be truncated while it is being read.
+ */
+public class MappedInputStream extends InputStream {
+    public static final int DEFAULT_WINDOW = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final int windowSize;
+    private long windowPosition;
+    private MappedByteBuffer window;
+
+    public MappedInputStream( Path path ) throws IOException {
+        this( path, DEFAULT_WINDOW );
+    }
+
+    public MappedInputStream( Path path, int windowSize ) throws IOException {
+        this.channel = FileChannel.open( path, READ );
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        this.windowPosition = 0;
+        this.window = map( 0 );
+    }
+
+    private MappedByteBuffer map( long position ) throws IOException {
+        return channel.map( FileChannel.MapMode.READ_ONLY, position, Math.min( windowSize, size - position ) );
+    }
+
+    /**
+     * @return the current window or {@code null} at the end of the file
+     */
+    ByteBuffer window() throws IOException {
+        if( window.hasRemaining() ) return window;
+
+        var next = windowPosition + window.capacity();
+        if( next >= size ) return null;
+
+        windowPosition = next;
+        window = map( next );
+        return window;
+    }
+
+    @Override
+    public int read() throws IOException {
+        var buffer = window();
+        return buffer != null ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read( @Nonnull byte[] b, int off, int len ) throws IOException {
+        if( len == 0 ) return 0;
+
+        var buffer = window();
+        if( buffer == null ) return -1;
+
+        var count = Math.min( len, buffer.remaining() );
+        buffer.get( b, off, count );
+        return count;
+    }
+
+    @Override
+    public long skip( long n ) throws IOException {
+        if( n <= 0 ) return 0;
+
+        var position = windowPosition + window.position();
+        var skip = Math.min( n, size - position );
+        var target = position + skip;
+
+        if( target < windowPosition + window.capacity() ) window.position( ( int ) ( target - windowPosition ) );
+        else if( target < size ) {
+            windowPosition = target;
+            window = map( target );
+        } else {
+            windowPosition = size;
+            window = map( size );
+        }
+
+        return skip;
+    }
+
+    @Override
+    public int available() {
+        return ( int ) Math.min( Integer.MAX_VALUE, size - windowPosition - window.position() );
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.io;
+
+import com.github.luben.zstd.Zstd;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import oap.concurrent.Executors;
+import oap.io.IoStreams.Encoding;
+import org.apache.commons.io.output.ByteArrayOutputStream;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static net.jpountz.lz4.LZ4FrameOutputStream.BLOCKSIZE.SIZE_64KB;
+
+/**
+ * Splits the stream into blocks and compresses them in parallel, pigz style.
+ * Every block is a complete gzip member, zstd frame or lz4 frame, so the output is a valid
+ * concatenated stream, readable by {@link IoStreams#in(java.nio.file.Path, Encoding)}.
+ * Blocks are written in order. At most {@code maxInFlight} blocks of a stream are submitted at once,
+ * compressing or waiting to be written, so they bound both the memory and the compression threads used by the stream.
+ * Blocks are compressed on a pool of {@code availableProcessors} threads shared by all streams, unless an executor is given.
+ */
+public class ParallelCompressingOutputStream extends OutputStream {
+    public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+    public static final int ZSTD_LEVEL = 3;
+
+    private final OutputStream out;
+    private final Encoding encoding;
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    private byte[] block;
+    private int position;
+    private boolean written = false;
+    private boolean closed = false;
+
+    /**
+     * @param parallelism maximum number of blocks of this stream compressed at once
+     */
+    public ParallelCompressingOutputStream( OutputStream out, Encoding encoding, int parallelism ) {
+        this( out, encoding, DEFAULT_BLOCK_SIZE, Pool.executor, parallelism );
+    }
+
+    public ParallelCompressingOutputStream( OutputStream out, Encoding encoding, int blockSize,
+                                            ExecutorService executor, int maxInFlight ) {
+        checkArgument( isSupported( encoding ), encoding + " cannot be compressed in parallel" );
+        checkArgument( maxInFlight > 0, "maxInFlight must be positive" );
+
+        this.out = out;
+        this.encoding = encoding;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.block = new byte[blockSize];
+    }
+
+    public static boolean isSupported( Encoding encoding ) {
+        return encoding == Encoding.GZIP || encoding == Encoding.ZSTD || encoding == Encoding.LZ4;
+    }
+
+    private static byte[] compress( Encoding encoding, byte[] data, int length ) throws IOException {
+        switch( encoding ) {
+            case ZSTD:
+                return Zstd.compress( length == data.length ? data : Arrays.copyOf( data, length ), ZSTD_LEVEL );
+            case GZIP: {
+                var buffer = new ByteArrayOutputStream( length / 2 + 64 );
+                try( var gzip = new GZIPOutputStream( buffer, 64 * 1024 ) ) {
+                    gzip.write( data, 0, length );
+                }
+                return buffer.toByteArray();
+            }
+            case LZ4: {
+                var buffer = new ByteArrayOutputStream( length / 2 + 64 );
+                try( var lz4 = new LZ4FrameOutputStream( buffer, SIZE_64KB ) ) {
+                    lz4.write( data, 0, length );
+                }
+                return buffer.toByteArray();
+            }
+            default:
+                throw new IllegalArgumentException( "Unknown encoding " + encoding );
+        }
+    }
+
+    @Override
+    public void write( int b ) throws IOException {
+        block[position++] = ( byte ) b;
+        if( position == block.length ) submit();
+    }
+
+    @Override
+    public void write( @Nonnull byte[] b, int off, int len ) throws IOException {
+        while( len > 0 ) {
+            var count = Math.min( len, block.length - position );
+            System.arraycopy( b, off, block, position, count );
+            position += count;
+            off += count;
+            len -= count;
+            if( position == block.length ) submit();
+        }
+    }
+
+    private void submit() throws IOException {
+        var data = block;
+        var length = position;
+        block = new byte[data.length];
+        position = 0;
+        written = true;
+
+        inFlight.add( executor.submit( () -> compress( encoding, data, length ) ) );
+        while( inFlight.size() >= maxInFlight ) writeNext();
+    }
+
+    private void writeNext() throws IOException {
+        try {
+            out.write( inFlight.poll().get() );
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new IOException( e );
+        } catch( ExecutionException e ) {
+            throw new IOException( e.getCause() );
+        }
+    }
+
+    /**
+     * writes already compressed blocks only, same as {@link GZIPOutputStream} without sync flush
+     * does not compress partially filled block.
+     */
+    @Override
+    public void flush() throws IOException {
+        while( !inFlight.isEmpty() && inFlight.peek().isDone() ) writeNext();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if( closed ) return;
+        closed = true;
+
+        try {
+            if( !written && position == 0 ) out.write( compress( encoding, block, 0 ) );
+            if( position > 0 ) submit();
+            while( !inFlight.isEmpty() ) writeNext();
+            out.flush();
+        } finally {
+            inFlight.forEach( f -> f.cancel( false ) );
+            out.close();
+        }
+    }
+
+    private static final class Pool {
+        static final ExecutorService executor = Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors(),
+            new ThreadFactoryBuilder().setNameFormat( "oap-compressor-%d" ).setDaemon( true ).build() );
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.io;
+
+import com.github.luben.zstd.ZstdDirectBufferDecompressingStream;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Decompresses memory mapped zstd file with direct buffers, the compressed data is never copied to the heap.
+ */
+public class ZstdMappedInputStream extends InputStream {
+    private final MappedInputStream mapped;
+    private final ZstdDirectBufferDecompressingStream zstd;
+    private final ByteBuffer target;
+
+    public ZstdMappedInputStream( Path path ) throws IOException {
+        this.mapped = new MappedInputStream( path );
+        var source = mapped.window();
+        this.zstd = new ZstdDirectBufferDecompressingStream( source != null ? source : ByteBuffer.allocateDirect( 0 ) ) {
+            @Override
+            protected ByteBuffer refill( ByteBuffer toRefill ) {
+                try {
+                    var next = mapped.window();
+                    return next != null ? next : toRefill;
+                } catch( IOException e ) {
+                    throw new UncheckedIOException( e );
+                }
+            }
+        };
+        this.target = ByteBuffer.allocateDirect( ZstdDirectBufferDecompressingStream.recommendedTargetBufferSize() );
+        this.target.flip();
+    }
+
+    private boolean fill() throws IOException {
+        while( !target.hasRemaining() ) {
+            if( !zstd.hasRemaining() ) return false;
+
+            target.clear();
+            var read = zstd.read( target );
+            target.flip();
+
+            if( read == 0 && mapped.available() == 0 ) return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? target.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read( @Nonnull byte[] b, int off, int len ) throws IOException {
+        if( len == 0 ) return 0;
+        if( !fill() ) return -1;
+
+        var count = Math.min( len, target.remaining() );
+        target.get( b, off, count );
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            zstd.close();
+        } finally {
+            mapped.close();
+        }
+    }
+}
@@ -28,6 +28,7 @@ import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tags;
 import lombok.extern.slf4j.Slf4j;
 import oap.io.Sockets;
+import oap.prometheus.TypedCounters;
 import org.apache.commons.codec.binary.Hex;
 
 import java.io.Closeable;
@@ -81,6 +82,9 @@ import static oap.message.MessageProtocol.STATUS_UNKNOWN_MESSAGE_TYPE;
  */
 @Slf4j
 public class MessageHandler implements Runnable, Closeable {
+    private static final TypedCounters messagesCounters = TypedCounters.unsigned( "messages", "type" );
+    private static final TypedCounters alreadyWrittenCounters = TypedCounters.unsigned( "oap.message.server.already_written", "type" );
+
     private final Socket socket;
     private final long soTimeout;
     private final HashMap<Byte, MessageListener> listeners;
@@ -153,7 +157,7 @@ public class MessageHandler implements Runnable, Closeable {
                         }
                         writeResponse( out, status, clientId, md5 );
                         if( status == STATUS_OK ) {
-                            Metrics.counter( "messages", Tags.of( "type", String.valueOf( Byte.toUnsignedInt( messageType ) ) ) ).increment();
+                            messagesCounters.increment( messageType );
                             control.add( messageType, clientId, md5 );
                         } else
                             log.trace( "WARN [{}/{}] buffer ({}, " + size + ") status == {}.)",
@@ -161,7 +165,7 @@ public class MessageHandler implements Runnable, Closeable {
                     }
                 } else {
                     log.warn( "[{}/{}] buffer ({}, {}) already written.)", hostName, clientId, Hex.encodeHexString( md5 ), size );
-                    Metrics.counter( "oap.message.server.already_written", "type", String.valueOf( Byte.toUnsignedInt( messageType ) ) ).increment();
+                    alreadyWrittenCounters.increment( messageType );
 
                     in.skipNBytes( size );
 
@@ -34,6 +34,7 @@ import lombok.SneakyThrows;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import oap.LogConsolidated;
+import oap.concurrent.Executors;
 import oap.concurrent.scheduler.Scheduled;
 import oap.concurrent.scheduler.Scheduler;
 import oap.io.Closeables;
@@ -42,6 +43,7 @@ import oap.io.Resources;
 import oap.io.content.ContentReader;
 import oap.io.content.ContentWriter;
 import oap.pool.Pool;
+import oap.prometheus.TypedCounters;
 import oap.time.TimeService;
 import oap.util.ByteSequence;
 import oap.util.Cuid;
@@ -94,6 +96,13 @@ public class MessageSender implements Closeable {
         .omitSharedBufferOverhead()
         .ignoreOuterClassReference();
     private static final HashMap<Short, String> statusMap = new HashMap<>();
+    private static final TypedCounters errorCounters = TypedCounters.signed( "oap.messages", "type", "status", "error" );
+    private static final TypedCounters trySendCounters = TypedCounters.signed( "oap.messages", "type", "status", "trysend" );
+    private static final TypedCounters alreadyWrittenCounters = TypedCounters.signed( "oap.messages", "type", "status", "already_written" );
+    private static final TypedCounters successCounters = TypedCounters.signed( "oap.messages", "type", "status", "success" );
+    private static final TypedCounters errorNoRetryCounters = TypedCounters.signed( "oap.messages", "type", "status", "error_no_retry" );
+    private static final TypedCounters unknownMessageTypeCounters = TypedCounters.signed( "oap.messages", "type", "status", "unknown_message_type" );
+    private static final TypedCounters unknownStatusCounters = TypedCounters.signed( "oap.messages", "type", "status", "unknown_status" );
     private static final Pair<MessageStatus, Short> STATUS_OK = __( OK, MessageProtocol.STATUS_OK );
 
     static {
@@ -117,6 +126,7 @@ public class MessageSender implements Closeable {
     //    private final ThreadLocalMap<Connection> connections = ThreadLocalMap.withInitial( Connection::new );
     public long storageLockExpiration = Dates.h( 1 );
     public int poolSize = 4;
+    public boolean virtualThreads = false;
     public long messagesLimitBytes = 1024 * 1024 * 128; // 128Mb
     public long memorySyncPeriod = 100;
     public long diskSyncPeriod = Dates.m( 1 );
@@ -209,7 +219,9 @@ public class MessageSender implements Closeable {
                     return false;
                 }
             }
-        }, new ThreadFactoryBuilder().setNameFormat( "message-sender-%d" ).build() );
+        }, virtualThreads
+            ? Executors.newVirtualBlockingExecutor( poolSize, "message-sender" )
+            : Executors.newFixedBlockingThreadPool( poolSize, new ThreadFactoryBuilder().setNameFormat( "message-sender-%d" ).build() ) );
         if( diskSyncPeriod > 0 )
             diskSyncScheduler = Scheduler.scheduleWithFixedDelay( diskSyncPeriod, TimeUnit.MILLISECONDS, this::syncDisk );
         if( memorySyncPeriod > 0 )
@@ -319,8 +331,8 @@ public class MessageSender implements Closeable {
                         ex = e;
                         counter.incrementAndGet();
 
-                        Metrics.counter( "oap.messages", "type", String.valueOf( message.messageType ), "status", "error" ).increment();
-                        LogConsolidated.log( log, Level.DEBUG, Dates.s( 5 ), e.getMessage(), e );
+                        errorCounters.increment( message.messageType );
+                        LogConsolidated.log( log, Level.DEBUG, "MessageSender.syncMemory", Dates.s( 5 ), e.getMessage(), e );
                     }
                 } while( ex instanceof SocketException && counter.get() < 10 );
             } ) );
@@ -375,7 +387,7 @@ public class MessageSender implements Closeable {
                         }
                     } ) ) );
                 } catch( Exception e ) {
-                    LogConsolidated.log( log, Level.ERROR, Dates.s( 5 ), msgFile + ": " + e.getMessage(), e );
+                    LogConsolidated.log( log, Level.ERROR, "MessageSender.syncDisk", Dates.s( 5 ), () -> msgFile + ": " + e.getMessage(), e );
 
                     Files.delete( lockFile );
                 }
@@ -479,7 +491,7 @@ public class MessageSender implements Closeable {
         private MessageStatus write( Message message ) throws IOException {
             if( !closed ) {
                 try {
-                    Metrics.counter( "oap.messages", "type", String.valueOf( message.messageType ), "status", "trysend" ).increment();
+                    trySendCounters.increment( message.messageType );
 
                     refreshConnection();
 
@@ -516,29 +528,29 @@ public class MessageSender implements Closeable {
                     switch( status ) {
                         case STATUS_ALREADY_WRITTEN -> {
                             log.trace( "already written {}", message.getHexMd5() );
-                            Metrics.counter( "oap.messages", "type", String.valueOf( message.messageType ), "status", "already_written" ).increment();
+                            alreadyWrittenCounters.increment( message.messageType );
                             lastStatus.put( message.messageType, __( ALREADY_WRITTEN, status ) );
                             return ALREADY_WRITTEN;
                         }
                         case MessageProtocol.STATUS_OK -> {
-                            Metrics.counter( "oap.messages", "type", String.valueOf( message.messageType ), "status", "success" ).increment();
+                            successCounters.increment( message.messageType );
                             lastStatus.put( message.messageType, __( OK, status ) );
                             return OK;
                         }
                         case STATUS_UNKNOWN_ERROR -> {
-                            Metrics.counter( "oap.messages", "type", String.valueOf( message.messageType ), "status", "error" ).increment();
+                            errorCounters.increment( message.messageType );
                             log.error( "unknown error" );
                             lastStatus.put( message.messageType, __( ERROR, status ) );
                             return ERROR;
                         }
                         case STATUS_UNKNOWN_ERROR_NO_RETRY -> {
-                            Metrics.counter( "oap.messages", "type", String.valueOf( message.messageType ), "status", "error_no_retry" ).increment();
+                            errorNoRetryCounters.increment( message.messageType );
                             log.error( "unknown error -> no retry" );
                             lastStatus.put( message.messageType, __( ERROR, status ) );
                             return ERROR_NO_RETRY;
                         }
                         case STATUS_UNKNOWN_MESSAGE_TYPE -> {
-                            Metrics.counter( "oap.messages", "type", String.valueOf( message.messageType ), "status", "unknown_message_type" ).increment();
+                            unknownMessageTypeCounters.increment( message.messageType );
                             log.error( "unknown message type: {}", status );
                             lastStatus.put( message.messageType, __( ERROR, status ) );
                             return ERROR_NO_RETRY;
@@ -548,7 +560,7 @@ public class MessageSender implements Closeable {
                             if( clientStatus != null ) {
                                 Metrics.counter( "oap.messages", "type", String.valueOf( message.messageType ), "status", "status_" + status + "(" + clientStatus + ")" ).increment();
                             } else {
-                                Metrics.counter( "oap.messages", "type", String.valueOf( message.messageType ), "status", "unknown_status" ).increment();
+                                unknownStatusCounters.increment( message.messageType );
                                 log.error( "unknown status: {}", status );
                             }
                             lastStatus.put( message.messageType, __( ERROR, status ) );
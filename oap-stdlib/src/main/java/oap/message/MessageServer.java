@@ -29,6 +29,7 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tags;
 import lombok.extern.slf4j.Slf4j;
+import oap.concurrent.Executors;
 import oap.concurrent.SynchronizedThread;
 import oap.concurrent.ThreadPoolExecutor;
 import oap.io.Closeables;
@@ -43,6 +44,7 @@ import java.net.SocketTimeoutException;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
@@ -57,7 +59,7 @@ public class MessageServer implements Runnable, Closeable {
     private final int port;
     private final Path controlStatePath;
     private final SynchronizedThread thread = new SynchronizedThread( this );
-    private ThreadPoolExecutor executor;
+    private ExecutorService executor;
     private final Counter rejectedCounter;
     private final Counter handledCounter;
     private final AtomicInteger activeCounter = new AtomicInteger();
@@ -65,6 +67,7 @@ public class MessageServer implements Runnable, Closeable {
     private ServerSocket serverSocket;
     private MessageHashStorage hashes;
     public int maximumPoolSize = 1024;
+    public boolean virtualThreads = false;
 
     public MessageServer( Path controlStatePath, int port, List<MessageListener> listeners, long hashTtl ) {
         this.controlStatePath = controlStatePath;
@@ -82,11 +85,12 @@ public class MessageServer implements Runnable, Closeable {
     }
 
     public void start() {
-        log.info( "maximumPoolSize = {}, port = {}, clientHashCacheSize = {}, listeners = {}",
-            maximumPoolSize, port, clientHashCacheSize, Lists.map( listeners, MessageListener::getInfo ) );
+        log.info( "maximumPoolSize = {}, virtualThreads = {}, port = {}, clientHashCacheSize = {}, listeners = {}",
+            maximumPoolSize, virtualThreads, port, clientHashCacheSize, Lists.map( listeners, MessageListener::getInfo ) );
 
-        executor =
-            new ThreadPoolExecutor( 0, maximumPoolSize, 100, TimeUnit.SECONDS, new SynchronousQueue<>(),
+        executor = virtualThreads
+            ? Executors.newVirtualThreadPerTaskExecutor( maximumPoolSize, "socket-message-worker" )
+            : new ThreadPoolExecutor( 0, maximumPoolSize, 100, TimeUnit.SECONDS, new SynchronousQueue<>(),
                 new ThreadFactoryBuilder().setNameFormat( "socket-message-worker-%d" ).build(),
                 new java.util.concurrent.ThreadPoolExecutor.AbortPolicy() );
 
@@ -69,6 +69,20 @@ public class Pool<T> implements Closeable {
      */
     public Pool( int minSize, int maxSize, int partitionSize, int maxWaitMilliseconds, int maxIdleMilliseconds, int scavengeIntervalMilliseconds,
                  ObjectFactory<T> objectFactory, ThreadFactory threadFactory ) {
+        this( minSize, maxSize, partitionSize, maxWaitMilliseconds, maxIdleMilliseconds, scavengeIntervalMilliseconds,
+            objectFactory, Executors.newFixedBlockingThreadPool( minSize, maxSize, threadFactory ) );
+    }
+
+    /**
+     * @param threadPool executor for {@link #supply(Function)} and {@link #run(Consumer)},
+     *                   e.g. {@link Executors#newVirtualBlockingExecutor(int, String)}
+     */
+    public Pool( int size, ObjectFactory<T> objectFactory, Executors.BlockingExecutor threadPool ) {
+        this( size, size, 1, MAX_WAIT_MILLISECONDS, MAX_IDLE_MILLISECONDS, 0, objectFactory, threadPool );
+    }
+
+    public Pool( int minSize, int maxSize, int partitionSize, int maxWaitMilliseconds, int maxIdleMilliseconds, int scavengeIntervalMilliseconds,
+                 ObjectFactory<T> objectFactory, Executors.BlockingExecutor threadPool ) {
         var config = new PoolConfig()
             .setMinSize( minSize )
             .setMinSize( maxSize )
@@ -78,7 +92,7 @@ public class Pool<T> implements Closeable {
             .setScavengeIntervalMilliseconds( scavengeIntervalMilliseconds );
 
         objectPool = new DisruptorObjectPool<>( config, objectFactory );
-        threadPool = Executors.newFixedBlockingThreadPool( minSize, maxSize, threadFactory );
+        this.threadPool = threadPool;
     }
 
     public <R> CompletableFuture<R> supply( Function<T, R> func ) {
@@ -30,24 +30,42 @@ import io.micrometer.prometheus.PrometheusMeterRegistry;
 import io.undertow.Handlers;
 import io.undertow.Undertow;
 import io.undertow.UndertowOptions;
+import io.undertow.server.HttpServerExchange;
 import io.undertow.server.handlers.BlockingHandler;
 import io.undertow.util.Headers;
 import lombok.extern.slf4j.Slf4j;
 import oap.util.Dates;
+import oap.util.FastByteArrayOutputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.joda.time.DateTimeUtils;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.zip.GZIPOutputStream;
 
 import static java.net.HttpURLConnection.HTTP_OK;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 @Slf4j
 public class PrometheusExporter implements Closeable {
     public static final PrometheusMeterRegistry prometheusRegistry = new PrometheusMeterRegistry( PrometheusConfig.DEFAULT );
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final int INITIAL_SNAPSHOT_SIZE = 64 * 1024;
 
     static {
         Metrics.addRegistry( prometheusRegistry );
     }
 
     private final Undertow server;
+    private final Snapshot plain = new Snapshot( false );
+    private final Snapshot gzip = new Snapshot( true );
+    /**
+     * ms, scrapes within the window share one rendered snapshot. 0 - every scrape streams the registry into the response.
+     */
+    public long snapshotTtl = 0;
 
     public PrometheusExporter( int port ) {
         this( port, "/metrics" );
@@ -61,18 +79,66 @@ public class PrometheusExporter implements Closeable {
             .addHttpListener( port, "0.0.0.0" )
             .setServerOption( UndertowOptions.ALWAYS_SET_KEEP_ALIVE, false )
             .setServerOption( UndertowOptions.IDLE_TIMEOUT, ( int ) Dates.s( 30 ) )
-            .setHandler( Handlers.path().addPrefixPath( path, new BlockingHandler( exchange -> {
-                var response = prometheusRegistry.scrape();
-                exchange.setStatusCode( HTTP_OK );
-                exchange.getResponseHeaders().add( Headers.CONTENT_LENGTH, response.getBytes().length );
-                try( var os = exchange.getOutputStream() ) {
-                    os.write( response.getBytes() );
-                }
-
-            } ) ) )
+            .setHandler( Handlers.path().addPrefixPath( path, new BlockingHandler( this::scrape ) ) )
             .build();
     }
 
+    private void scrape( HttpServerExchange exchange ) throws IOException {
+        var gzipped = acceptsGzip( exchange );
+
+        exchange.setStatusCode( HTTP_OK );
+        exchange.getResponseHeaders().put( Headers.CONTENT_TYPE, CONTENT_TYPE );
+        if( gzipped ) exchange.getResponseHeaders().put( Headers.CONTENT_ENCODING, "gzip" );
+
+        if( snapshotTtl > 0 ) {
+            var content = ( gzipped ? gzip : plain ).get();
+            exchange.getResponseHeaders().put( Headers.CONTENT_LENGTH, content.length );
+            try( var os = exchange.getOutputStream() ) {
+                os.write( content.array, 0, content.length );
+            }
+        } else try( var os = exchange.getOutputStream() ) {
+            write( os, gzipped );
+        }
+    }
+
+    private static boolean acceptsGzip( HttpServerExchange exchange ) {
+        var values = exchange.getRequestHeaders().get( Headers.ACCEPT_ENCODING );
+        if( values == null ) return false;
+        for( var value : values )
+            if( acceptsGzip( value ) ) return true;
+        return false;
+    }
+
+    /**
+     * @param acceptEncoding Accept-Encoding header value
+     * @return {@code true} if gzip is listed without {@code q=0}
+     */
+    static boolean acceptsGzip( String acceptEncoding ) {
+        for( var coding : StringUtils.split( acceptEncoding, ',' ) ) {
+            var parameters = StringUtils.split( coding, ';' );
+            if( parameters.length == 0 || !"gzip".equalsIgnoreCase( parameters[0].trim() ) ) continue;
+
+            var q = 1d;
+            for( var i = 1; i < parameters.length; i++ ) {
+                var parameter = parameters[i].trim();
+                if( parameter.startsWith( "q=" ) ) q = NumberUtils.toDouble( parameter.substring( 2 ).trim(), 0d );
+            }
+            return q > 0;
+        }
+        return false;
+    }
+
+    /**
+     * the response stream is buffered by undertow, the writer and gzip add only their default internal buffers
+     */
+    private static void write( OutputStream out, boolean gzip ) throws IOException {
+        var os = gzip ? new GZIPOutputStream( out ) : out;
+        var writer = new OutputStreamWriter( os, UTF_8 );
+        prometheusRegistry.scrape( writer );
+        writer.flush();
+        if( gzip ) ( ( GZIPOutputStream ) os ).finish();
+    }
+
     public void start() {
         server.start();
     }
@@ -85,4 +151,45 @@ public class PrometheusExporter implements Closeable {
     public void close() {
         server.stop();
     }
+
+    /**
+     * One buffer is allocated per refresh, sized by the previous snapshot, and published as is without a copy.
+     * It is never reused, so scrapes still writing an older snapshot are not affected.
+     */
+    private final class Snapshot {
+        private final boolean gzip;
+        private volatile Content content;
+
+        private Snapshot( boolean gzip ) {
+            this.gzip = gzip;
+        }
+
+        private Content get() throws IOException {
+            var c = content;
+            if( c != null && DateTimeUtils.currentTimeMillis() - c.rendered < snapshotTtl ) return c;
+
+            synchronized( this ) {
+                var now = DateTimeUtils.currentTimeMillis();
+                c = content;
+                if( c == null || now - c.rendered >= snapshotTtl ) {
+                    var buffer = new FastByteArrayOutputStream( c != null ? c.length + c.length / 8 : INITIAL_SNAPSHOT_SIZE );
+                    write( buffer, gzip );
+                    content = c = new Content( buffer.array, buffer.length, now );
+                }
+                return c;
+            }
+        }
+    }
+
+    private static final class Content {
+        private final byte[] array;
+        private final int length;
+        private final long rendered;
+
+        private Content( byte[] array, int length, long rendered ) {
+            this.array = array;
+            this.length = length;
+            this.rendered = rendered;
+        }
+    }
 }
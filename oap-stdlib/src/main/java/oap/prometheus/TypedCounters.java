@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package oap.prometheus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * Counters of one name resolved once per value of a byte tag (message type etc.):
+ * {@link #increment(byte)} is an array read instead of tag building and a registry lookup.
+ * A slot is registered on first use, so types that never occur are not exported.
+ */
+public final class TypedCounters {
+    private final String name;
+    private final Tags tags;
+    private final String typeTag;
+    private final IntFunction<String> typeValue;
+    private final AtomicReferenceArray<Counter> counters = new AtomicReferenceArray<>( 256 );
+
+    private TypedCounters( String name, Tags tags, String typeTag, IntFunction<String> typeValue ) {
+        this.name = name;
+        this.tags = tags;
+        this.typeTag = typeTag;
+        this.typeValue = typeValue;
+    }
+
+    /**
+     * type tag value is 0..255
+     */
+    public static TypedCounters unsigned( String name, String typeTag, String... tags ) {
+        return new TypedCounters( name, Tags.of( tags ), typeTag, type -> String.valueOf( type & 0xFF ) );
+    }
+
+    /**
+     * type tag value is -128..127
+     */
+    public static TypedCounters signed( String name, String typeTag, String... tags ) {
+        return new TypedCounters( name, Tags.of( tags ), typeTag, type -> String.valueOf( ( byte ) type ) );
+    }
+
+    public void increment( byte type ) {
+        counter( type ).increment();
+    }
+
+    public Counter counter( byte type ) {
+        var index = Byte.toUnsignedInt( type );
+        var counter = counters.get( index );
+        if( counter == null ) {
+            counter = Metrics.counter( name, tags.and( typeTag, typeValue.apply( index ) ) );
+            counters.set( index, counter );
+        }
+        return counter;
+    }
+}
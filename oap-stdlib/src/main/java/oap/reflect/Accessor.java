@@ -0,0 +1,315 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.reflect;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Compiled {@link Reflect#get(Object, String)} / {@link Reflect#set(Object, String, Object)} path.
+ * The path is parsed once, fields are read and written through {@link MethodHandle}s.
+ * Every field segment checks the last seen receiver class first, pre-populated from the declared field type,
+ * handles of other receiver classes are kept in a {@link ClassValue}, so polymorphic receivers are resolved once per class.
+ * <p>
+ * Accessors are thread safe and should be reused.
+ *
+ * @see Reflect#compile(Class, String)
+ */
+public final class Accessor {
+    private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private static final MethodType GETTER = MethodType.methodType( Object.class, Object.class );
+    private static final MethodType SETTER = MethodType.methodType( void.class, Object.class, Object.class );
+
+    public final String path;
+    private final Segment[] segments;
+
+    Accessor( Class<?> clazz, String path ) {
+        this.path = path;
+        var names = StringUtils.split( path, '.' );
+        this.segments = new Segment[names.length];
+
+        Class<?> type = clazz;
+        for( var i = 0; i < names.length; i++ ) {
+            segments[i] = new Segment( names[i], type );
+            type = segments[i].declaredType();
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public <T> T get( Object object ) {
+        Object next = object;
+        for( var segment : segments ) {
+            if( next == null ) return null;
+            next = segment.get( next );
+        }
+        return ( T ) next;
+    }
+
+    /**
+     * @return value of an {@code int} field without boxing or {@code 0} if any object on the path is {@code null}
+     */
+    public int getInt( Object object ) {
+        var owner = owner( object );
+        return owner != null ? segments[segments.length - 1].getInt( owner ) : 0;
+    }
+
+    /**
+     * @see #getInt(Object)
+     */
+    public long getLong( Object object ) {
+        var owner = owner( object );
+        return owner != null ? segments[segments.length - 1].getLong( owner ) : 0L;
+    }
+
+    /**
+     * @see #getInt(Object)
+     */
+    public double getDouble( Object object ) {
+        var owner = owner( object );
+        return owner != null ? segments[segments.length - 1].getDouble( owner ) : 0d;
+    }
+
+    /**
+     * @see #getInt(Object)
+     */
+    public boolean getBoolean( Object object ) {
+        var owner = owner( object );
+        return owner != null && segments[segments.length - 1].getBoolean( owner );
+    }
+
+    public void set( Object object, Object value ) {
+        var owner = owner( object );
+        if( owner != null ) segments[segments.length - 1].set( owner, value );
+    }
+
+    private Object owner( Object object ) {
+        Object next = object;
+        for( var i = 0; i < segments.length - 1; i++ ) {
+            if( next == null ) return null;
+            next = segments[i].get( next );
+        }
+        return next;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    private static final class Segment {
+        private final String name;
+        private final String key;
+        private final int index;
+        private final ClassValue<Optional<FieldHandle>> handles = new ClassValue<>() {
+            @Override
+            protected Optional<FieldHandle> computeValue( Class<?> type ) {
+                return Optional.ofNullable( FieldHandle.of( type, name ) );
+            }
+        };
+        private volatile FieldHandle cache;
+
+        Segment( String name, Class<?> declaringType ) {
+            this.name = name;
+            var bracket = name.startsWith( "[" ) && name.endsWith( "]" );
+            this.key = bracket ? name.substring( 1, name.length() - 1 ) : null;
+            this.index = bracket ? NumberUtils.toInt( key.trim(), -1 ) : -1;
+            if( declaringType != null && !declaringType.isPrimitive() && !bracket ) this.cache = FieldHandle.of( declaringType, name );
+        }
+
+        Class<?> declaredType() {
+            var handle = cache;
+            return handle != null && !handle.optional ? handle.type : null;
+        }
+
+        private FieldHandle handle( Object instance ) {
+            var handle = cache;
+            var clazz = instance.getClass();
+            if( handle == null || handle.owner != clazz ) {
+                handle = handles.get( clazz ).orElse( null );
+                if( handle != null ) cache = handle;
+            }
+            return handle;
+        }
+
+        Object get( Object instance ) {
+            if( key != null ) {
+                if( instance instanceof Map<?, ?> ) return ( ( Map<?, ?> ) instance ).get( key );
+                if( instance instanceof List<?> ) {
+                    var list = ( List<?> ) instance;
+                    return index >= 0 && index < list.size() ? list.get( index ) : null;
+                }
+            }
+
+            var handle = handle( instance );
+            if( handle == null ) return null;
+
+            try {
+                var value = ( Object ) handle.getter.invokeExact( instance );
+                return value instanceof Optional<?> ? ( ( Optional<?> ) value ).orElse( null ) : value;
+            } catch( Throwable e ) {
+                throw new ReflectException( name, e );
+            }
+        }
+
+        int getInt( Object instance ) {
+            var handle = key == null ? handle( instance ) : null;
+            if( handle == null || handle.primitive == null || handle.type != int.class ) return number( get( instance ) ).intValue();
+
+            try {
+                return ( int ) handle.primitive.invokeExact( instance );
+            } catch( Throwable e ) {
+                throw new ReflectException( name, e );
+            }
+        }
+
+        long getLong( Object instance ) {
+            var handle = key == null ? handle( instance ) : null;
+            if( handle == null || handle.primitive == null || handle.type != long.class ) return number( get( instance ) ).longValue();
+
+            try {
+                return ( long ) handle.primitive.invokeExact( instance );
+            } catch( Throwable e ) {
+                throw new ReflectException( name, e );
+            }
+        }
+
+        double getDouble( Object instance ) {
+            var handle = key == null ? handle( instance ) : null;
+            if( handle == null || handle.primitive == null || handle.type != double.class ) return number( get( instance ) ).doubleValue();
+
+            try {
+                return ( double ) handle.primitive.invokeExact( instance );
+            } catch( Throwable e ) {
+                throw new ReflectException( name, e );
+            }
+        }
+
+        boolean getBoolean( Object instance ) {
+            var handle = key == null ? handle( instance ) : null;
+            if( handle == null || handle.primitive == null || handle.type != boolean.class ) return Boolean.TRUE.equals( get( instance ) );
+
+            try {
+                return ( boolean ) handle.primitive.invokeExact( instance );
+            } catch( Throwable e ) {
+                throw new ReflectException( name, e );
+            }
+        }
+
+        private Number number( Object value ) {
+            if( value == null ) return 0;
+            if( value instanceof Number ) return ( Number ) value;
+            throw new ReflectException( name + ": " + value.getClass() + " is not a number" );
+        }
+
+        @SuppressWarnings( "unchecked" )
+        void set( Object instance, Object value ) {
+            if( key != null ) {
+                if( instance instanceof Map<?, ?> ) {
+                    ( ( Map<Object, Object> ) instance ).put( key, value );
+                    return;
+                }
+                if( instance instanceof List<?> ) {
+                    var list = ( List<Object> ) instance;
+                    if( "*".equals( key.trim() ) ) list.add( value );
+                    else {
+                        while( list.size() <= index ) list.add( null );
+                        list.set( index, value );
+                    }
+                    return;
+                }
+            }
+
+            var handle = handle( instance );
+            if( handle == null ) return;
+
+            try {
+                handle.setter.invokeExact( instance, ( Object ) ( handle.optional ? Optional.ofNullable( value ) : value ) );
+            } catch( Throwable e ) {
+                throw new ReflectException( name, e );
+            }
+        }
+    }
+
+    private static final class FieldHandle {
+        private static final MethodHandle FIELD_GET;
+        private static final MethodHandle FIELD_SET;
+
+        static {
+            try {
+                FIELD_GET = lookup.findVirtual( Reflection.Field.class, "get", GETTER );
+                FIELD_SET = lookup.findVirtual( Reflection.Field.class, "set", SETTER );
+            } catch( NoSuchMethodException | IllegalAccessException e ) {
+                throw new ExceptionInInitializerError( e );
+            }
+        }
+
+        final Class<?> owner;
+        final Class<?> type;
+        final boolean optional;
+        final MethodHandle getter;
+        final MethodHandle primitive;
+        final MethodHandle setter;
+
+        /**
+         * fields, which cannot be accessed by method handles (static, final, inaccessible), fall back to {@link Reflection.Field}
+         */
+        private FieldHandle( Class<?> owner, Reflection.Field field ) {
+            this.owner = owner;
+            this.type = field.underlying.getType();
+            this.optional = Optional.class.equals( type );
+
+            var modifiers = field.underlying.getModifiers();
+            var isStatic = Modifier.isStatic( modifiers );
+
+            MethodHandle handle = null;
+            if( !isStatic ) try {
+                handle = lookup.unreflectGetter( field.underlying );
+            } catch( IllegalAccessException ignored ) {
+            }
+            this.getter = handle != null ? handle.asType( GETTER ) : FIELD_GET.bindTo( field );
+            this.primitive = handle != null && type.isPrimitive() ? handle.asType( MethodType.methodType( type, Object.class ) ) : null;
+
+            MethodHandle setterHandle = null;
+            if( !isStatic && !Modifier.isFinal( modifiers ) ) try {
+                setterHandle = lookup.unreflectSetter( field.underlying ).asType( SETTER );
+            } catch( IllegalAccessException ignored ) {
+            }
+            this.setter = setterHandle != null ? setterHandle : FIELD_SET.bindTo( field );
+        }
+
+        static FieldHandle of( Class<?> owner, String name ) {
+            var field = Reflect.reflect( owner ).field( name ).orElse( null );
+            return field != null ? new FieldHandle( owner, field ) : null;
+        }
+    }
+}
@@ -29,7 +29,6 @@ import oap.util.Pair;
 import oap.util.Strings;
 import org.apache.commons.lang3.StringUtils;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -39,7 +38,13 @@ import java.util.function.Function;
 @SuppressWarnings( "UnstableApiUsage" )
 public class Reflect {
 
-    private static final HashMap<TypeToken<?>, Reflection> reflections = new HashMap<>();
+    private static final ConcurrentHashMap<TypeToken<?>, Reflection> reflections = new ConcurrentHashMap<>();
+    private static final ClassValue<Reflection> classReflections = new ClassValue<>() {
+        @Override
+        protected Reflection computeValue( Class<?> type ) {
+            return reflections.computeIfAbsent( TypeToken.of( type ), Reflection::new );
+        }
+    };
     private static final Map<String, Class<?>> classes = new ConcurrentHashMap<>();
     private static final SecurityManager securityManager = new SecurityManager();
 
@@ -48,19 +53,27 @@ public class Reflect {
     }
 
     public static Reflection reflect( Class<?> clazz ) {
-        return reflect( TypeToken.of( clazz ) );
+        return classReflections.get( clazz ).init();
     }
 
     public static Reflection reflect( Class<?> clazz, Coercions coercions ) {
         return reflect( TypeToken.of( clazz ), coercions );
     }
 
-    protected static synchronized Reflection reflect( TypeToken<?> token ) {
-        return reflections.computeIfAbsent( token, Reflection::new ).init();
+    /**
+     * Lookups of the initialized reflections never block, see {@link Reflection#init()}.
+     */
+    protected static Reflection reflect( TypeToken<?> token ) {
+        var reflection = reflections.get( token );
+        if( reflection == null ) reflection = reflections.computeIfAbsent( token, Reflection::new );
+        return reflection.init();
     }
 
-    protected static synchronized Reflection reflect( TypeToken<?> token, Coercions coercions ) {
-        return reflections.computeIfAbsent( token, typeToken -> new Reflection( typeToken, coercions ) ).init();
+    protected static Reflection reflect( TypeToken<?> token, Coercions coercions ) {
+        var reflection = reflections.get( token );
+        if( reflection == null )
+            reflection = reflections.computeIfAbsent( token, typeToken -> new Reflection( typeToken, coercions ) );
+        return reflection.init();
     }
 
     public static Reflection reflect( String className ) throws ReflectException {
@@ -113,6 +126,14 @@ public class Reflect {
         return get( object, path );
     }
 
+    /**
+     * @param clazz declared type of the objects, the accessor works with any runtime type
+     * @return reusable accessor, equivalent to {@link #get(Object, String)} and {@link #set(Object, String, Object)}
+     */
+    public static Accessor compile( Class<?> clazz, String path ) {
+        return new Accessor( clazz, path );
+    }
+
     @SuppressWarnings( "unchecked" )
     public static <T> T get( Object object, String path ) {
         Object next = object;
@@ -52,6 +52,10 @@ import static java.util.stream.Collectors.joining;
 import static oap.util.Pair.__;
 
 public class Reflection extends AbstractAnnotated<Class<?>> {
+    /**
+     * initialization resolves type parameters recursively, a single lock avoids deadlocks between reflections
+     */
+    private static final Object initLock = new Object();
     //todo why map?
     public final LinkedHashMap<String, Field> fields = new LinkedHashMap<>();
     private final Coercions coercions;
@@ -60,6 +64,7 @@ public class Reflection extends AbstractAnnotated<Class<?>> {
     public List<Method> methods;
     public List<Reflection> typeParameters;
     public List<Constructor> constructors;
+    private volatile boolean initialized = false;
 
     @SuppressWarnings( "UnstableApiUsage" )
     Reflection( TypeToken<?> typeToken ) {
@@ -101,9 +106,10 @@ public class Reflection extends AbstractAnnotated<Class<?>> {
 
     @SuppressWarnings( "UnstableApiUsage" )
     Reflection init() {
-        if( this.methods == null ) {
-            synchronized( this ) {
-                if( this.methods == null ) {
+        if( !initialized ) {
+            synchronized( initLock ) {
+                // methods != null - reentrant call from the type parameters resolution
+                if( !initialized && this.methods == null ) {
                     this.methods = Lists.map( declared( typeToken.getRawType(), Class::getDeclaredMethods ), Method::new );
 
                     for( java.lang.reflect.Field field : declared( typeToken.getRawType(), Class::getDeclaredFields ) )
@@ -115,6 +121,7 @@ public class Reflection extends AbstractAnnotated<Class<?>> {
                         .toList();
 
                     this.typeParameters = Lists.map( typeToken.getRawType().getTypeParameters(), this::resolve );
+                    this.initialized = true;
                 }
             }
         }
@@ -0,0 +1,104 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.joda.time.DateTimeUtils;
+import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LogConsolidatedTest {
+    private Logger logger;
+    private ListAppender<ILoggingEvent> appender;
+
+    @BeforeMethod
+    public void beforeMethod() {
+        logger = ( Logger ) LoggerFactory.getLogger( LogConsolidatedTest.class );
+        appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender( appender );
+    }
+
+    @AfterMethod
+    public void afterMethod() {
+        logger.detachAppender( appender );
+        DateTimeUtils.setCurrentMillisSystem();
+    }
+
+    @Test
+    public void suppressWithinWindow() {
+        DateTimeUtils.setCurrentMillisFixed( 0 );
+        LogConsolidated.log( logger, Level.WARN, "suppressWithinWindow", 1000, "a", null );
+        LogConsolidated.log( logger, Level.WARN, "suppressWithinWindow", 1000, "b", null );
+        DateTimeUtils.setCurrentMillisFixed( 999 );
+        LogConsolidated.log( logger, Level.WARN, "suppressWithinWindow", 1000, "c", null );
+
+        DateTimeUtils.setCurrentMillisFixed( 1000 );
+        LogConsolidated.log( logger, Level.WARN, "suppressWithinWindow", 1000, "d", null );
+        DateTimeUtils.setCurrentMillisFixed( 2000 );
+        LogConsolidated.log( logger, Level.WARN, "suppressWithinWindow", 1000, "e", null );
+
+        assertThat( appender.list ).extracting( ILoggingEvent::getFormattedMessage ).containsExactly( "a", "|x2| d", "e" );
+    }
+
+    @Test
+    public void keysAreIndependent() {
+        DateTimeUtils.setCurrentMillisFixed( 0 );
+        LogConsolidated.log( logger, Level.WARN, "keysAreIndependent.1", 1000, "a", null );
+        LogConsolidated.log( logger, Level.WARN, "keysAreIndependent.2", 1000, "b", null );
+
+        assertThat( appender.list ).extracting( ILoggingEvent::getFormattedMessage ).containsExactly( "a", "b" );
+    }
+
+    @Test
+    public void supplierIsNotCalledWhenSuppressed() {
+        DateTimeUtils.setCurrentMillisFixed( 0 );
+        var built = new AtomicInteger();
+        for( var i = 0; i < 3; i++ )
+            LogConsolidated.log( logger, Level.WARN, "supplierIsNotCalledWhenSuppressed", 1000, () -> "m" + built.incrementAndGet(), null );
+
+        assertThat( built.get() ).isEqualTo( 1 );
+        assertThat( appender.list ).extracting( ILoggingEvent::getFormattedMessage ).containsExactly( "m1" );
+    }
+
+    @Test
+    public void callerLineIsTheKey() {
+        DateTimeUtils.setCurrentMillisFixed( 0 );
+        for( var i = 0; i < 3; i++ )
+            LogConsolidated.log( logger, Level.WARN, 1000, "loop", null );
+        LogConsolidated.log( logger, Level.WARN, 1000, "other line", null );
+
+        assertThat( appender.list ).extracting( ILoggingEvent::getFormattedMessage ).containsExactly( "loop", "other line" );
+    }
+}
@@ -25,9 +25,11 @@
 package oap.alert;
 
 import oap.concurrent.SynchronizedThread;
-import oap.concurrent.Threads;
 import org.testng.annotations.Test;
 
+import java.util.List;
+
+import static oap.testng.Asserts.assertEventually;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class BackgroundMessageStreamTest {
@@ -53,9 +55,69 @@ public class BackgroundMessageStreamTest {
 
         SynchronizedThread thread = new SynchronizedThread( stream );
         thread.start();
-        Threads.sleepSafely( 100 );
+        assertEventually( 10, 100, () -> assertThat( transport.messages ).containsExactly( "Msg1" ) );
+        thread.stop();
+    }
+
+    @Test
+    public void batchesAndDeduplicates() {
+        TestTransport transport = new TestTransport();
+        BackgroundMessageStream<String> stream = new BackgroundMessageStream<>( transport,
+            new GuaranteedDeliveryTransport( 1 ) );
+
+        stream.send( "Msg1" );
+        stream.send( "Msg2" );
+        stream.send( "Msg1" );
+
+        SynchronizedThread thread = new SynchronizedThread( stream );
+        thread.start();
+        assertEventually( 10, 100, () -> assertThat( transport.batches ).containsExactly( List.of( "Msg1", "Msg2" ) ) );
+        thread.stop();
+    }
+
+    @Test
+    public void overflow() {
+        TestTransport transport = new TestTransport();
+        BackgroundMessageStream<String> oldest = new BackgroundMessageStream<>( transport,
+            new GuaranteedDeliveryTransport( 1 ), 2, 10, BackgroundMessageStream.OverflowPolicy.DROP_OLDEST );
+        BackgroundMessageStream<String> newest = new BackgroundMessageStream<>( transport,
+            new GuaranteedDeliveryTransport( 1 ), 2, 10, BackgroundMessageStream.OverflowPolicy.DROP_NEWEST );
+
+        for( var m : List.of( "Msg1", "Msg2", "Msg3" ) ) {
+            oldest.send( m );
+            newest.send( m );
+        }
+
+        assertThat( oldest.getQueueSize() ).isEqualTo( 2 );
+        assertThat( newest.getQueueSize() ).isEqualTo( 2 );
+
+        SynchronizedThread thread = new SynchronizedThread( oldest );
+        thread.start();
+        assertEventually( 10, 100, () -> assertThat( transport.messages ).containsExactly( "Msg2", "Msg3" ) );
         thread.stop();
-        assertThat( transport.messages ).containsExactly( "Msg1" );
     }
 
+    @Test
+    public void alwaysFailingMessage() {
+        TestTransport transport = new TestTransport();
+        transport.alwaysFailing.add( "Bad" );
+        BackgroundMessageStream<String> stream = new BackgroundMessageStream<>( transport,
+            new GuaranteedDeliveryTransport( 1, 3 ) );
+
+        stream.send( "Msg1" );
+        stream.send( "Bad" );
+        stream.send( "Msg2" );
+
+        SynchronizedThread thread = new SynchronizedThread( stream );
+        thread.start();
+        assertEventually( 10, 100, () -> assertThat( transport.batches ).hasSize( 3 ) );
+        stream.send( "Msg3" );
+        assertEventually( 10, 100, () -> assertThat( transport.batches ).hasSize( 4 ) );
+        thread.stop();
+
+        assertThat( transport.messages ).containsExactly( "Msg1", "Msg2", "Msg3" );
+        assertThat( transport.batches ).containsExactly(
+            List.of( "Msg1", "Bad", "Msg2" ), List.of( "Bad" ), List.of( "Bad" ), List.of( "Msg3" ) );
+        assertThat( stream.getQueueSize() ).isZero();
+    }
 }
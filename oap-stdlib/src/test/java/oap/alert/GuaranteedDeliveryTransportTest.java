@@ -27,6 +27,8 @@ package oap.alert;
 import lombok.SneakyThrows;
 import org.testng.annotations.Test;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @SuppressWarnings( "unchecked" )
@@ -52,6 +54,18 @@ public class GuaranteedDeliveryTransportTest {
         assertThat( transport.failures ).isEqualTo( 7 );
     }
 
+    @Test
+    public void batchTimeBudget() throws InterruptedException {
+        GuaranteedDeliveryTransport gdt = new GuaranteedDeliveryTransport( 1, Integer.MAX_VALUE, 200 );
+        TestTransport transport = new TestTransport();
+        transport.alwaysFailing.add( "Bad" );
+
+        var start = System.currentTimeMillis();
+        assertThat( gdt.sendBatch( List.of( "Aha!", "Bad" ), transport ) ).containsExactly( "Bad" );
+        assertThat( System.currentTimeMillis() - start ).isLessThan( 5000 );
+        assertThat( transport.messages ).containsExactly( "Aha!" );
+    }
+
     @Test( expectedExceptions = InterruptedException.class )
     public void stopWhenInterrupted() throws InterruptedException {
         GuaranteedDeliveryTransport gdt = new GuaranteedDeliveryTransport( 10 );
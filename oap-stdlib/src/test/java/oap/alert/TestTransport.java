@@ -24,11 +24,15 @@
 
 package oap.alert;
 
-import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class TestTransport implements MessageTransport<String> {
-    List<String> messages = new ArrayList<>();
+    List<String> messages = new CopyOnWriteArrayList<>();
+    List<List<String>> batches = new CopyOnWriteArrayList<>();
+    Set<String> alwaysFailing = new HashSet<>();
     public int failures;
 
     public TestTransport( int failures ) {
@@ -41,10 +45,17 @@ public class TestTransport implements MessageTransport<String> {
 
     @Override
     public void send( String message ) {
+        if( alwaysFailing.contains( message ) ) throw new RuntimeException( "always failing " + message );
         if( failures > 0 ) {
             failures--;
             throw new RuntimeException( "failure #" + failures );
         }
         messages.add( message );
     }
+
+    @Override
+    public List<String> sendBatch( List<String> messages ) {
+        batches.add( List.copyOf( messages ) );
+        return MessageTransport.super.sendBatch( messages );
+    }
 }
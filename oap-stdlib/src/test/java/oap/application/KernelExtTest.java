@@ -35,6 +35,7 @@ import java.util.Map;
 
 import static oap.testng.Asserts.urlOfTestResource;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 
 public class KernelExtTest {
@@ -50,7 +51,14 @@ public class KernelExtTest {
             assertThat( found ).hasSize( 1 );
             assertThat( found.get( 0 ).ext ).isEqualTo( new TestKernelExt( "/s", "service" ) );
             assertThat( found.get( 0 ).name ).isEqualTo( "s1" );
+            assertThat( kernel.ofClass( TestBean.class ) ).hasSize( 2 );
 
+            assertThatThrownBy( () -> kernel.services.values().clear() ).isInstanceOf( UnsupportedOperationException.class );
+            assertThatThrownBy( () -> kernel.services.entrySet().iterator().remove() ).isInstanceOf( UnsupportedOperationException.class );
+
+            kernel.unregister( "module-ext", "s1" );
+            assertThat( kernel.servicesByExt( "ws", TestKernelExt.class ) ).isEmpty();
+            assertThat( kernel.ofClass( TestBean.class ) ).hasSize( 1 );
         } finally {
             kernel.stop();
         }
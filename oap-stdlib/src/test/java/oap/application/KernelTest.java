@@ -296,6 +296,9 @@ public class KernelTest {
             kernel.start( Map.of( "boot.main", List.of( "d1", "d2" ) ) );
 
             assertThat( kernel.ofClass( ServiceOne.class ) ).hasSize( 2 );
+            assertThat( kernel.ofClass( "d1", ServiceOne.class ) ).hasSize( 1 );
+            assertThat( kernel.ofClass( "d2", Object.class ) ).hasSize( 1 );
+            assertThat( kernel.ofClass( "unknown", ServiceOne.class ) ).isEmpty();
             assertThat( kernel.service( "d1.ServiceOne" ) ).isPresent();
             assertThat( kernel.<ServiceOne>service( "d1.ServiceOne" ).get().i ).isEqualTo( 1 );
             assertThat( kernel.service( "d2.ServiceOne" ) ).isPresent();
@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.benchmark;
+
+import oap.json.Binder;
+import oap.testng.Fixtures;
+import oap.testng.TestDirectoryFixture;
+import org.testng.annotations.Test;
+
+import static oap.benchmark.Benchmark.benchmark;
+import static oap.testng.TestDirectoryFixture.testPath;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class BenchmarkTest extends Fixtures {
+    {
+        fixture( TestDirectoryFixture.FIXTURE );
+    }
+
+    @Test
+    public void histogram() {
+        var histogram = new Histogram();
+        for( var i = 1; i <= 100_000; i++ ) histogram.record( i );
+
+        assertThat( histogram.count() ).isEqualTo( 100_000 );
+        assertThat( histogram.percentile( 50 ) ).isCloseTo( 50_000, within( 800L ) );
+        assertThat( histogram.percentile( 99 ) ).isCloseTo( 99_000, within( 1600L ) );
+        assertThat( histogram.percentile( 100 ) ).isEqualTo( 100_000 );
+
+        for( var v : new long[] { 0, 1, 127, 128, 129, 1000, 123456789, Long.MAX_VALUE } )
+            assertThat( Histogram.value( Histogram.index( v ) ) ).isGreaterThanOrEqualTo( v );
+    }
+
+    @Test
+    public void baseline() {
+        benchmark( "sleep", 10, () -> Thread.sleep( 1 ) )
+            .experiments( 2 )
+            .output( testPath( "output" ) )
+            .run();
+
+        var result = Binder.json.unmarshal( Result.class, testPath( "output/BenchmarkTest.sleep.json" ) );
+        assertThat( result.p50 ).isGreaterThanOrEqualTo( 1_000_000 );
+
+        result.time = 1;
+        result.p99 = 1;
+        Binder.json.marshal( testPath( "baseline/BenchmarkTest.sleep.json" ), result );
+
+        assertThatThrownBy( () -> benchmark( "sleep", 10, () -> Thread.sleep( 1 ) )
+            .experiments( 2 )
+            .baseline( testPath( "baseline" ), 0.1 )
+            .run() )
+            .isInstanceOf( AssertionError.class )
+            .hasMessageContaining( "avg time 1 ->" )
+            .hasMessageContaining( "p99 1 ->" );
+    }
+}
@@ -26,6 +26,9 @@ package oap.concurrent;
 
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
+import java.util.BitSet;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class CircularBufferTest {
@@ -41,4 +44,110 @@ public class CircularBufferTest {
         assertThat( buffer.getElements() ).containsExactly( 2, 3, 4 );
     }
 
+    @Test
+    public void snapshotAndDrain() {
+        var buffer = new LongCircularBuffer( 4 );
+        var dest = new long[2];
+        for( var i = 1; i <= 5; i++ ) buffer.add( i );
+
+        assertThat( buffer.snapshot( dest ) ).isEqualTo( 2 );
+        assertThat( dest ).containsExactly( 4, 5 );
+        assertThat( buffer.getElements() ).containsExactly( 2, 3, 4, 5 );
+
+        assertThat( buffer.drain( dest ) ).isEqualTo( 2 );
+        assertThat( dest ).containsExactly( 2, 3 );
+        assertThat( buffer.drain( dest ) ).isEqualTo( 2 );
+        assertThat( dest ).containsExactly( 4, 5 );
+        assertThat( buffer.drain( dest ) ).isZero();
+
+        buffer.add( 6 );
+        assertThat( buffer.drain( dest ) ).isEqualTo( 1 );
+        assertThat( dest[0] ).isEqualTo( 6 );
+    }
+
+    @Test
+    public void concurrentWriters() throws InterruptedException {
+        var buffer = new IntCircularBuffer( 64 );
+        var threads = new Thread[8];
+        for( var t = 0; t < threads.length; t++ ) {
+            var writer = t;
+            threads[t] = new Thread( () -> {
+                for( var i = 0; i < 100_000; i++ ) buffer.add( writer * 1_000_000 + i );
+            } );
+            threads[t].start();
+        }
+
+        var dest = new int[64];
+        for( var i = 0; i < 1000; i++ ) {
+            var size = buffer.snapshot( dest );
+            var last = new int[threads.length];
+            Arrays.fill( last, -1 );
+            for( var j = 0; j < size; j++ ) {
+                var writer = dest[j] / 1_000_000;
+                var value = dest[j] % 1_000_000;
+                assertThat( value ).isGreaterThan( last[writer] );
+                last[writer] = value;
+            }
+        }
+
+        for( var thread : threads ) thread.join();
+        assertThat( buffer.count() ).isEqualTo( 800_000 );
+        assertThat( buffer.getElements() ).isNotEmpty().hasSizeLessThanOrEqualTo( 64 );
+    }
+
+    @Test
+    public void concurrentDrain() throws InterruptedException {
+        var buffer = new IntCircularBuffer( 1 << 18 );
+        var threads = new Thread[8];
+        for( var t = 0; t < threads.length; t++ ) {
+            var writer = t;
+            threads[t] = new Thread( () -> {
+                for( var i = 0; i < 25_000; i++ ) buffer.add( writer * 25_000 + i );
+            } );
+            threads[t].start();
+        }
+
+        var seen = new BitSet();
+        var dest = new int[16];
+        var total = 0;
+        while( total < 200_000 ) {
+            var finished = Arrays.stream( threads ).noneMatch( Thread::isAlive );
+            var size = buffer.drain( dest );
+            for( var i = 0; i < size; i++ ) {
+                assertThat( seen.get( dest[i] ) ).isFalse();
+                seen.set( dest[i] );
+            }
+            total += size;
+            if( size == 0 && finished ) break;
+        }
+
+        for( var thread : threads ) thread.join();
+        assertThat( seen.cardinality() ).isEqualTo( 200_000 );
+    }
+
+    @Test
+    public void parkedWriterDoesNotBlockOthers() throws InterruptedException {
+        var buffer = new LongCircularBuffer( 4 );
+        var parked = buffer.next();
+        var parkedIndex = buffer.index( parked );
+        assertThat( buffer.claim( parkedIndex, parked ) ).isTrue();
+
+        var writer = new Thread( () -> {
+            for( var i = 1; i <= 100; i++ ) buffer.add( i );
+        } );
+        writer.start();
+        writer.join( 10_000 );
+        assertThat( writer.isAlive() ).isFalse();
+
+        assertThat( buffer.getElements() ).containsExactly( 97, 98, 99 );
+        var dest = new long[4];
+        assertThat( buffer.drain( dest ) ).isEqualTo( 3 );
+        assertThat( Arrays.copyOf( dest, 3 ) ).containsExactly( 97, 98, 99 );
+
+        buffer.publish( parkedIndex, parked );
+        buffer.add( 101 );
+        assertThat( buffer.getElements() ).containsExactly( 98, 99, 101 );
+        assertThat( buffer.drain( dest ) ).isEqualTo( 1 );
+        assertThat( dest[0] ).isEqualTo( 101 );
+    }
 }
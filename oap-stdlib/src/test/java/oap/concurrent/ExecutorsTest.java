@@ -27,12 +27,18 @@ package oap.concurrent;
 import org.testng.annotations.Test;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
 public class ExecutorsTest {
     @Test
     public void test() throws InterruptedException, ExecutionException, TimeoutException {
@@ -55,4 +61,51 @@ public class ExecutorsTest {
         CompletableFuture.allOf( f ).get( 10, TimeUnit.SECONDS );
     }
 
+    @Test
+    public void virtualThreadPerTask() throws InterruptedException, ExecutionException, TimeoutException {
+        var executor = Executors.newVirtualThreadPerTaskExecutor( 2, "vt-test" );
+        var latch = new CountDownLatch( 1 );
+        var names = new ConcurrentLinkedQueue<String>();
+
+        var f1 = executor.submit( () -> {
+            names.add( Thread.currentThread().getName() );
+            latch.await();
+            return 1;
+        } );
+        var f2 = executor.submit( () -> {
+            latch.await();
+            return 2;
+        } );
+
+        assertThatThrownBy( () -> executor.execute( () -> {} ) ).isInstanceOf( RejectedExecutionException.class );
+
+        latch.countDown();
+        assertThat( f1.get( 10, TimeUnit.SECONDS ) + f2.get( 10, TimeUnit.SECONDS ) ).isEqualTo( 3 );
+        assertThat( names ).allMatch( n -> n.startsWith( "vt-test-" ) );
+
+        executor.shutdown();
+        assertThat( executor.awaitTermination( 10, TimeUnit.SECONDS ) ).isTrue();
+        assertThat( executor.isTerminated() ).isTrue();
+    }
+
+    @Test
+    public void virtualBlockingExecutor() throws InterruptedException {
+        var executor = Executors.newVirtualBlockingExecutor( 2, "vt-blocking" );
+        var active = new AtomicInteger();
+        var max = new AtomicInteger();
+        var done = new CountDownLatch( 10 );
+
+        for( var i = 0; i < 10; i++ )
+            executor.execute( () -> {
+                max.accumulateAndGet( active.incrementAndGet(), Math::max );
+                Threads.sleepSafely( 20 );
+                active.decrementAndGet();
+                done.countDown();
+            } );
+
+        assertThat( done.await( 10, TimeUnit.SECONDS ) ).isTrue();
+        assertThat( max.get() ).isLessThanOrEqualTo( 2 );
+        executor.shutdown();
+    }
+
 }
@@ -0,0 +1,113 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.concurrent;
+
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class KeyedLocksTest {
+    @Test
+    public void withLock() throws InterruptedException {
+        var locks = new KeyedLocks( "test" );
+        var counter = new int[1];
+
+        var pool = java.util.concurrent.Executors.newFixedThreadPool( 8 );
+        for( var i = 0; i < 10000; i++ )
+            pool.execute( () -> locks.withLock( "key", () -> {
+                counter[0]++;
+            } ) );
+        pool.shutdown();
+        assertThat( pool.awaitTermination( 1, TimeUnit.MINUTES ) ).isTrue();
+
+        assertThat( counter[0] ).isEqualTo( 10000 );
+        assertThat( locks.size() ).isZero();
+    }
+
+    @Test
+    public void tryWithLock() throws InterruptedException {
+        var locks = new KeyedLocks( "test" );
+        var locked = new CountDownLatch( 1 );
+        var release = new CountDownLatch( 1 );
+
+        var thread = new Thread( () -> locks.withLock( "key", () -> {
+            locked.countDown();
+            release.await();
+        } ) );
+        thread.start();
+        locked.await();
+
+        assertThat( locks.tryWithLock( "key", 10, TimeUnit.MILLISECONDS, () -> {} ) ).isFalse();
+        assertThat( locks.tryWithLock( "other", 10, TimeUnit.MILLISECONDS, () -> {} ) ).isTrue();
+        assertThat( locks.<Integer>withReadLock( "other", () -> 1 ) ).isEqualTo( 1 );
+
+        release.countDown();
+        thread.join();
+        assertThat( locks.tryWithLock( "key", 10, TimeUnit.MILLISECONDS, () -> {} ) ).isTrue();
+        assertThat( locks.size() ).isZero();
+    }
+
+    @Test
+    public void withLockAsync() {
+        var locks = new KeyedLocks( "test" );
+        var pool = java.util.concurrent.Executors.newFixedThreadPool( 4 );
+        try {
+            List<Integer> order = Collections.synchronizedList( new ArrayList<>() );
+            var futures = new ArrayList<CompletableFuture<Integer>>();
+            for( var i = 0; i < 100; i++ ) {
+                var n = i;
+                futures.add( locks.withLockAsync( "key", () -> {
+                    order.add( n );
+                    return n;
+                }, pool ) );
+            }
+
+            CompletableFuture.allOf( futures.toArray( new CompletableFuture[0] ) ).join();
+            assertThat( order ).isSorted().hasSize( 100 );
+            assertThat( futures.get( 99 ).join() ).isEqualTo( 99 );
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void withLockAsyncRejected() {
+        var locks = new KeyedLocks( "test" );
+        var rejected = locks.withLockAsync( "key", () -> 1, command -> {
+            throw new RejectedExecutionException();
+        } );
+
+        assertThat( rejected ).isCompletedExceptionally();
+        assertThat( locks.withLockAsync( "key", () -> 2, Runnable::run ).join() ).isEqualTo( 2 );
+    }
+}
@@ -24,15 +24,21 @@
 
 package oap.concurrent.scheduler;
 
+import io.micrometer.core.instrument.Metrics;
 import lombok.extern.slf4j.Slf4j;
 import oap.concurrent.Executors;
 import oap.concurrent.Threads;
+import oap.concurrent.VirtualThreads;
 import oap.util.function.Try;
 import org.joda.time.DateTime;
+import org.quartz.JobKey;
+import org.testng.SkipException;
 import org.testng.annotations.Test;
 
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
@@ -118,4 +124,104 @@ public class SchedulerTest {
         scheduled.cancel();
     }
 
+    @Test
+    public void fixedRate() {
+        var starts = new CopyOnWriteArrayList<Long>();
+        var ends = new CopyOnWriteArrayList<Long>();
+        try( Scheduled ignored = Scheduler.scheduleWithFixedDelay( 50, MILLISECONDS, () -> {
+            starts.add( System.nanoTime() );
+            Threads.sleepSafely( 40 );
+            ends.add( System.nanoTime() );
+        } ) ) {
+            assertEventually( 100, 100, () -> assertThat( ends ).hasSizeGreaterThanOrEqualTo( 6 ) );
+        }
+
+        // fixed rate: runs are 50ms apart from start to start, so a 40ms run is followed ~10ms after its end
+        // (fixed delay would always leave at least 50ms between the end of a run and the start of the next one)
+        var minGap = Long.MAX_VALUE;
+        for( var i = 1; i < ends.size(); i++ ) minGap = Math.min( minGap, starts.get( i ) - ends.get( i - 1 ) );
+        assertThat( minGap ).isLessThan( MILLISECONDS.toNanos( 50 ) );
+    }
+
+    @Test
+    public void overrunDoesNotOverlap() {
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        var counter = new AtomicInteger();
+        var scheduled = new ExecutorScheduled( "overrun", "overrun-test", 10, MILLISECONDS, () -> {
+            maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+            Threads.sleepSafely( 30 );
+            counter.incrementAndGet();
+            running.decrementAndGet();
+        }, Scheduler.workers );
+        scheduled.schedule();
+        try {
+            assertEventually( 50, 30, () -> assertThat( counter.get() ).isGreaterThan( 5 ) );
+        } finally {
+            scheduled.cancel();
+        }
+
+        assertThat( maxRunning.get() ).isEqualTo( 1 );
+        assertThat( Metrics.globalRegistry.get( "oap_scheduler_job_overrun" ).tags( "job", "overrun-test" ).counter().count() ).isGreaterThan( 5 );
+    }
+
+    @Test
+    public void cancelDoesNotInterruptOtherJobs() {
+        var workers = Executors.newFixedThreadPool( 1 );
+        var interrupted = new AtomicInteger();
+        var counter = new AtomicInteger();
+        var other = new ExecutorScheduled( "other", "other", 1, MILLISECONDS, () -> {
+            if( Thread.currentThread().isInterrupted() ) interrupted.incrementAndGet();
+            counter.incrementAndGet();
+        }, workers );
+        other.schedule();
+        try {
+            for( var i = 0; i < 200; i++ ) {
+                var job = new ExecutorScheduled( "job" + i, "job", 1, MILLISECONDS, () -> {}, workers );
+                job.schedule();
+                Threads.sleepSafely( 2 );
+                job.cancel();
+            }
+        } finally {
+            other.cancel();
+            workers.shutdown();
+        }
+
+        assertThat( counter.get() ).isGreaterThan( 0 );
+        assertThat( interrupted.get() ).isZero();
+    }
+
+    @Test
+    public void virtualThreads() {
+        if( !VirtualThreads.isSupported() ) throw new SkipException( "virtual threads are not supported" );
+
+        var thread = new AtomicReference<Thread>();
+        var scheduled = new ExecutorScheduled( "virtual", "virtual", 10, MILLISECONDS,
+            () -> thread.set( Thread.currentThread() ), Scheduler.workers( true ) );
+        scheduled.schedule();
+        try {
+            assertEventually( 50, 30, () -> assertThat( thread.get() ).isNotNull() );
+        } finally {
+            scheduled.cancel();
+        }
+
+        assertThat( thread.get().getName() ).startsWith( "oap-scheduler-" );
+        assertThat( Try.supply( () -> Thread.class.getMethod( "isVirtual" ).invoke( thread.get() ) ).get() ).isEqualTo( true );
+    }
+
+    @Test
+    public void virtualThreadsUnsupported() {
+        if( VirtualThreads.isSupported() ) throw new SkipException( "virtual threads are supported" );
+
+        assertThat( Scheduler.workers( true ) ).isInstanceOf( java.util.concurrent.ThreadPoolExecutor.class );
+    }
+
+    @Test
+    public void jobKeys() {
+        var scheduled = Scheduler.scheduleWithFixedDelay( 1, SECONDS, () -> {} );
+        var key = new JobKey( scheduled + "/job" );
+        assertThat( Scheduler.getAllJobKeys() ).contains( key );
+        scheduled.cancel();
+        assertThat( Scheduler.getAllJobKeys() ).doesNotContain( key );
+    }
 }
@@ -27,14 +27,23 @@ package oap.http;
 import lombok.extern.slf4j.Slf4j;
 import oap.concurrent.SynchronizedThread;
 import oap.concurrent.Threads;
+import oap.concurrent.VirtualThreads;
 import oap.http.cors.GenericCorsPolicy;
+import oap.http.server.AdmissionControl;
 import oap.http.server.apache.ApacheHttpServer;
 import oap.http.server.apache.PlainHttpListener;
+import oap.io.Closeables;
 import oap.testng.EnvFixture;
 import oap.testng.Fixtures;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.testng.SkipException;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Semaphore;
 
@@ -98,6 +107,116 @@ public class ApacheHttpServerTest extends Fixtures {
         }
     }
 
+    @Test
+    public void virtualThreadsIdleConnections() throws IOException {
+        if( !VirtualThreads.isSupported() ) throw new SkipException( "virtual threads are not supported" );
+
+        SynchronizedThread listener = null;
+        var idle = new ArrayList<Socket>();
+
+        try( var server = new ApacheHttpServer( 1, 0, false ) ) {
+            server.virtualThreads = true;
+            server.bind( "test", GenericCorsPolicy.DEFAULT, ( request, response ) ->
+                response.respond( HttpResponse.ok( "ok", true, TEXT_PLAIN ).response() ), Protocol.HTTP );
+            server.start();
+
+            var http = new PlainHttpListener( server, envFixture.portFor( PORT ) );
+            listener = new SynchronizedThread( http );
+            listener.start();
+
+            for( var i = 0; i < 10; i++ ) idle.add( new Socket( "localhost", envFixture.portFor( PORT ) ) );
+            assertEventually( 10, 100, () -> assertThat( server.getConnectionCount() ).isEqualTo( 10 ) );
+            assertThat( server.getQueueSize() ).isEqualTo( 0 );
+            assertThat( server.getActiveCount() ).isEqualTo( 0 );
+
+            assertGet( "http://localhost:" + envFixture.portFor( PORT ) + "/test" ).isOk().hasBody( "ok" );
+            assertThat( server.getQueueSize() ).isEqualTo( 0 );
+            assertThat( server.getActiveCount() ).isEqualTo( 0 );
+        } finally {
+            idle.forEach( Closeables::close );
+            if( listener != null )
+                listener.stop();
+        }
+    }
+
+    @Test
+    public void parkIdleConnections() throws IOException {
+        SynchronizedThread listener = null;
+        var idle = new ArrayList<Socket>();
+
+        try( var server = new ApacheHttpServer( 1, 0, false ) ) {
+            server.parkIdleConnections = true;
+            server.bind( "test", GenericCorsPolicy.DEFAULT, ( request, response ) ->
+                response.respond( HttpResponse.ok( "ok", true, TEXT_PLAIN ).response() ), Protocol.HTTP );
+            server.start();
+
+            var http = new PlainHttpListener( server, envFixture.portFor( PORT ) );
+            listener = new SynchronizedThread( http );
+            listener.start();
+
+            for( var i = 0; i < 10; i++ ) idle.add( new Socket( "localhost", envFixture.portFor( PORT ) ) );
+            assertEventually( 10, 100, () -> assertThat( server.getConnectionCount() ).isEqualTo( 10 ) );
+            assertThat( server.getActiveCount() ).isEqualTo( 0 );
+
+            // a single worker without a queue, it would be rejected if an idle connection held the worker
+            assertGet( "http://localhost:" + envFixture.portFor( PORT ) + "/test" ).isOk().hasBody( "ok" );
+            assertGet( "http://localhost:" + envFixture.portFor( PORT ) + "/test" ).isOk().hasBody( "ok" );
+            assertThat( server.getQueueSize() ).isEqualTo( 0 );
+            assertThat( server.getActiveCount() ).isEqualTo( 0 );
+
+            idle.forEach( Closeables::close );
+            assertEventually( 10, 100, () -> assertThat( server.getConnectionCount() ).isLessThanOrEqualTo( 1 ) );
+        } finally {
+            idle.forEach( Closeables::close );
+            if( listener != null )
+                listener.stop();
+        }
+    }
+
+    @Test
+    public void virtualThreadsUnsupported() {
+        if( VirtualThreads.isSupported() ) throw new SkipException( "virtual threads are supported" );
+
+        try( var server = new ApacheHttpServer( 1, 0, false ) ) {
+            server.virtualThreads = true;
+            server.start();
+
+            assertThat( server.virtualThreads ).isFalse();
+            assertThat( server.parkIdleConnections ).isTrue();
+        }
+    }
+
+    @Test
+    public void admissionControl() {
+        SynchronizedThread listener = null;
+
+        try( var server = new ApacheHttpServer( 1, 0, false ) ) {
+            server.parkIdleConnections = true;
+            server.admission = new AdmissionControl( "admission-test" );
+            server.admission.interval = 0;
+            server.admission.targetDelay = -1;
+            server.admission.priorities = Map.of( "bid", 0, "win", 10 );
+            server.admission.timeouts = Map.of( "expired", 0L );
+            for( var context : List.of( "bid", "win", "expired" ) )
+                server.bind( context, GenericCorsPolicy.DEFAULT, ( request, response ) ->
+                    response.respond( HttpResponse.ok( "ok", true, TEXT_PLAIN ).response() ), Protocol.HTTP );
+            server.start();
+
+            var http = new PlainHttpListener( server, envFixture.portFor( PORT ) );
+            listener = new SynchronizedThread( http );
+            listener.start();
+
+            var url = "http://localhost:" + envFixture.portFor( PORT );
+            assertGet( url + "/bid" ).hasCode( HTTP_UNAVAILABLE ).hasReason( "temporary overload" );
+            assertGet( url + "/win" ).isOk().hasBody( "ok" );
+            assertGet( url + "/expired" ).hasCode( HTTP_UNAVAILABLE ).hasReason( "deadline exceeded" );
+            assertThat( server.admission.getLevel() ).isEqualTo( 1 );
+        } finally {
+            if( listener != null )
+                listener.stop();
+        }
+    }
+
     /**
      * we need some way for it test to work
      */
@@ -24,6 +24,7 @@
 
 package oap.http;
 
+import io.micrometer.core.instrument.Metrics;
 import lombok.extern.slf4j.Slf4j;
 import oap.testng.Fixtures;
 import oap.testng.TestDirectoryFixture;
@@ -37,12 +38,15 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.net.HttpURLConnection.HTTP_OK;
+import static java.net.HttpURLConnection.HTTP_PARTIAL;
 import static oap.testng.Asserts.assertFile;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @Slf4j
 public class ClientTest extends Fixtures {
@@ -116,6 +120,85 @@ public class ClientTest extends Fixtures {
         assertThat( progress.get() ).isEqualTo( 100 );
     }
 
+    @Test
+    public void downloadRanges() {
+        range( "0-3", "0123" );
+        range( "4-7", "4567" );
+        range( "8-9", "89" );
+
+        var path = TestDirectoryFixture.testPath( "ranges.file" );
+        var progress = new AtomicInteger();
+        var download = Client.DEFAULT.download( "http://localhost:" + port + "/file", Optional.empty(), Optional.of( path ),
+            new DownloadOptions().withChunkSize( 4 ).withParallelism( 2 )
+                .withChecksum( "SHA-256", "84d89877f0d4041efb6bf91a16f0248f2fd573e6af05c19f96bedb9f882f7882" ),
+            progress::set );
+
+        assertThat( download ).contains( path );
+        assertFile( path ).hasContent( "0123456789" );
+        assertFile( TestDirectoryFixture.testPath( "ranges.file.part" ) ).doesNotExist();
+        assertThat( progress.get() ).isEqualTo( 100 );
+    }
+
+    @Test
+    public void downloadResume() throws IOException {
+        range( "0-3", "0123" );
+        range( "4-7", "4567" );
+
+        var path = TestDirectoryFixture.testPath( "resume.file" );
+        Files.writeString( TestDirectoryFixture.testPath( "resume.file.part" ), "0123????89" );
+        Files.writeString( TestDirectoryFixture.testPath( "resume.file.part.state" ),
+            "validator=\"v1\"\nlength=10\nchunkSize=4\ndone=2\n" );
+
+        var download = Client.DEFAULT.download( "http://localhost:" + port + "/file", Optional.empty(), Optional.of( path ),
+            new DownloadOptions().withChunkSize( 4 ), p -> {} );
+
+        assertThat( download ).contains( path );
+        assertFile( path ).hasContent( "0123456789" );
+        assertFile( TestDirectoryFixture.testPath( "resume.file.part.state" ) ).doesNotExist();
+    }
+
+    @Test
+    public void downloadChecksumMismatch() {
+        mockServer
+            .when( HttpRequest.request().withMethod( "GET" ).withPath( "/file" ), Times.once() )
+            .respond( HttpResponse.response().withStatusCode( HTTP_OK ).withBody( "test1" ) );
+
+        var path = TestDirectoryFixture.testPath( "checksum.file" );
+        assertThatThrownBy( () -> Client.DEFAULT.download( "http://localhost:" + port + "/file", Optional.empty(), Optional.of( path ),
+            new DownloadOptions().withChecksum( "SHA-256", "00" ), p -> {} ) )
+            .hasMessageContaining( "SHA-256 mismatch" );
+        assertFile( path ).doesNotExist();
+        assertFile( TestDirectoryFixture.testPath( "checksum.file.part" ) ).doesNotExist();
+    }
+
+    @Test
+    public void downloadEmpty() {
+        mockServer
+            .when( HttpRequest.request().withMethod( "GET" ).withPath( "/empty" ).withHeader( "Range", "bytes=.*" ), Times.once() )
+            .respond( HttpResponse.response().withStatusCode( 416 ).withHeader( "Content-Range", "bytes */0" ) );
+        mockServer
+            .when( HttpRequest.request().withMethod( "GET" ).withPath( "/empty" ), Times.once() )
+            .respond( HttpResponse.response().withStatusCode( HTTP_OK ) );
+
+        var path = TestDirectoryFixture.testPath( "empty.file" );
+        var progress = new AtomicInteger();
+        assertThat( Client.DEFAULT.download( "http://localhost:" + port + "/empty", Optional.empty(), Optional.of( path ), progress::set ) )
+            .contains( path );
+        assertFile( path ).exists().hasSize( 0 );
+        assertThat( progress.get() ).isEqualTo( 100 );
+    }
+
+    private void range( String range, String body ) {
+        mockServer
+            .when( HttpRequest.request().withMethod( "GET" ).withPath( "/file" )
+                .withHeader( "Range", "bytes=" + range ), Times.once() )
+            .respond( HttpResponse.response()
+                .withStatusCode( HTTP_PARTIAL )
+                .withHeader( "ETag", "\"v1\"" )
+                .withHeader( "Content-Range", "bytes " + range + "/10" )
+                .withBody( body ) );
+    }
+
     @Test
     public void postOutputStream() throws IOException {
         mockServer.when( HttpRequest.request()
@@ -136,4 +219,58 @@ public class ClientTest extends Fixtures {
             assertThat( response.contentString() ).isEqualTo( "ok" );
         }
     }
+
+    @Test
+    public void http2() throws IOException {
+        mockServer.when( HttpRequest.request()
+                .withMethod( "GET" )
+                .withPath( "/test" ),
+            Times.once()
+        ).respond( HttpResponse.response().withStatusCode( HTTP_OK ).withBody( "get" ) );
+        mockServer.when( HttpRequest.request()
+                .withMethod( "POST" )
+                .withPath( "/test" )
+                .withBody( "test\ntest1" ),
+            Times.once()
+        ).respond( HttpResponse.response().withStatusCode( HTTP_OK ).withBody( "ok" ) );
+
+        try( var client = Client.custom().setHttp2( true ).setName( "http2-test" ).build() ) {
+            assertThat( client.get( "http://localhost:" + port + "/test" ).contentString() ).isEqualTo( "get" );
+
+            try( var os = client.post( "http://localhost:" + port + "/test", ContentType.TEXT_PLAIN ) ) {
+                os.write( "test".getBytes() );
+                os.write( '\n' );
+                os.write( "test1".getBytes() );
+
+                response = os.waitAndGetResponse();
+
+                assertThat( response.code ).isEqualTo( HTTP_OK );
+                assertThat( response.contentString() ).isEqualTo( "ok" );
+            }
+        }
+    }
+
+    @Test
+    public void metrics() {
+        mockServer.when( HttpRequest.request()
+                .withMethod( "GET" )
+                .withPath( "/test" )
+        ).respond( HttpResponse.response().withStatusCode( HTTP_OK ).withBody( "get" ) );
+
+        try( var first = Client.custom().setName( "metrics-test" ).build() ) {
+            try( var second = Client.custom().setName( "metrics-test" ).build() ) {
+                assertThat( second.get( "http://localhost:" + port + "/test" ).code ).isEqualTo( HTTP_OK );
+            }
+            assertThat( Metrics.globalRegistry.find( "oap_http_client_pool" ).tags( "client", "metrics-test", "route", "total" ).gauges() )
+                .hasSize( 3 );
+        }
+        assertThat( Metrics.globalRegistry.find( "oap_http_client_pool" ).tags( "client", "metrics-test" ).gauges() ).isEmpty();
+
+        try( var client = Client.custom().setName( "routes-test" ).setMaxRouteMetrics( 0 ).build() ) {
+            assertThat( client.get( "http://localhost:" + port + "/test" ).code ).isEqualTo( HTTP_OK );
+            assertThat( Metrics.globalRegistry.find( "oap_http_client_requests" ).tags( "client", "routes-test" ).gauges() )
+                .extracting( g -> g.getId().getTag( "route" ) )
+                .containsOnly( "other" );
+        }
+    }
 }
@@ -0,0 +1,67 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.http;
+
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class ParametersTest {
+    @Test
+    public void query() {
+        var parameters = Parameters.query( "/path?a=&b=2&b=3&&c&d=x%20y+z&n=-42&big=99999999999&bad=1x" );
+
+        assertThat( parameters.size() ).isEqualTo( 8 );
+        assertThat( parameters.get( "a" ) ).isEmpty();
+        assertThat( parameters.getAll( "b" ) ).containsExactly( "2", "3" );
+        assertThat( parameters.get( "c" ) ).isEmpty();
+        assertThat( parameters.get( "d" ) ).isEqualTo( "x y z" );
+        assertThat( parameters.get( "unknown" ) ).isNull();
+        assertThat( parameters.contains( "c" ) ).isTrue();
+        assertThat( parameters.getView( "b" ).toString() ).isEqualTo( "2" );
+        assertThat( parameters.getInt( "n", 0 ) ).isEqualTo( -42 );
+        assertThat( parameters.getInt( "big", 7 ) ).isEqualTo( 7 );
+        assertThat( parameters.getLong( "big", 7 ) ).isEqualTo( 99999999999L );
+        assertThat( parameters.getLong( "bad", -1 ) ).isEqualTo( -1 );
+        assertThat( parameters.getLong( "unknown", -1 ) ).isEqualTo( -1 );
+
+        assertThat( Parameters.query( "/path" ).size() ).isZero();
+    }
+
+    @Test
+    public void cookies() {
+        var cookies = new LinkedHashMap<String, String>();
+        Parameters.cookies( " sid=abc; flag ; e=; x=1=2" ).forEach( cookies::put );
+
+        assertThat( cookies ).containsExactly(
+            entry( "sid", "abc" ),
+            entry( "flag", null ),
+            entry( "e", "" ),
+            entry( "x", "1=2" ) );
+    }
+}
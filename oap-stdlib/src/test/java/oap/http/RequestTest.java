@@ -0,0 +1,56 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.http;
+
+import oap.http.server.apache.ServerHttpContext;
+import oap.http.testng.MockHttpServer;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.protocol.BasicHttpContext;
+import org.testng.annotations.Test;
+
+import java.net.InetAddress;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+public class RequestTest {
+    @Test
+    public void duplicateCookies() {
+        var request = request( "sid=first; a=1; sid=second" );
+
+        assertThat( request.cookie( "sid" ) ).contains( "first" );
+        assertThat( request.getCookies() ).containsOnly( entry( "sid", "first" ), entry( "a", "1" ) );
+        assertThat( request.cookie( "sid" ) ).contains( "first" );
+    }
+
+    private static Request request( String cookie ) {
+        var basicHttpRequest = new BasicHttpRequest( "GET", "http://test.com" );
+        basicHttpRequest.addHeader( "Cookie", cookie );
+
+        return new Request( basicHttpRequest, new Context( "/",
+            InetAddress.getLoopbackAddress(),
+            new ServerHttpContext( new MockHttpServer(), new BasicHttpContext(), Protocol.HTTP, null ) ) );
+    }
+}
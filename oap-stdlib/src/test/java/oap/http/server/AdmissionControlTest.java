@@ -0,0 +1,79 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package oap.http.server;
+
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+import static oap.http.server.AdmissionControl.Decision.ADMITTED;
+import static oap.http.server.AdmissionControl.Decision.EXPIRED;
+import static oap.http.server.AdmissionControl.Decision.SHED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdmissionControlTest {
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void deadline() {
+        var admission = new AdmissionControl();
+        admission.timeouts = Map.of( "bid", 10L );
+
+        assertThat( admission.admit( "bid", 2 * MS, null ) ).isEqualTo( ADMITTED );
+        assertThat( admission.admit( "bid", 20 * MS, null ) ).isEqualTo( EXPIRED );
+        assertThat( admission.admit( "bid", 20 * MS, "50" ) ).isEqualTo( ADMITTED );
+        assertThat( admission.admit( "other", 20 * MS, null ) ).isEqualTo( ADMITTED );
+    }
+
+    @Test
+    public void shedByPriority() {
+        var admission = new AdmissionControl();
+        admission.interval = 0;
+        admission.targetDelay = 5;
+        admission.priorities = Map.of( "bid", 0, "win", 10 );
+
+        assertThat( admission.admit( "bid", 10 * MS, null ) ).isEqualTo( SHED );
+        assertThat( admission.getLevel() ).isEqualTo( 1 );
+        assertThat( admission.admit( "win", 10 * MS, null ) ).isEqualTo( ADMITTED );
+        assertThat( admission.getLevel() ).isEqualTo( 1 );
+
+        assertThat( admission.admit( "bid", 0, null ) ).isEqualTo( ADMITTED );
+        assertThat( admission.getLevel() ).isEqualTo( 0 );
+    }
+
+    @Test
+    public void prioritiesChange() {
+        var admission = new AdmissionControl();
+        admission.interval = 0;
+        admission.priorities = Map.of( "bid", 0, "win", 10 );
+
+        assertThat( admission.admit( "bid", 10 * MS, null ) ).isEqualTo( SHED );
+        assertThat( admission.admit( "win", 10 * MS, null ) ).isEqualTo( ADMITTED );
+
+        admission.priorities = Map.of( "bid", 20, "win", 10 );
+        assertThat( admission.admit( "bid", 10 * MS, null ) ).isEqualTo( ADMITTED );
+        assertThat( admission.admit( "win", 10 * MS, null ) ).isEqualTo( SHED );
+    }
+}
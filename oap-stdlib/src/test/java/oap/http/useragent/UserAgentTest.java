@@ -40,4 +40,28 @@ public class UserAgentTest {
         assertThat( edge.browser ).isEqualTo( UserAgent.Browser.EDGE );
     }
 
+    @Test
+    public void osAndDevice() {
+        var iphone = UserAgent.of( "Mozilla/5.0 (iPhone; CPU iPhone OS 14_4 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/14.0.3 Mobile/15E148 Safari/604.1" );
+        assertThat( iphone.browser ).isEqualTo( UserAgent.Browser.SAFARI_MOBILE );
+        assertThat( iphone.os ).isEqualTo( UserAgent.Os.IOS );
+        assertThat( iphone.device ).isEqualTo( UserAgent.Device.MOBILE );
+
+        var tablet = UserAgent.of( "Mozilla/5.0 (Linux; Android 9; SM-T820) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/88.0.4324.152 Safari/537.36" );
+        assertThat( tablet.browser ).isEqualTo( UserAgent.Browser.CHROME );
+        assertThat( tablet.os ).isEqualTo( UserAgent.Os.ANDROID );
+        assertThat( tablet.device ).isEqualTo( UserAgent.Device.TABLET );
+
+        var windows = UserAgent.of( "Mozilla/5.0 (Windows NT 10.0; Win64; x64; rv:85.0) Gecko/20100101 Firefox/85.0" );
+        assertThat( windows.browser ).isEqualTo( UserAgent.Browser.FIREFOX );
+        assertThat( windows.os ).isEqualTo( UserAgent.Os.WINDOWS );
+        assertThat( windows.device ).isEqualTo( UserAgent.Device.DESKTOP );
+
+        var bot = UserAgent.of( "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)" );
+        assertThat( bot.device ).isEqualTo( UserAgent.Device.BOT );
+
+        assertThat( UserAgent.of( null ).browser ).isEqualTo( UserAgent.Browser.UNKNOWN );
+        assertThat( UserAgent.of( windows.userAgent ) ).isSameAs( windows );
+    }
+
 }
@@ -29,7 +29,11 @@ import oap.testng.Fixtures;
 import oap.testng.TestDirectoryFixture;
 import org.testng.annotations.Test;
 
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -71,4 +75,51 @@ public class FileSystemFileSyncTest extends Fixtures {
         assertThat( b ).contains( "ff" );
     }
 
+    @Test
+    public void runWaitsRunIfIdleSkips() throws Exception {
+        var started = new CountDownLatch( 1 );
+        var release = new CountDownLatch( 1 );
+        var downloads = new AtomicInteger();
+        var fileSync = new AbstractFileSync( "test" ) {
+            @Override
+            @SneakyThrows
+            protected Optional<Path> download() {
+                if( downloads.incrementAndGet() == 1 ) {
+                    started.countDown();
+                    release.await();
+                }
+                return Optional.empty();
+            }
+        };
+        var notModified = new AtomicInteger();
+        fileSync.addListener( new AbstractFileSync.FileDownloaderListener() {
+            @Override
+            public void downloaded( Path path ) {
+            }
+
+            @Override
+            public void notModified() {
+                notModified.incrementAndGet();
+            }
+        } );
+
+        var first = new Thread( fileSync );
+        first.start();
+        started.await();
+
+        assertThat( fileSync.runIfIdle() ).isFalse();
+
+        var second = new Thread( fileSync );
+        second.start();
+        Thread.sleep( 50 );
+        assertThat( second.isAlive() ).isTrue();
+
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertThat( downloads.get() ).isEqualTo( 2 );
+        assertThat( notModified.get() ).isEqualTo( 2 );
+        assertThat( fileSync.runIfIdle() ).isTrue();
+    }
 }
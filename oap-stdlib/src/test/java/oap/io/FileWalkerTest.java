@@ -1,13 +1,16 @@
 package oap.io;
 
 import oap.testng.Fixtures;
+import oap.testng.SystemTimerFixture;
 import oap.testng.TestDirectoryFixture;
+import oap.util.Dates;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Consumer;
 
 import static java.util.Collections.emptyList;
@@ -20,6 +23,7 @@ import static org.testng.Assert.assertEqualsNoOrder;
 public class FileWalkerTest extends Fixtures {
     {
         fixture( TestDirectoryFixture.FIXTURE );
+        fixture( SystemTimerFixture.FIXTURE );
     }
 
     @BeforeMethod
@@ -96,6 +100,43 @@ public class FileWalkerTest extends Fixtures {
         assertThat( visitor2.files ).containsOnly( testPath( "/wildcard/w2/3.txt" ), testPath( "/wildcard/w2/33.txt" ) );
     }
 
+    @Test
+    public void stream() {
+        assertThat( new FileWalker( testPath( "wildcard" ), "*/*.txt" ).stream().toList() )
+            .containsOnly( testPath( "/wildcard/w2/33.txt" ), testPath( "/wildcard/w2/3.txt" ) );
+        assertThat( new FileWalker( testPath( "wildcard" ), "w2/3.txt" ).stream().toList() )
+            .containsOnly( testPath( "/wildcard/w2/3.txt" ) );
+        assertThat( new FileWalker( Paths.get( "/aaa" ), "*.txt" ).stream().toList() ).isEmpty();
+    }
+
+    @Test
+    public void walkFileTreeParallel() {
+        var files = new ConcurrentLinkedQueue<Path>();
+        new FileWalker( testPath( "wildcard" ), "*/*/*.txt" ).walkFileTreeParallel( files::add );
+        assertThat( files ).containsOnly( testPath( "/wildcard/w2/w1/4.txt" ) );
+
+        files.clear();
+        new FileWalker( testPath( "wildcard" ), "w2/3*.txt" ).walkFileTreeParallel( files::add );
+        assertThat( files ).containsOnly( testPath( "/wildcard/w2/3.txt" ), testPath( "/wildcard/w2/33.txt" ) );
+    }
+
+    @Test
+    public void cacheTtl() {
+        Dates.setTimeFixed( 2021, 3, 1, 10 );
+        var fwc = new FileWalkerCache( 1000 );
+
+        assertThat( new FileWalker( testPath( "wildcard" ), "w2/*.txt", fwc ).stream().toList() )
+            .containsOnly( testPath( "/wildcard/w2/3.txt" ), testPath( "/wildcard/w2/33.txt" ) );
+
+        Files.writeString( testPath( "/wildcard/w2/5.txt" ), "1" );
+        assertThat( new FileWalker( testPath( "wildcard" ), "w2/*.txt", fwc ).stream().toList() )
+            .containsOnly( testPath( "/wildcard/w2/3.txt" ), testPath( "/wildcard/w2/33.txt" ) );
+
+        Dates.incFixed( 1000 );
+        assertThat( new FileWalker( testPath( "wildcard" ), "w2/*.txt", fwc ).stream().toList() )
+            .containsOnly( testPath( "/wildcard/w2/3.txt" ), testPath( "/wildcard/w2/33.txt" ), testPath( "/wildcard/w2/5.txt" ) );
+    }
+
     private static class CollectingVisitor implements Consumer<Path> {
         public final ArrayList<Path> files = new ArrayList<>();
 
@@ -83,6 +83,20 @@ public class FilesTest extends Fixtures {
         assertEquals( Paths.get( "a", "b/c", "d" ), Paths.get( "a", "b", "c", "d" ) );
     }
 
+    @Test
+    public void copySameEncoding() {
+        var source = testPath( "source.txt.gz" );
+        var dest = testPath( "dest/dest.txt.gz" );
+        Files.writeString( source, GZIP, "12345" );
+
+        Files.copy( source, GZIP, dest, GZIP );
+        assertFile( dest ).hasContent( "12345", GZIP );
+        assertThat( Files.exists( testPath( "dest/dest.txt.gz.unsafe" ) ) ).isFalse();
+
+        Files.append( source, GZIP, dest, GZIP, IoStreams.DEFAULT_BUFFER );
+        assertFile( dest ).hasContent( "1234512345", GZIP );
+    }
+
     @Test
     public void copy() {
         Files.writeString( testPath( "src/a/1.txt" ), "1" );
@@ -35,6 +35,7 @@ import org.apache.commons.lang3.RandomStringUtils;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -44,6 +45,8 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static oap.io.IoStreams.Encoding.GZIP;
 import static oap.io.IoStreams.Encoding.LZ4;
@@ -93,6 +96,120 @@ public class IoStreamsTest extends Fixtures {
         assertFile( path ).hasContent( "1234512345", encoding );
     }
 
+    @Test( dataProvider = "encodings" )
+    @SneakyThrows
+    public void inMapped( Encoding encoding ) {
+        Path path = encoding.resolve( testPath( "mapped.txt" ) );
+        var content = RandomStringUtils.randomAlphanumeric( 100000 );
+        Files.writeString( path, encoding, content );
+
+        try( InputStream in = IoStreams.inMapped( path, encoding ) ) {
+            assertThat( ContentReader.read( in, ContentReader.ofString() ) ).isEqualTo( content );
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void mappedWindows() {
+        Path path = testPath( "windows.txt" );
+        var content = RandomStringUtils.randomAlphanumeric( 10000 );
+        Files.writeString( path, content );
+
+        try( var in = new MappedInputStream( path, 1000 ) ) {
+            assertThat( in.skip( 1500 ) ).isEqualTo( 1500 );
+            assertThat( in.read() ).isEqualTo( content.charAt( 1500 ) );
+            assertThat( ContentReader.read( in, ContentReader.ofString() ) ).isEqualTo( content.substring( 1501 ) );
+            assertThat( in.read() ).isEqualTo( -1 );
+        }
+
+        try( var in = new MappedInputStream( path, 1000 ) ) {
+            assertThat( in.skip( Long.MAX_VALUE ) ).isEqualTo( 10000 );
+            assertThat( in.read() ).isEqualTo( -1 );
+            assertThat( in.available() ).isEqualTo( 0 );
+            assertThat( in.skip( 1 ) ).isEqualTo( 0 );
+        }
+    }
+
+    @DataProvider
+    public Object[][] parallelEncodings() {
+        return new Object[][] { { GZIP }, { ZSTD }, { LZ4 } };
+    }
+
+    @Test( dataProvider = "parallelEncodings" )
+    @SneakyThrows
+    public void outParallel( Encoding encoding ) {
+        Path path = encoding.resolve( testPath( "parallel.txt" ) );
+        var content = RandomStringUtils.randomAlphanumeric( ParallelCompressingOutputStream.DEFAULT_BLOCK_SIZE * 5 + 17 );
+        try( OutputStream out = IoStreams.outParallel( path, encoding, 4 ) ) {
+            out.write( content.getBytes() );
+        }
+        assertFile( path ).hasContent( content, encoding );
+
+        try( OutputStream out = IoStreams.outParallel( path, encoding, 4 ) ) {
+            out.flush();
+        }
+        assertFile( path ).hasContent( "", encoding );
+    }
+
+    @Test
+    public void parallelismBoundsConcurrentBlocks() throws IOException {
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        var pool = java.util.concurrent.Executors.newFixedThreadPool( 8 );
+        var executor = new java.util.concurrent.AbstractExecutorService() {
+            @Override
+            public void execute( Runnable command ) {
+                pool.execute( () -> {
+                    maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+                    try {
+                        Thread.sleep( 5 );
+                        command.run();
+                    } catch( InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        running.decrementAndGet();
+                    }
+                } );
+            }
+
+            @Override
+            public void shutdown() {
+                pool.shutdown();
+            }
+
+            @Override
+            public List<Runnable> shutdownNow() {
+                return pool.shutdownNow();
+            }
+
+            @Override
+            public boolean isShutdown() {
+                return pool.isShutdown();
+            }
+
+            @Override
+            public boolean isTerminated() {
+                return pool.isTerminated();
+            }
+
+            @Override
+            public boolean awaitTermination( long timeout, TimeUnit unit ) throws InterruptedException {
+                return pool.awaitTermination( timeout, unit );
+            }
+        };
+
+        var content = RandomStringUtils.randomAlphanumeric( 1024 * 20 );
+        var path = testPath( "parallelism.txt.gz" );
+        try( OutputStream out = new ParallelCompressingOutputStream( new FileOutputStream( path.toFile() ), GZIP, 1024, executor, 2 ) ) {
+            out.write( content.getBytes() );
+        } finally {
+            pool.shutdown();
+        }
+
+        assertFile( path ).hasContent( content, GZIP );
+        assertThat( maxRunning.get() ).isBetween( 1, 2 );
+    }
+
     @Test
     public void lz4() throws IOException {
         Path path = testPath( "test.lz4" );
@@ -29,14 +29,20 @@ import io.micrometer.core.instrument.Metrics;
 import oap.http.Client;
 import oap.testng.EnvFixture;
 import oap.testng.Fixtures;
+import oap.util.Dates;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class PrometheusExporterTest extends Fixtures {
     private static final Counter TEST_1 = Metrics.counter( "test1" );
+    private static final Counter TEST_2 = Metrics.counter( "test2" );
     private final EnvFixture envFixture;
 
     {
@@ -58,4 +64,38 @@ public class PrometheusExporterTest extends Fixtures {
         }
     }
 
+    @Test
+    public void gzipSnapshot() throws IOException {
+        var port = envFixture.portFor( "prometheus" );
+        try( var exporter = new PrometheusExporter( port ) ) {
+            exporter.snapshotTtl = Dates.m( 1 );
+            exporter.start();
+
+            TEST_2.increment( 2 );
+            var first = scrapeGzip( port );
+            TEST_2.increment( 3 );
+            var second = scrapeGzip( port );
+
+            assertThat( first ).contains( "test2_total 2.0" );
+            assertThat( second ).isEqualTo( first );
+        }
+    }
+
+    @Test
+    public void acceptsGzip() {
+        assertThat( PrometheusExporter.acceptsGzip( "gzip" ) ).isTrue();
+        assertThat( PrometheusExporter.acceptsGzip( "deflate, GZIP;q=0.5" ) ).isTrue();
+        assertThat( PrometheusExporter.acceptsGzip( "gzip;q=0" ) ).isFalse();
+        assertThat( PrometheusExporter.acceptsGzip( "gzip; q=0.0, identity" ) ).isFalse();
+        assertThat( PrometheusExporter.acceptsGzip( "x-gzip-like, br" ) ).isFalse();
+        assertThat( PrometheusExporter.acceptsGzip( "" ) ).isFalse();
+    }
+
+    private static String scrapeGzip( int port ) throws IOException {
+        var response = Client.DEFAULT.get( "http://localhost:" + port + "/metrics", Map.of(), Map.of( "Accept-Encoding", "gzip" ) );
+        assertThat( response.header( "Content-Encoding" ) ).contains( "gzip" );
+        try( var in = new GZIPInputStream( new ByteArrayInputStream( response.content() ) ) ) {
+            return new String( in.readAllBytes(), UTF_8 );
+        }
+    }
 }
@@ -0,0 +1,52 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) Open Application Platform Authors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package oap.prometheus;
+
+import io.micrometer.core.instrument.Metrics;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TypedCountersTest {
+    @Test
+    public void unsigned() {
+        var counters = TypedCounters.unsigned( "test_typed_unsigned", "type", "status", "ok" );
+        counters.increment( ( byte ) 1 );
+        counters.increment( ( byte ) 1 );
+        counters.increment( ( byte ) 200 );
+
+        assertThat( counters.counter( ( byte ) 1 ) ).isSameAs( counters.counter( ( byte ) 1 ) );
+        assertThat( Metrics.globalRegistry.get( "test_typed_unsigned" ).tags( "type", "1", "status", "ok" ).counter().count() ).isEqualTo( 2.0 );
+        assertThat( Metrics.globalRegistry.get( "test_typed_unsigned" ).tags( "type", "200" ).counter().count() ).isEqualTo( 1.0 );
+        assertThat( Metrics.globalRegistry.find( "test_typed_unsigned" ).tags( "type", "2" ).counter() ).isNull();
+    }
+
+    @Test
+    public void signed() {
+        var counters = TypedCounters.signed( "test_typed_signed", "type" );
+        counters.increment( ( byte ) 200 );
+
+        assertThat( Metrics.globalRegistry.get( "test_typed_signed" ).tags( "type", "-56" ).counter().count() ).isEqualTo( 1.0 );
+    }
+}
@@ -40,6 +40,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
@@ -49,6 +51,26 @@ import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 
 public class ReflectionTest {
+    @Test
+    public void reflectConcurrently() throws Exception {
+        var pool = Executors.newFixedThreadPool( 8 );
+        try {
+            var tasks = new ArrayList<Callable<Reflection>>();
+            for( var i = 0; i < 64; i++ ) tasks.add( () -> Reflect.reflect( Bean.class ) );
+
+            var expected = Reflect.reflect( Bean.class );
+            for( var future : pool.invokeAll( tasks ) ) {
+                var reflection = future.get();
+                assertThat( reflection ).isSameAs( expected );
+                assertThat( reflection.field( "i" ) ).isPresent();
+                assertThat( reflection.constructors ).isNotEmpty();
+            }
+            assertThat( Reflect.reflect( new TypeRef<Bean>() {} ) ).isSameAs( expected );
+        } finally {
+            pool.shutdown();
+        }
+    }
+
     @Test
     public void newInstance() {
         Reflection ref = Reflect.reflect( "oap.reflect.Bean" );
@@ -188,6 +210,51 @@ public class ReflectionTest {
             ) );
     }
 
+    @Test
+    public void compile() {
+        Bean bean = new Bean( 1, "bbb" );
+        DeepBean deepBean = new DeepBean( bean, Optional.of( bean ), Lists.of( bean ), Maps.of(
+            __( "x", Maps.of( __( "1", 1 ) ) )
+        ) );
+
+        assertThat( Reflect.compile( DeepBean.class, "bean.x" ).<Integer>get( deepBean ) ).isEqualTo( 1 );
+        assertThat( Reflect.compile( DeepBean.class, "bean.x" ).getInt( deepBean ) ).isEqualTo( 1 );
+        assertThat( Reflect.compile( DeepBean.class, "beanOptional.str" ).<String>get( deepBean ) ).isEqualTo( "bbb" );
+        assertThat( Reflect.compile( DeepBean.class, "list.[0]" ).<Bean>get( deepBean ) ).isEqualTo( bean );
+        assertThat( Reflect.compile( DeepBean.class, "list.[2]" ).<Bean>get( deepBean ) ).isNull();
+        assertThat( Reflect.compile( DeepBean.class, "map.[x].[1]" ).<Integer>get( deepBean ) ).isEqualTo( 1 );
+        assertThat( Reflect.compile( DeepBean.class, "map.[z]" ).<Integer>get( deepBean ) ).isNull();
+        assertThat( Reflect.compile( DeepBean.class, "bean.x.y.z" ).<Object>get( deepBean ) ).isNull();
+        assertThat( Reflect.compile( DeepBean.class, "beanOptional.x" ).getInt( new DeepBean( new Bean(), Optional.empty() ) ) )
+            .isEqualTo( 0 );
+
+        var str = Reflect.compile( DeepBean.class, "bean.str" );
+        var optional = Reflect.compile( DeepBean.class, "bean.optional" );
+        DeepBean other = new DeepBean( new Bean( 10, "aaa" ), Optional.empty() );
+        str.set( other, "new string" );
+        optional.set( other, "optional present" );
+        Reflect.compile( DeepBean.class, "list.[*]" ).set( other, new Bean( 12, "ccc" ) );
+
+        assertThat( str.<String>get( other ) ).isEqualTo( "new string" );
+        assertThat( optional.<String>get( other ) ).isEqualTo( "optional present" );
+        assertThat( other.bean.optional ).contains( "optional present" );
+        assertThat( other.list ).containsExactly( new Bean( 12, "ccc" ) );
+    }
+
+    @Test
+    public void compilePolymorphic() {
+        var x = Reflect.compile( Object.class, "x" );
+        for( var i = 0; i < 3; i++ ) {
+            assertThat( x.getInt( new Bean( 1, 2 ) ) ).isEqualTo( 2 );
+            assertThat( x.getInt( new FinalBean( 3 ) ) ).isEqualTo( 3 );
+            assertThat( x.<Object>get( "string" ) ).isNull();
+        }
+
+        var bean = new FinalBean( 3 );
+        x.set( bean, 4 );
+        assertThat( bean.x ).isEqualTo( 4 );
+    }
+
     @Test
     public void constructor() {
         assertThat( Reflect.reflect( MatchingConstructor.class ).constructors ).hasSize( 2 );
@@ -282,6 +349,14 @@ class Bean {
 }
 
 
+class FinalBean {
+    final int x;
+
+    FinalBean( int x ) {
+        this.x = x;
+    }
+}
+
 class StringList extends ArrayList<String> {
 
 }